@@ -0,0 +1,263 @@
+package io.dropwizard.grpc.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.dropwizard.testing.ResourceHelpers.resourceFilePath;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import io.dropwizard.grpc.server.testing.junit.TestApplication;
+import io.dropwizard.grpc.server.testing.junit.TestConfiguration;
+import io.dropwizard.grpc.testing.PersonServiceApi.ExceptionalRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
+import io.dropwizard.grpc.testing.PersonServiceGrpc;
+import io.dropwizard.testing.DropwizardTestSupport;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Open-loop load generator for the test {@code PersonService}.
+ * <p>
+ * Starts the {@link TestApplication} with the given configuration, so that executor, transport and flow-control
+ * settings of the {@code GrpcServerFactory} can be compared on the same machine, and sends calls at a fixed rate
+ * regardless of how fast the server responds. The response time of each call is measured from the time it was
+ * scheduled to be sent, not from the time it was actually sent, so a stalled server shows up in the percentiles
+ * instead of silently lowering the request rate (coordinated omission).
+ * <p>
+ * Each call is a {@code GetPerson} call which the server delays by a latency drawn from the configured mix, or an
+ * {@code Exceptional} call with the configured error rate. The requests are drawn from a seeded random number
+ * generator, so two runs with the same arguments send the same sequence of calls.
+ * <p>
+ * After the run, HdrHistogram percentile distributions of the response time and of the service time (measured from
+ * the time the call was actually sent) are written to {@code <output>/<label>-response-time.hgrm} and
+ * {@code <output>/<label>-service-time.hgrm}, in milliseconds. Run with {@code ./gradlew loadTest}, pass arguments
+ * with {@code -PloadTestArgs="..."}, see {@code --help} for all options.
+ */
+public final class LoadGenerator {
+    private static final Status.Code[] CODES = Status.Code.values();
+
+    private final int rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final long timeoutMillis;
+    private final long[] latencies;
+    private final double errorRate;
+    private final Random random;
+    private final Recorder responseTime = new Recorder(3);
+    private final Recorder serviceTime = new Recorder(3);
+    private final AtomicLongArray completed = new AtomicLongArray(CODES.length);
+    private final AtomicLong outstanding = new AtomicLong();
+
+    /**
+     * @param rate calls per second
+     * @param warmupNanos time during which calls are sent but not recorded
+     * @param durationNanos time during which calls are sent and recorded
+     * @param timeoutMillis deadline of each call
+     * @param latencies server-side delays in milliseconds, one of which is chosen uniformly per call
+     * @param errorRate fraction of calls which fail with {@code INTERNAL}
+     * @param seed of the random number generator that chooses the calls
+     */
+    LoadGenerator(final int rate, final long warmupNanos, final long durationNanos, final long timeoutMillis,
+            final long[] latencies, final double errorRate, final long seed) {
+        checkArgument(rate > 0, "rate must be positive");
+        checkArgument(latencies.length > 0, "latencies must not be empty");
+        checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate must be between 0 and 1");
+        this.rate = rate;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.timeoutMillis = timeoutMillis;
+        this.latencies = latencies.clone();
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sends calls on the given channel at the configured rate and waits until all calls have completed.
+     *
+     * @param channel to send calls on
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void run(final ManagedChannel channel) throws InterruptedException {
+        final PersonServiceGrpc.PersonServiceStub client = PersonServiceGrpc.newStub(channel);
+        final long start = System.nanoTime();
+        final long measureStart = start + warmupNanos;
+        final long end = measureStart + durationNanos;
+        for (long i = 0;; i++) {
+            final long intendedStart = start + i * TimeUnit.SECONDS.toNanos(1) / rate;
+            if (intendedStart - end >= 0) {
+                break;
+            }
+            long now = System.nanoTime();
+            while (intendedStart - now > 0) {
+                LockSupport.parkNanos(intendedStart - now);
+                now = System.nanoTime();
+            }
+            send(client.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS), intendedStart,
+                intendedStart - measureStart >= 0);
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (outstanding.get() > 0 && deadline - System.nanoTime() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(final PersonServiceGrpc.PersonServiceStub client, final long intendedStart,
+            final boolean measured) {
+        outstanding.incrementAndGet();
+        if (random.nextDouble() < errorRate) {
+            final ExceptionalRequest request = ExceptionalRequest.newBuilder().setName("blah").build();
+            client.exceptional(request, new RecordingObserver<>(intendedStart, measured));
+        } else {
+            final long latency = latencies[random.nextInt(latencies.length)];
+            final GetPersonRequest request = GetPersonRequest.newBuilder().setName(Long.toString(latency)).build();
+            client.getPerson(request, new RecordingObserver<>(intendedStart, measured));
+        }
+    }
+
+    /**
+     * Writes the percentile distributions to the given directory and a summary to the given stream.
+     *
+     * @param output directory for the {@code .hgrm} files
+     * @param label prefix of the file names
+     * @param summary stream to print the summary to
+     * @throws IOException if the files cannot be written
+     */
+    void report(final Path output, final String label, final PrintStream summary) throws IOException {
+        Files.createDirectories(output);
+        final Histogram responseTimes = responseTime.getIntervalHistogram();
+        final Histogram serviceTimes = serviceTime.getIntervalHistogram();
+        writeDistribution(output.resolve(label + "-response-time.hgrm"), responseTimes);
+        writeDistribution(output.resolve(label + "-service-time.hgrm"), serviceTimes);
+
+        summary.printf("%s: %d calls at %d/s, %d outstanding after the run%n", label, responseTimes.getTotalCount(),
+            rate, outstanding.get());
+        for (final Status.Code code : CODES) {
+            final long count = completed.get(code.ordinal());
+            if (count > 0) {
+                summary.printf("  %-20s %d%n", code, count);
+            }
+        }
+        printPercentiles(summary, "response time", responseTimes);
+        printPercentiles(summary, "service time", serviceTimes);
+    }
+
+    private static void writeDistribution(final Path file, final Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+            // values are recorded in microseconds, the distribution is reported in milliseconds
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static void printPercentiles(final PrintStream summary, final String name, final Histogram histogram) {
+        summary.printf("  %-14s p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms%n", name,
+            histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0);
+    }
+
+    private final class RecordingObserver<T> implements StreamObserver<T> {
+        private final long intendedStart;
+        private final long actualStart;
+        private final boolean measured;
+
+        RecordingObserver(final long intendedStart, final boolean measured) {
+            this.intendedStart = intendedStart;
+            this.actualStart = System.nanoTime();
+            this.measured = measured;
+        }
+
+        @Override
+        public void onNext(final T value) {
+            // only the completion of the call is measured
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            record(Status.fromThrowable(t).getCode());
+        }
+
+        @Override
+        public void onCompleted() {
+            record(Status.Code.OK);
+        }
+
+        private void record(final Status.Code code) {
+            final long now = System.nanoTime();
+            if (measured) {
+                responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - intendedStart));
+                serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - actualStart));
+                completed.incrementAndGet(code.ordinal());
+            }
+            outstanding.decrementAndGet();
+        }
+    }
+
+    private static long[] parseLatencies(final String latencies) {
+        final String[] values = latencies.split(",");
+        final long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Long.parseLong(values[i].trim());
+        }
+        return result;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final ArgumentParser parser = ArgumentParsers.newArgumentParser("loadTest")
+            .defaultHelp(true)
+            .description("Sends calls to the test PersonService at a fixed rate and reports latency percentiles.");
+        parser.addArgument("--config")
+            .help("configuration file of the test application, defaults to grpc-test-config.yaml");
+        parser.addArgument("--rate").type(Integer.class).setDefault(1000).help("calls per second");
+        parser.addArgument("--warmup").type(Integer.class).setDefault(10).help("warmup time in seconds");
+        parser.addArgument("--duration").type(Integer.class).setDefault(30).help("measurement time in seconds");
+        parser.addArgument("--timeout").type(Long.class).setDefault(10000L).help("deadline of each call in ms");
+        parser.addArgument("--latencies").setDefault("0")
+            .help("comma-separated server-side delays in ms, one is chosen uniformly per call, e.g. 0,0,0,0,5,50");
+        parser.addArgument("--error-rate").type(Double.class).setDefault(0.0).help("fraction of failing calls");
+        parser.addArgument("--seed").type(Long.class).setDefault(42L).help("seed for choosing the calls");
+        parser.addArgument("--output").setDefault("build/reports/loadTest").help("directory for the .hgrm reports");
+        parser.addArgument("--label").setDefault("loadTest").help("prefix of the report file names");
+        final Namespace namespace = parser.parseArgsOrFail(args);
+
+        final String config = namespace.getString("config");
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            config == null ? resourceFilePath("grpc-test-config.yaml") : config);
+        testSupport.before();
+        try {
+            final TestApplication application = testSupport.getApplication();
+            final ManagedChannel channel =
+                    NettyChannelBuilder.forAddress("localhost", application.getServer().getPort()).usePlaintext()
+                        .build();
+            try {
+                final LoadGenerator generator = new LoadGenerator(namespace.getInt("rate"),
+                    TimeUnit.SECONDS.toNanos(namespace.getInt("warmup")),
+                    TimeUnit.SECONDS.toNanos(namespace.getInt("duration")), namespace.getLong("timeout"),
+                    parseLatencies(namespace.getString("latencies")), namespace.getDouble("error_rate"),
+                    namespace.getLong("seed"));
+                generator.run(channel);
+                generator.report(Paths.get(namespace.getString("output")), namespace.getString("label"), System.out);
+            } finally {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            testSupport.after();
+        }
+    }
+}
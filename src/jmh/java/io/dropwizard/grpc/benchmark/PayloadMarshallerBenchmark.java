@@ -0,0 +1,86 @@
+package io.dropwizard.grpc.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.ByteString;
+
+import io.dropwizard.grpc.ZeroCopyProtoMarshaller;
+import io.dropwizard.grpc.testing.PersonServiceApi.Payload;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.lite.ProtoLiteUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Parsing {@code Payload} messages with a large {@code bytes} field, with gRPC's default protobuf marshaller or with
+ * {@link ZeroCopyProtoMarshaller}.
+ * <p>
+ * Both marshallers parse the same serialized message from a direct {@link ByteBuf} through an input stream which knows
+ * its length, like the streams of messages received by the netty transport. Run with
+ * {@code ./gradlew jmh -PjmhArgs=PayloadMarshallerBenchmark}, which reports the allocation rate per operation as well
+ * ({@code -prof gc}), and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PayloadMarshallerBenchmark {
+    public enum Marshaller {
+        DEFAULT, ZERO_COPY
+    }
+
+    @Param
+    public Marshaller marshaller;
+
+    @Param({"64", "1024", "8192"})
+    public int payloadKiB;
+
+    private MethodDescriptor.Marshaller<Payload> payloadMarshaller;
+    private ByteBuf serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payloadMarshaller = marshaller == Marshaller.ZERO_COPY
+                ? new ZeroCopyProtoMarshaller<>(Payload.getDefaultInstance())
+                : ProtoLiteUtils.marshaller(Payload.getDefaultInstance());
+        final byte[] data = new byte[payloadKiB * 1024];
+        new Random(42).nextBytes(data);
+        final byte[] message = Payload.newBuilder().setData(ByteString.copyFrom(data)).build().toByteArray();
+        serialized = Unpooled.directBuffer(message.length).writeBytes(message);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serialized.release();
+    }
+
+    @Benchmark
+    public Payload parse() {
+        return payloadMarshaller.parse(new KnownLengthByteBufInputStream(serialized.duplicate()));
+    }
+
+    private static final class KnownLengthByteBufInputStream extends ByteBufInputStream implements KnownLength {
+        KnownLengthByteBufInputStream(final ByteBuf buffer) {
+            super(buffer);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.dropwizard.grpc.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.grpc.client.GrpcChannelFactory;
+import io.dropwizard.grpc.client.MetricsClientInterceptor;
+import io.dropwizard.grpc.server.DropwizardServerBuilder;
+import io.dropwizard.grpc.server.testing.app.PersonServiceGrpcImpl;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.StreamPersonsRequest;
+import io.dropwizard.grpc.testing.PersonServiceGrpc;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.BaseValidator;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+
+/**
+ * Throughput of {@code PersonService} calls, with plain gRPC servers and channels or with the Dropwizard wrappers
+ * ({@link DropwizardServerBuilder} and {@link GrpcChannelFactory} or {@link MetricsClientInterceptor}), over the
+ * in-process transport or over Netty on the loopback interface.
+ * <p>
+ * Run with {@code ./gradlew jmh}, which reports the allocation rate per operation as well ({@code -prof gc}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PersonServiceBenchmark {
+    public enum Transport {
+        IN_PROCESS, NETTY
+    }
+
+    private static final String IN_PROCESS_NAME = "person-service-benchmark";
+    private static final GetPersonRequest GET_PERSON_REQUEST = GetPersonRequest.newBuilder().setName("blah").build();
+    private static final GetPersonListRequest GET_PERSON_LIST_REQUEST =
+            GetPersonListRequest.newBuilder().setName("blah").build();
+
+    @Param
+    public Transport transport;
+
+    @Param({"false", "true"})
+    public boolean dropwizard;
+
+    @Param({"10"})
+    public int streamSize;
+
+    private Server server;
+    private ManagedChannel channel;
+    private PersonServiceGrpc.PersonServiceBlockingStub client;
+    private StreamPersonsRequest streamPersonsRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Environment environment = new Environment("benchmark", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+
+        final ServerBuilder<?> serverBuilder = transport == Transport.IN_PROCESS
+                ? InProcessServerBuilder.forName(IN_PROCESS_NAME)
+                : NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0));
+        if (dropwizard) {
+            server = new DropwizardServerBuilder(environment, serverBuilder, Duration.seconds(5))
+                .addService(new PersonServiceGrpcImpl())
+                .build();
+        } else {
+            server = serverBuilder.addService(new PersonServiceGrpcImpl()).build();
+        }
+        server.start();
+
+        if (transport == Transport.IN_PROCESS) {
+            final InProcessChannelBuilder channelBuilder = InProcessChannelBuilder.forName(IN_PROCESS_NAME);
+            if (dropwizard) {
+                channelBuilder.intercept(new MetricsClientInterceptor(environment.metrics(), "benchmark"));
+            }
+            channel = channelBuilder.build();
+        } else if (dropwizard) {
+            final GrpcChannelFactory factory = new GrpcChannelFactory();
+            factory.setHostname("localhost");
+            factory.setPort(server.getPort());
+            channel = factory.build(environment, "benchmark");
+        } else {
+            channel = NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build();
+        }
+        client = PersonServiceGrpc.newBlockingStub(channel);
+        streamPersonsRequest = StreamPersonsRequest.newBuilder().setName("blah").setCount(streamSize).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public GetPersonResponse getPerson() {
+        return client.getPerson(GET_PERSON_REQUEST);
+    }
+
+    @Benchmark
+    public GetPersonListResponse getPersonList() {
+        return client.getPersonList(GET_PERSON_LIST_REQUEST);
+    }
+
+    @Benchmark
+    public void streamPersons(final Blackhole blackhole) {
+        final Iterator<GetPersonResponse> responses = client.streamPersons(streamPersonsRequest);
+        while (responses.hasNext()) {
+            blackhole.consume(responses.next());
+        }
+    }
+}
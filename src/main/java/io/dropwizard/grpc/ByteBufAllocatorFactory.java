@@ -0,0 +1,325 @@
+package io.dropwizard.grpc;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Size;
+import io.dropwizard.validation.ValidationMethod;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * A factory for the netty {@link ByteBufAllocator} which allocates the buffers of the connections of a gRPC server or
+ * channel, including the buffers of all messages sent and received.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code type}</td>
+ * <td>default</td>
+ * <td>{@code default} uses netty's shared allocator, which is pooled unless the {@code io.netty.allocator.type}
+ * system property says otherwise. {@code pooled} creates a pooled allocator with the settings below, which is not
+ * shared with other servers, channels or libraries. {@code unpooled} allocates a new buffer each time.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code preferDirect}</td>
+ * <td>(netty default, true if direct buffers can be freed without the garbage collector)</td>
+ * <td>Whether buffers are allocated from direct memory rather than from the heap. Only for {@code pooled} and
+ * {@code unpooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code heapArenas}</td>
+ * <td>(netty default, twice the number of available processors)</td>
+ * <td>Number of arenas the heap buffers are pooled in, 0 allocates heap buffers unpooled. Threads are spread across
+ * the arenas, so fewer arenas mean more contention but less memory held. Only for {@code pooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code directArenas}</td>
+ * <td>(netty default, twice the number of available processors)</td>
+ * <td>Number of arenas the direct buffers are pooled in, 0 allocates direct buffers unpooled. Only for
+ * {@code pooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code pageSize}</td>
+ * <td>(netty default, 8 KiB)</td>
+ * <td>Size of the pages buffers are allocated in, a power of two of at least 4 KiB. Only for {@code pooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxOrder}</td>
+ * <td>(netty default, 11)</td>
+ * <td>Arenas allocate memory in chunks of {@code pageSize << maxOrder} bytes (16 MiB by default), buffers larger than
+ * a chunk are not pooled. Only for {@code pooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code useCacheForAllThreads}</td>
+ * <td>(netty default, true)</td>
+ * <td>Whether all threads cache recently released buffers, otherwise only netty's event loop threads do. Only for
+ * {@code pooled}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code leakDetection}</td>
+ * <td>(netty default, simple)</td>
+ * <td>Level of netty's detection of buffers which are garbage collected without having been released:
+ * {@code disabled}, {@code simple}, {@code advanced} or {@code paranoid}. Leaks are logged by the
+ * {@code io.netty.util.ResourceLeakDetector} logger. The level applies to the whole JVM.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * {@link #registerMetrics(MetricRegistry, String)} registers the following gauges: {@code usedHeapMemory} and
+ * {@code usedDirectMemory} (bytes held by the allocator, for a pooled allocator including the free memory of its
+ * arenas), {@code maxDirectMemory} (the direct memory limit netty enforces) and, for a {@code pooled} allocator,
+ * {@code activeHeapBytes} and {@code activeDirectBytes} (bytes of the buffers in use), {@code threadLocalCaches}
+ * (number of thread-local caches) and {@code arenaAllocationRatio} (allocations of the arenas per buffer requested
+ * from the allocator). The arenas allocate the buffers the thread-local caches cannot serve, so a low ratio means the
+ * caches are effective, but the ratio is only approximate: the arenas also count the reallocations of growing buffers
+ * and the components of composite buffers, which are not requested from the allocator, so it can exceed 1. Only a
+ * {@code pooled} allocator counts the requested buffers. netty's shared allocator of the {@code default} type serves
+ * every netty user of the JVM, so its {@code usedHeapMemory} and {@code usedDirectMemory} are JVM-wide, and it has
+ * none of the gauges of a {@code pooled} allocator, which would mix the allocations of the server or channel with all
+ * others.
+ */
+public class ByteBufAllocatorFactory {
+    public enum Type {
+        DEFAULT, POOLED, UNPOOLED
+    }
+
+    @NotNull
+    private Type type = Type.DEFAULT;
+
+    @Nullable
+    private Boolean preferDirect;
+
+    @Nullable
+    @Min(0)
+    private Integer heapArenas;
+
+    @Nullable
+    @Min(0)
+    private Integer directArenas;
+
+    @Nullable
+    private Size pageSize;
+
+    @Nullable
+    @Min(0)
+    @Max(14)
+    private Integer maxOrder;
+
+    @Nullable
+    private Boolean useCacheForAllThreads;
+
+    @Nullable
+    private ResourceLeakDetector.Level leakDetection;
+
+    private ByteBufAllocator allocator;
+
+    @JsonProperty
+    public Type getType() {
+        return type;
+    }
+
+    @JsonProperty
+    public void setType(final Type type) {
+        this.type = type;
+    }
+
+    @JsonProperty
+    public Boolean getPreferDirect() {
+        return preferDirect;
+    }
+
+    @JsonProperty
+    public void setPreferDirect(final Boolean preferDirect) {
+        this.preferDirect = preferDirect;
+    }
+
+    @JsonProperty
+    public Integer getHeapArenas() {
+        return heapArenas;
+    }
+
+    @JsonProperty
+    public void setHeapArenas(final Integer heapArenas) {
+        this.heapArenas = heapArenas;
+    }
+
+    @JsonProperty
+    public Integer getDirectArenas() {
+        return directArenas;
+    }
+
+    @JsonProperty
+    public void setDirectArenas(final Integer directArenas) {
+        this.directArenas = directArenas;
+    }
+
+    @JsonProperty
+    public Size getPageSize() {
+        return pageSize;
+    }
+
+    @JsonProperty
+    public void setPageSize(final Size pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    @JsonProperty
+    public Integer getMaxOrder() {
+        return maxOrder;
+    }
+
+    @JsonProperty
+    public void setMaxOrder(final Integer maxOrder) {
+        this.maxOrder = maxOrder;
+    }
+
+    @JsonProperty
+    public Boolean getUseCacheForAllThreads() {
+        return useCacheForAllThreads;
+    }
+
+    @JsonProperty
+    public void setUseCacheForAllThreads(final Boolean useCacheForAllThreads) {
+        this.useCacheForAllThreads = useCacheForAllThreads;
+    }
+
+    @JsonProperty
+    public ResourceLeakDetector.Level getLeakDetection() {
+        return leakDetection;
+    }
+
+    @JsonProperty
+    public void setLeakDetection(final ResourceLeakDetector.Level leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+
+    @ValidationMethod(message = "preferDirect requires a pooled or unpooled allocator")
+    public boolean isValidPreferDirect() {
+        return preferDirect == null || type != Type.DEFAULT;
+    }
+
+    @ValidationMethod(message = "heapArenas, directArenas, pageSize, maxOrder and useCacheForAllThreads require a "
+            + "pooled allocator")
+    public boolean isValidPoolSettings() {
+        return type == Type.POOLED || (heapArenas == null && directArenas == null && pageSize == null
+            && maxOrder == null && useCacheForAllThreads == null);
+    }
+
+    @ValidationMethod(message = "pageSize must be a power of two of at least 4 KiB, and pageSize << maxOrder at most "
+            + "1 GiB")
+    public boolean isValidPageSize() {
+        final long pageBytes = pageSize == null ? PooledByteBufAllocator.defaultPageSize() : pageSize.toBytes();
+        final int order = maxOrder == null ? PooledByteBufAllocator.defaultMaxOrder() : maxOrder;
+        return pageBytes >= 4096 && Long.bitCount(pageBytes) == 1 && pageBytes << order <= 1L << 30;
+    }
+
+    /**
+     * Creates the allocator when it is called for the first time and sets the leak detection level if configured. A
+     * {@code pooled} allocator counts the requested buffers for the {@code arenaAllocationRatio} gauge.
+     *
+     * @return the allocator, the same instance on each call
+     */
+    public synchronized ByteBufAllocator getAllocator() {
+        if (allocator == null) {
+            if (leakDetection != null) {
+                ResourceLeakDetector.setLevel(leakDetection);
+            }
+            final ByteBufAllocator built = buildAllocator();
+            allocator = type == Type.POOLED ? new InstrumentedByteBufAllocator(built) : built;
+        }
+        return allocator;
+    }
+
+    private ByteBufAllocator buildAllocator() {
+        final boolean direct = preferDirect == null ? PlatformDependent.directBufferPreferred() : preferDirect;
+        switch (type) {
+            case POOLED:
+                return new PooledByteBufAllocator(direct,
+                    heapArenas == null ? PooledByteBufAllocator.defaultNumHeapArena() : heapArenas,
+                    directArenas == null ? PooledByteBufAllocator.defaultNumDirectArena() : directArenas,
+                    pageSize == null ? PooledByteBufAllocator.defaultPageSize() : (int) pageSize.toBytes(),
+                    maxOrder == null ? PooledByteBufAllocator.defaultMaxOrder() : maxOrder,
+                    PooledByteBufAllocator.defaultTinyCacheSize(), PooledByteBufAllocator.defaultSmallCacheSize(),
+                    PooledByteBufAllocator.defaultNormalCacheSize(), useCacheForAllThreads == null
+                            ? PooledByteBufAllocator.defaultUseCacheForAllThreads() : useCacheForAllThreads);
+            case UNPOOLED:
+                return new UnpooledByteBufAllocator(direct);
+            default:
+                return ByteBufAllocator.DEFAULT;
+        }
+    }
+
+    /**
+     * Registers gauges of the memory held by the allocator, see the class documentation.
+     *
+     * @param metrics to register the gauges in
+     * @param prefix of the metric names, e.g. {@code grpc.server.allocator}
+     */
+    public void registerMetrics(final MetricRegistry metrics, final String prefix) {
+        final ByteBufAllocator allocator = getAllocator();
+        final ByteBufAllocator delegate = allocator instanceof InstrumentedByteBufAllocator
+                ? ((InstrumentedByteBufAllocator) allocator).getDelegate() : allocator;
+        if (delegate instanceof ByteBufAllocatorMetricProvider) {
+            final ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) delegate).metric();
+            metrics.register(MetricRegistry.name(prefix, "usedHeapMemory"), (Gauge<Long>) metric::usedHeapMemory);
+            metrics.register(MetricRegistry.name(prefix, "usedDirectMemory"), (Gauge<Long>) metric::usedDirectMemory);
+        }
+        metrics.register(MetricRegistry.name(prefix, "maxDirectMemory"),
+            (Gauge<Long>) PlatformDependent::maxDirectMemory);
+        // the arenas of the shared allocator count the allocations of all netty users of the JVM
+        if (type != Type.POOLED || !(delegate instanceof PooledByteBufAllocator)) {
+            return;
+        }
+        final InstrumentedByteBufAllocator instrumented = (InstrumentedByteBufAllocator) allocator;
+        final PooledByteBufAllocator pooled = (PooledByteBufAllocator) delegate;
+        metrics.register(MetricRegistry.name(prefix, "activeHeapBytes"),
+            (Gauge<Long>) () -> activeBytes(pooled.metric().heapArenas()));
+        metrics.register(MetricRegistry.name(prefix, "activeDirectBytes"),
+            (Gauge<Long>) () -> activeBytes(pooled.metric().directArenas()));
+        metrics.register(MetricRegistry.name(prefix, "threadLocalCaches"),
+            (Gauge<Integer>) () -> pooled.metric().numThreadLocalCaches());
+        metrics.register(MetricRegistry.name(prefix, "arenaAllocationRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(allocations(pooled.metric().heapArenas()) + allocations(pooled.metric().directArenas()),
+                    instrumented.getAllocations());
+            }
+        });
+    }
+
+    private static long activeBytes(final List<PoolArenaMetric> arenas) {
+        long bytes = 0;
+        for (final PoolArenaMetric arena : arenas) {
+            bytes += arena.numActiveBytes();
+        }
+        return bytes;
+    }
+
+    private static long allocations(final List<PoolArenaMetric> arenas) {
+        long allocations = 0;
+        for (final PoolArenaMetric arena : arenas) {
+            allocations += arena.numAllocations();
+        }
+        return allocations;
+    }
+}
@@ -0,0 +1,156 @@
+package io.dropwizard.grpc;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+
+/**
+ * {@link ByteBufAllocator} which counts the buffers requested from another allocator, so that the allocations of the
+ * arenas of a pooled allocator can be related to the buffers requested from it.
+ */
+final class InstrumentedByteBufAllocator implements ByteBufAllocator {
+    private final ByteBufAllocator delegate;
+    private final LongAdder allocations = new LongAdder();
+
+    /**
+     * @param delegate allocator which allocates the buffers
+     */
+    InstrumentedByteBufAllocator(final ByteBufAllocator delegate) {
+        this.delegate = checkNotNull(delegate, "delegate");
+    }
+
+    /**
+     * @return the allocator which allocates the buffers
+     */
+    ByteBufAllocator getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the number of buffers requested, not including composite buffers
+     */
+    long getAllocations() {
+        return allocations.sum();
+    }
+
+    @Override
+    public ByteBuf buffer() {
+        allocations.increment();
+        return delegate.buffer();
+    }
+
+    @Override
+    public ByteBuf buffer(final int initialCapacity) {
+        allocations.increment();
+        return delegate.buffer(initialCapacity);
+    }
+
+    @Override
+    public ByteBuf buffer(final int initialCapacity, final int maxCapacity) {
+        allocations.increment();
+        return delegate.buffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf ioBuffer() {
+        allocations.increment();
+        return delegate.ioBuffer();
+    }
+
+    @Override
+    public ByteBuf ioBuffer(final int initialCapacity) {
+        allocations.increment();
+        return delegate.ioBuffer(initialCapacity);
+    }
+
+    @Override
+    public ByteBuf ioBuffer(final int initialCapacity, final int maxCapacity) {
+        allocations.increment();
+        return delegate.ioBuffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf heapBuffer() {
+        allocations.increment();
+        return delegate.heapBuffer();
+    }
+
+    @Override
+    public ByteBuf heapBuffer(final int initialCapacity) {
+        allocations.increment();
+        return delegate.heapBuffer(initialCapacity);
+    }
+
+    @Override
+    public ByteBuf heapBuffer(final int initialCapacity, final int maxCapacity) {
+        allocations.increment();
+        return delegate.heapBuffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf directBuffer() {
+        allocations.increment();
+        return delegate.directBuffer();
+    }
+
+    @Override
+    public ByteBuf directBuffer(final int initialCapacity) {
+        allocations.increment();
+        return delegate.directBuffer(initialCapacity);
+    }
+
+    @Override
+    public ByteBuf directBuffer(final int initialCapacity, final int maxCapacity) {
+        allocations.increment();
+        return delegate.directBuffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer() {
+        return delegate.compositeBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer(final int maxNumComponents) {
+        return delegate.compositeBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer() {
+        return delegate.compositeHeapBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer(final int maxNumComponents) {
+        return delegate.compositeHeapBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer() {
+        return delegate.compositeDirectBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer(final int maxNumComponents) {
+        return delegate.compositeDirectBuffer(maxNumComponents);
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return delegate.isDirectBufferPooled();
+    }
+
+    @Override
+    public int calculateNewCapacity(final int minNewCapacity, final int maxCapacity) {
+        return delegate.calculateNewCapacity(minNewCapacity, maxCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package io.dropwizard.grpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslProvider;
+
+/**
+ * Selects the netty TLS implementation of the TLS factories of servers and channels.
+ */
+public final class SslProviders {
+    private static final Logger log = LoggerFactory.getLogger(SslProviders.class);
+
+    private SslProviders() {
+    }
+
+    /**
+     * @param openSsl whether OpenSSL is configured
+     * @return OpenSSL if it is configured and available with ALPN support, which gRPC requires, otherwise the JDK
+     *         implementation
+     */
+    public static SslProvider select(final boolean openSsl) {
+        if (openSsl) {
+            if (OpenSsl.isAlpnSupported()) {
+                return SslProvider.OPENSSL;
+            }
+            log.warn("OpenSSL with ALPN support is not available, using the JDK TLS provider instead",
+                OpenSsl.unavailabilityCause());
+        }
+        return SslProvider.JDK;
+    }
+}
@@ -0,0 +1,114 @@
+package io.dropwizard.grpc;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.lite.ProtoLiteUtils;
+
+/**
+ * Protobuf marshaller for messages with large {@code bytes} fields, which avoids the copies of the default marshaller.
+ * <p>
+ * Messages received by gRPC know their length. They are read into a single array of exactly that length and parsed
+ * with aliasing enabled, so {@code bytes} fields of the parsed message are {@link com.google.protobuf.ByteString}s
+ * backed by that array instead of copies. The default marshaller copies messages of up to 4 MiB into a thread-local
+ * buffer and copies each {@code bytes} field out of it again, and reads larger messages in chunks from which each
+ * {@code bytes} field is assembled, which allocates every field twice. Other streams, e.g. of messages passed
+ * in-process, are parsed by the default marshaller.
+ * <p>
+ * Messages are sent like the default marshaller does, by writing them directly to the buffers of the transport. To
+ * send large {@code bytes} fields without copying them, build them with
+ * {@link com.google.protobuf.UnsafeByteOperations#unsafeWrap(byte[])} instead of
+ * {@link com.google.protobuf.ByteString#copyFrom(byte[])}.
+ * <p>
+ * Since the {@code bytes} fields of a parsed message share the array of the whole message, retaining such a field
+ * retains the whole message.
+ *
+ * @param <T> type of the messages
+ */
+public final class ZeroCopyProtoMarshaller<T extends MessageLite> implements MethodDescriptor.PrototypeMarshaller<T> {
+    private final MethodDescriptor.PrototypeMarshaller<T> delegate;
+    private final Parser<T> parser;
+
+    @SuppressWarnings("unchecked")
+    public ZeroCopyProtoMarshaller(final T defaultInstance) {
+        this.delegate = (MethodDescriptor.PrototypeMarshaller<T>) ProtoLiteUtils
+            .marshaller(checkNotNull(defaultInstance, "defaultInstance"));
+        this.parser = (Parser<T>) defaultInstance.getParserForType();
+    }
+
+    /**
+     * @param method to rebind
+     * @return a copy of the given method with zero-copy marshallers for its protobuf requests and responses, or the
+     *         given method if it does not use protobuf marshallers
+     */
+    public static <ReqT, RespT> MethodDescriptor<ReqT, RespT> rebind(final MethodDescriptor<ReqT, RespT> method) {
+        final MethodDescriptor.Marshaller<ReqT> requestMarshaller = zeroCopy(method.getRequestMarshaller());
+        final MethodDescriptor.Marshaller<RespT> responseMarshaller = zeroCopy(method.getResponseMarshaller());
+        if (requestMarshaller == method.getRequestMarshaller()
+                && responseMarshaller == method.getResponseMarshaller()) {
+            return method;
+        }
+        return method.toBuilder(requestMarshaller, responseMarshaller).build();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> MethodDescriptor.Marshaller<T> zeroCopy(final MethodDescriptor.Marshaller<T> marshaller) {
+        if (marshaller instanceof ZeroCopyProtoMarshaller
+                || !(marshaller instanceof MethodDescriptor.PrototypeMarshaller)) {
+            return marshaller;
+        }
+        final T prototype = ((MethodDescriptor.PrototypeMarshaller<T>) marshaller).getMessagePrototype();
+        return prototype instanceof MessageLite ? new ZeroCopyProtoMarshaller((MessageLite) prototype) : marshaller;
+    }
+
+    @Override
+    public T getMessagePrototype() {
+        return delegate.getMessagePrototype();
+    }
+
+    @Override
+    public Class<T> getMessageClass() {
+        return delegate.getMessageClass();
+    }
+
+    @Override
+    public InputStream stream(final T value) {
+        return delegate.stream(value);
+    }
+
+    @Override
+    public T parse(final InputStream stream) {
+        if (!(stream instanceof KnownLength) || stream instanceof Drainable) {
+            // the default marshaller returns messages passed in-process without parsing them
+            return delegate.parse(stream);
+        }
+        try {
+            final byte[] bytes = new byte[stream.available()];
+            ByteStreams.readFully(stream, bytes);
+            final CodedInputStream input = CodedInputStream.newInstance(bytes);
+            input.enableAliasing(true);
+            // the size of messages is limited by the transport
+            input.setSizeLimit(Integer.MAX_VALUE);
+            final T message = parser.parseFrom(input, ExtensionRegistryLite.getEmptyRegistry());
+            input.checkLastTagWas(0);
+            return message;
+        } catch (final InvalidProtocolBufferException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence").withCause(e).asRuntimeException();
+        } catch (final IOException e) {
+            throw Status.INTERNAL.withDescription("Failed to read message").withCause(e).asRuntimeException();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.dropwizard.grpc.client;
+
+import java.util.List;
+
+import io.grpc.StatusException;
+
+/**
+ * Maps the requests of individual calls to the request of a batch method, and the response of the batch method back
+ * to the responses of the individual calls, see {@link BatchingClient}.
+ *
+ * @param <ItemReqT> type of the requests of individual calls
+ * @param <ItemRespT> type of the responses of individual calls
+ * @param <BatchReqT> type of the requests of the batch method
+ * @param <BatchRespT> type of the responses of the batch method
+ */
+public interface BatchCodec<ItemReqT, ItemRespT, BatchReqT, BatchRespT> {
+    /**
+     * @param requests of the individual calls, in the order in which they were made
+     * @return the request of the batch method
+     */
+    BatchReqT batchRequest(List<ItemReqT> requests);
+
+    /**
+     * @param response of the batch method
+     * @param index of the individual call in the list passed to {@link #batchRequest(List)}
+     * @return the response of the individual call
+     * @throws StatusException if the individual call failed, which fails only the future of this call
+     */
+    ItemRespT itemResponse(BatchRespT response, int index) throws StatusException;
+}
@@ -0,0 +1,238 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Histogram;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import io.dropwizard.lifecycle.Managed;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.Context;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+
+/**
+ * Gathers individual unary calls and sends them as a single call of a batch method, so that many small calls to the
+ * same server share the framing and header overhead of one call.
+ * <p>
+ * Calls are gathered until {@code maxBatchSize} calls are pending or the first pending call has waited for
+ * {@code maxLinger}, whichever happens first. The {@link BatchCodec} builds the request of the batch method and splits
+ * its response into the responses of the individual calls. If the batch call fails, all its individual calls fail
+ * with its status; otherwise each individual call fails with the status of its own error, if any. Batch calls are
+ * sent in the root {@link Context}, so the deadline and cancellation of the individual callers do not apply to them;
+ * instead, each batch call has a deadline of {@code batchTimeout}.
+ * <p>
+ * Instances are created via {@link BatchingClientFactory}. Pending calls are sent when the client is stopped, calls
+ * made afterwards fail with {@code UNAVAILABLE}.
+ *
+ * @param <ItemReqT> type of the requests of individual calls
+ * @param <ItemRespT> type of the responses of individual calls
+ * @param <BatchReqT> type of the requests of the batch method
+ * @param <BatchRespT> type of the responses of the batch method
+ */
+public final class BatchingClient<ItemReqT, ItemRespT, BatchReqT, BatchRespT> implements Managed {
+    private final Channel channel;
+    private final MethodDescriptor<BatchReqT, BatchRespT> method;
+    private final BatchCodec<ItemReqT, ItemRespT, BatchReqT, BatchRespT> codec;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final long batchTimeoutNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Histogram batchSize;
+    private final Histogram linger;
+    // guarded by this
+    private List<PendingCall<ItemReqT, ItemRespT>> pending;
+    // guarded by this
+    private long firstPendingNanos;
+    // guarded by this
+    @Nullable
+    private ScheduledFuture<?> lingerTimeout;
+    // guarded by this
+    private boolean stopped;
+
+    /**
+     * @param channel to send the batch calls on
+     * @param method the unary batch method
+     * @param codec which maps individual calls to batch calls
+     * @param maxBatchSize maximum number of individual calls per batch call
+     * @param maxLingerNanos how long an individual call waits for other calls at most
+     * @param batchTimeoutNanos the deadline of batch calls
+     * @param scheduler to send batches after {@code maxLingerNanos}
+     * @param batchSize histogram of the number of individual calls per batch call
+     * @param linger histogram of how long the first individual call of a batch call waited, in microseconds
+     */
+    BatchingClient(final Channel channel, final MethodDescriptor<BatchReqT, BatchRespT> method,
+            final BatchCodec<ItemReqT, ItemRespT, BatchReqT, BatchRespT> codec, final int maxBatchSize,
+            final long maxLingerNanos, final long batchTimeoutNanos, final ScheduledExecutorService scheduler,
+            final Histogram batchSize, final Histogram linger) {
+        checkArgument(method.getType() == MethodDescriptor.MethodType.UNARY, "The batch method must be unary");
+        checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        checkArgument(batchTimeoutNanos > 0, "batchTimeoutNanos must be positive");
+        this.channel = checkNotNull(channel, "channel");
+        this.method = method;
+        this.codec = checkNotNull(codec, "codec");
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLingerNanos;
+        this.batchTimeoutNanos = batchTimeoutNanos;
+        this.scheduler = checkNotNull(scheduler, "scheduler");
+        this.batchSize = checkNotNull(batchSize, "batchSize");
+        this.linger = checkNotNull(linger, "linger");
+        this.pending = new ArrayList<>(maxBatchSize);
+    }
+
+    /**
+     * Adds an individual call to the next batch call.
+     *
+     * @param request of the individual call
+     * @return the future response of the individual call, which fails with a {@link StatusRuntimeException}, with
+     *         {@code UNAVAILABLE} if the client has been stopped
+     */
+    public ListenableFuture<ItemRespT> call(final ItemReqT request) {
+        checkNotNull(request, "request");
+        final SettableFuture<ItemRespT> response = SettableFuture.create();
+        final List<PendingCall<ItemReqT, ItemRespT>> batch;
+        synchronized (this) {
+            if (stopped) {
+                return Futures.immediateFailedFuture(
+                    Status.UNAVAILABLE.withDescription("The batching client has been stopped").asRuntimeException());
+            }
+            if (pending.isEmpty()) {
+                try {
+                    lingerTimeout = scheduler.schedule(this::flush, maxLingerNanos, TimeUnit.NANOSECONDS);
+                } catch (final RejectedExecutionException e) {
+                    return Futures.immediateFailedFuture(Status.UNAVAILABLE
+                        .withDescription("The batching client has been stopped").withCause(e).asRuntimeException());
+                }
+                firstPendingNanos = System.nanoTime();
+            }
+            pending.add(new PendingCall<>(request, response));
+            batch = pending.size() >= maxBatchSize ? takePending() : null;
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        return response;
+    }
+
+    /**
+     * Sends the pending individual calls without waiting for further calls.
+     */
+    public void flush() {
+        final List<PendingCall<ItemReqT, ItemRespT>> batch;
+        synchronized (this) {
+            batch = pending.isEmpty() ? null : takePending();
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        // calls are gathered as soon as the client has been created
+    }
+
+    @Override
+    public void stop() throws Exception {
+        synchronized (this) {
+            stopped = true;
+        }
+        flush();
+    }
+
+    // called with the lock held
+    private List<PendingCall<ItemReqT, ItemRespT>> takePending() {
+        final List<PendingCall<ItemReqT, ItemRespT>> batch = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        if (lingerTimeout != null) {
+            lingerTimeout.cancel(false);
+            lingerTimeout = null;
+        }
+        batchSize.update(batch.size());
+        linger.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - firstPendingNanos));
+        return batch;
+    }
+
+    private void send(final List<PendingCall<ItemReqT, ItemRespT>> batch) {
+        final BatchReqT request;
+        try {
+            final List<ItemReqT> requests = new ArrayList<>(batch.size());
+            for (final PendingCall<ItemReqT, ItemRespT> call : batch) {
+                requests.add(call.request);
+            }
+            request = codec.batchRequest(requests);
+        } catch (final RuntimeException e) {
+            failAll(batch, Status.INTERNAL.withDescription("Failed to build the batch request").withCause(e)
+                .asRuntimeException());
+            return;
+        }
+        final ListenableFuture<BatchRespT> batchResponse;
+        // the batch call serves many callers, so it must not inherit the deadline or cancellation of the one which
+        // happens to fill the batch, and has a deadline of its own instead
+        final Context previous = Context.ROOT.attach();
+        try {
+            batchResponse = ClientCalls.futureUnaryCall(channel.newCall(method,
+                CallOptions.DEFAULT.withDeadlineAfter(batchTimeoutNanos, TimeUnit.NANOSECONDS)), request);
+        } finally {
+            Context.ROOT.detach(previous);
+        }
+        Futures.addCallback(batchResponse,
+            new FutureCallback<BatchRespT>() {
+                @Override
+                public void onSuccess(final BatchRespT response) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        final SettableFuture<ItemRespT> future = batch.get(i).response;
+                        try {
+                            future.set(codec.itemResponse(response, i));
+                        } catch (final StatusException e) {
+                            future.setException(new StatusRuntimeException(e.getStatus(), e.getTrailers()));
+                        } catch (final RuntimeException e) {
+                            future.setException(Status.INTERNAL
+                                .withDescription("Failed to split the batch response").withCause(e)
+                                .asRuntimeException());
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(final Throwable t) {
+                    failAll(batch, t);
+                }
+            }, MoreExecutors.directExecutor());
+    }
+
+    private static <ItemReqT, ItemRespT> void failAll(final List<PendingCall<ItemReqT, ItemRespT>> batch,
+            final Throwable t) {
+        for (final PendingCall<ItemReqT, ItemRespT> call : batch) {
+            call.response.setException(t);
+        }
+    }
+
+    private static final class PendingCall<ItemReqT, ItemRespT> {
+        private final ItemReqT request;
+        private final SettableFuture<ItemRespT> response;
+
+        PendingCall(final ItemReqT request, final SettableFuture<ItemRespT> response) {
+            this.request = request;
+            this.response = response;
+        }
+    }
+}
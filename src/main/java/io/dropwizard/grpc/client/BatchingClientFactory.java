@@ -0,0 +1,119 @@
+package io.dropwizard.grpc.client;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+
+/**
+ * A factory for {@link BatchingClient}s, which send individual unary calls as a single call of a batch method.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxBatchSize}</td>
+ * <td>100</td>
+ * <td>The maximum number of individual calls per batch call. A batch call is sent as soon as this many calls are
+ * pending.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxLinger}</td>
+ * <td>5 milliseconds</td>
+ * <td>How long an individual call waits for further calls at most before the pending calls are sent.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code batchTimeout}</td>
+ * <td>10 seconds</td>
+ * <td>The deadline of batch calls. Batch calls do not inherit the deadlines of the individual callers, so this bounds
+ * how long the individual calls of a batch call wait for the server.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * Each client registers the histograms {@code batch.size} (individual calls per batch call) and {@code batch.linger}
+ * (how long the first individual call of a batch call waited, in microseconds), prefixed with
+ * {@code grpc.client.<channel name>.<full service name>.<method name>} of the batch method.
+ */
+public class BatchingClientFactory {
+    @Min(1)
+    private int maxBatchSize = 100;
+
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration maxLinger = Duration.milliseconds(5);
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration batchTimeout = Duration.seconds(10);
+
+    @JsonProperty
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @JsonProperty
+    public void setMaxBatchSize(final int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @JsonProperty
+    public Duration getMaxLinger() {
+        return maxLinger;
+    }
+
+    @JsonProperty
+    public void setMaxLinger(final Duration maxLinger) {
+        this.maxLinger = maxLinger;
+    }
+
+    @JsonProperty
+    public Duration getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    @JsonProperty
+    public void setBatchTimeout(final Duration batchTimeout) {
+        this.batchTimeout = batchTimeout;
+    }
+
+    /**
+     * @param environment to register the metrics of the client in, the client is lifecycle-managed in it
+     * @param name of the channel, e.g. as passed to {@link GrpcChannelFactory#build(Environment, String)}
+     * @param channel to send the batch calls on
+     * @param method the unary batch method
+     * @param codec which maps individual calls to batch calls
+     * @return a new batching client
+     */
+    public <ItemReqT, ItemRespT, BatchReqT, BatchRespT> BatchingClient<ItemReqT, ItemRespT, BatchReqT, BatchRespT>
+            build(final Environment environment, final String name, final Channel channel,
+                    final MethodDescriptor<BatchReqT, BatchRespT> method,
+                    final BatchCodec<ItemReqT, ItemRespT, BatchReqT, BatchRespT> codec) {
+        final String fullMethodName = method.getFullMethodName();
+        final String prefix = MetricRegistry.name("grpc.client", name,
+            MethodDescriptor.extractFullServiceName(fullMethodName),
+            fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1), "batch");
+        final ScheduledExecutorService scheduler = environment.lifecycle()
+            .scheduledExecutorService("grpc-batching-" + name + "-%d", true).build();
+        final BatchingClient<ItemReqT, ItemRespT, BatchReqT, BatchRespT> client = new BatchingClient<>(channel, method,
+            codec, maxBatchSize, maxLinger.toNanoseconds(), batchTimeout.toNanoseconds(), scheduler,
+            environment.metrics().histogram(MetricRegistry.name(prefix, "size")),
+            environment.metrics().histogram(MetricRegistry.name(prefix, "linger")));
+        // managed objects are stopped in reverse order, so pending calls are sent before the scheduler is shut down
+        environment.lifecycle().manage(client);
+        return client;
+    }
+}
@@ -0,0 +1,269 @@
+package io.dropwizard.grpc.client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.grpc.SslProviders;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import io.grpc.netty.GrpcSslContexts;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+
+/**
+ * A factory for the client-side transport security of channels created by {@link GrpcChannelFactory}.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code trustCertCollectionFile}</td>
+ * <td>(none)</td>
+ * <td>The trusted certificates to verify the server certificate with. If not set, the trust store of the JVM is
+ * used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code keyCertChainFile}</td>
+ * <td>(none)</td>
+ * <td>The client certificate chain file for mutual TLS. Requires {@code privateKeyFile}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code privateKeyFile}</td>
+ * <td>(none)</td>
+ * <td>The client private key file (PKCS#8) for mutual TLS. Requires {@code keyCertChainFile}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code provider}</td>
+ * <td>openssl</td>
+ * <td>The TLS implementation, {@code openssl} uses netty-tcnative (OpenSSL or BoringSSL) and {@code jdk} uses the
+ * JDK. If {@code openssl} is not available on the classpath, {@code jdk} is used instead.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code ciphers}</td>
+ * <td>(none)</td>
+ * <td>The enabled cipher suites. If not set, the HTTP/2 compliant cipher suites recommended by gRPC are used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code protocols}</td>
+ * <td>(none)</td>
+ * <td>The enabled protocol versions, e.g. {@code TLSv1.2}. If not set, the provider's defaults are used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code sessionCacheSize}</td>
+ * <td>0</td>
+ * <td>The maximum number of cached TLS sessions, 0 uses the provider's default.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code sessionTimeout}</td>
+ * <td>(none)</td>
+ * <td>How long cached TLS sessions can be resumed. If not set, the provider's default is used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code authorityOverride}</td>
+ * <td>(none)</td>
+ * <td>The authority to verify the server certificate against instead of the configured hostname.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * The {@link SslContext} is created once per factory and shared by all channels built from it, including all channels
+ * of a pool. Its session cache therefore lets reconnecting channels resume TLS sessions with an abbreviated handshake.
+ */
+public class ClientTlsFactory {
+    /**
+     * TLS implementations.
+     */
+    public enum Provider {
+        OPENSSL, JDK
+    }
+
+    @Nullable
+    private Path trustCertCollectionFile;
+
+    @Nullable
+    private Path keyCertChainFile;
+
+    @Nullable
+    private Path privateKeyFile;
+
+    @NotNull
+    private Provider provider = Provider.OPENSSL;
+
+    @Nullable
+    private List<String> ciphers;
+
+    @Nullable
+    private List<String> protocols;
+
+    @Min(0)
+    private long sessionCacheSize;
+
+    @Nullable
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    private Duration sessionTimeout;
+
+    @Nullable
+    private String authorityOverride;
+
+    @Nullable
+    private SslContext sslContext;
+
+    @JsonProperty
+    public Path getTrustCertCollectionFile() {
+        return trustCertCollectionFile;
+    }
+
+    @JsonProperty
+    public void setTrustCertCollectionFile(final Path trustCertCollectionFile) {
+        this.trustCertCollectionFile = trustCertCollectionFile;
+    }
+
+    @JsonProperty
+    public Path getKeyCertChainFile() {
+        return keyCertChainFile;
+    }
+
+    @JsonProperty
+    public void setKeyCertChainFile(final Path keyCertChainFile) {
+        this.keyCertChainFile = keyCertChainFile;
+    }
+
+    @JsonProperty
+    public Path getPrivateKeyFile() {
+        return privateKeyFile;
+    }
+
+    @JsonProperty
+    public void setPrivateKeyFile(final Path privateKeyFile) {
+        this.privateKeyFile = privateKeyFile;
+    }
+
+    @JsonProperty
+    public Provider getProvider() {
+        return provider;
+    }
+
+    @JsonProperty
+    public void setProvider(final Provider provider) {
+        this.provider = provider;
+    }
+
+    @JsonProperty
+    public List<String> getCiphers() {
+        return ciphers;
+    }
+
+    @JsonProperty
+    public void setCiphers(final List<String> ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    @JsonProperty
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    @JsonProperty
+    public void setProtocols(final List<String> protocols) {
+        this.protocols = protocols;
+    }
+
+    @JsonProperty
+    public long getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    @JsonProperty
+    public void setSessionCacheSize(final long sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    @JsonProperty
+    public Duration getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    @JsonProperty
+    public void setSessionTimeout(final Duration sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    @JsonProperty
+    public String getAuthorityOverride() {
+        return authorityOverride;
+    }
+
+    @JsonProperty
+    public void setAuthorityOverride(final String authorityOverride) {
+        this.authorityOverride = authorityOverride;
+    }
+
+    @ValidationMethod(message = "trust cert collection file does not exist")
+    public boolean isValidTrustCertCollectionFile() {
+        return trustCertCollectionFile == null || Files.exists(trustCertCollectionFile);
+    }
+
+    @ValidationMethod(message = "key cert chain file does not exist")
+    public boolean isValidKeyCertChainFile() {
+        return keyCertChainFile == null || Files.exists(keyCertChainFile);
+    }
+
+    @ValidationMethod(message = "private key file does not exist")
+    public boolean isValidPrivateKeyFile() {
+        return privateKeyFile == null || Files.exists(privateKeyFile);
+    }
+
+    @ValidationMethod(message = "keyCertChainFile and privateKeyFile must be configured together")
+    public boolean isValidKeyPair() {
+        return (keyCertChainFile == null) == (privateKeyFile == null);
+    }
+
+    /**
+     * @return the {@link SslContext} for the configured settings, created on the first call and shared afterwards
+     * @throws SSLException if the certificates or the private key cannot be loaded
+     */
+    public synchronized SslContext getSslContext() throws SSLException {
+        if (sslContext == null) {
+            sslContext = buildSslContext();
+        }
+        return sslContext;
+    }
+
+    private SslContext buildSslContext() throws SSLException {
+        final SslContextBuilder builder =
+            GrpcSslContexts.configure(SslContextBuilder.forClient(), SslProviders.select(provider == Provider.OPENSSL));
+        if (trustCertCollectionFile != null) {
+            builder.trustManager(trustCertCollectionFile.toFile());
+        }
+        if (keyCertChainFile != null && privateKeyFile != null) {
+            builder.keyManager(keyCertChainFile.toFile(), privateKeyFile.toFile());
+        }
+        if (ciphers != null) {
+            builder.ciphers(ciphers, SupportedCipherSuiteFilter.INSTANCE);
+        }
+        if (protocols != null) {
+            builder.protocols(protocols.toArray(new String[0]));
+        }
+        if (sessionCacheSize > 0) {
+            builder.sessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout != null) {
+            builder.sessionTimeout(sessionTimeout.toSeconds());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,63 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import io.dropwizard.util.Duration;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+/**
+ * {@link ClientInterceptor} which sets a default deadline on calls without an explicit deadline, so that calls to an
+ * unresponsive server do not hold streams open forever.
+ * <p>
+ * The default deadline can be set per method or per service. gRPC still applies the deadline of the current
+ * {@link io.grpc.Context} if it is earlier, so a call made while serving another call never outlives the deadline of
+ * the incoming call.
+ */
+final class DeadlineClientInterceptor implements ClientInterceptor {
+    @Nullable
+    private final Duration defaultDeadline;
+    private final Map<String, Duration> methodDeadlines;
+
+    /**
+     * @param defaultDeadline deadline of calls to methods without an entry in {@code methodDeadlines}, or
+     *            {@code null} for no deadline
+     * @param methodDeadlines deadline by full method name ({@code <full service name>/<method name>}) or full service
+     *            name
+     */
+    DeadlineClientInterceptor(@Nullable final Duration defaultDeadline, final Map<String, Duration> methodDeadlines) {
+        this.defaultDeadline = defaultDeadline;
+        this.methodDeadlines = new HashMap<>(checkNotNull(methodDeadlines, "methodDeadlines"));
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions, final Channel next) {
+        if (callOptions.getDeadline() == null) {
+            final Duration deadline = deadline(method.getFullMethodName());
+            if (deadline != null) {
+                return next.newCall(method, callOptions.withDeadlineAfter(deadline.toNanoseconds(),
+                    TimeUnit.NANOSECONDS));
+            }
+        }
+        return next.newCall(method, callOptions);
+    }
+
+    @Nullable
+    private Duration deadline(final String fullMethodName) {
+        final Duration deadline = methodDeadlines.get(fullMethodName);
+        if (deadline != null) {
+            return deadline;
+        }
+        return methodDeadlines.getOrDefault(MethodDescriptor.extractFullServiceName(fullMethodName), defaultDeadline);
+    }
+}
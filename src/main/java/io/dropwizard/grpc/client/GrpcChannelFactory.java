@@ -1,21 +1,60 @@
 package io.dropwizard.grpc.client;
 
-import org.hibernate.validator.constraints.NotEmpty;
-
-import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
+import io.dropwizard.grpc.ByteBufAllocatorFactory;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
 import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import io.grpc.ClientInterceptor;
+import io.grpc.LoadBalancer;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.PickFirstBalancerFactory;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.InternalNettyChannelBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.util.RoundRobinLoadBalancerFactory;
+import io.netty.channel.ChannelOption;
 
 /**
  * A factory for building {@link ManagedChannel}s in dropwizard applications.
  * <p>
+ * Channels created via {@link #build(Environment, String)} collect metrics for all calls with a
+ * {@link MetricsClientInterceptor}, using the channel name as part of the metric names, and export the connectivity
+ * state of their subchannels, the connections to the resolved addresses, as gauges prefixed with
+ * {@code grpc.client.<channel name>.subchannels}: {@code ready}, {@code connecting}, {@code idle} and
+ * {@code transientFailure} count the subchannels in each state, {@code <address>.state} is the state of the
+ * subchannel of an address and is removed once the address is no longer resolved. In-process channels and channels
+ * to Unix domain sockets have no subchannel gauges. Channels with {@code retryPolicies} or
+ * {@code hedgingPolicies} register the meters {@code retries.attempts}/{@code retries.won} and
+ * {@code hedging.attempts}/{@code hedging.won}, see {@link RetryMetricsClientInterceptor} and
+ * {@link HedgingClientInterceptor}.
+ * <p>
  * <b>Configuration Parameters:</b>
  * <table summary="Configuration Parameters">
  * <tr>
@@ -26,34 +65,233 @@ import io.grpc.ManagedChannelBuilder;
  * <tr>
  * <td>{@code hostname}</td>
  * <td>(none)</td>
- * <td>Hostname of the gRPC server to connect to.</td>
+ * <td>Hostname of the gRPC server to connect to. Required unless {@code target}, {@code targets} or
+ * {@code inProcessName} is set.</td>
  * </tr>
  * <tr>
  * <td>{@code port}</td>
  * <td>-1</td>
- * <td>Port of the gRPC server to connect to.</td>
+ * <td>Port of the gRPC server to connect to. Required unless {@code target}, {@code targets} or {@code inProcessName}
+ * is set.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code target}</td>
+ * <td>(none)</td>
+ * <td>If set, the channel connects to this target instead of {@code hostname} and {@code port}: {@code unix:<path>}
+ * or {@code unix://<absolute path>} for a server listening on a Unix domain socket, which requires the native epoll
+ * transport ({@code io.netty:netty-transport-native-epoll} with the {@code linux-x86_64} classifier), or any target
+ * gRPC's name resolvers support, e.g. {@code dns:///<host>:<port>} to balance calls across all addresses of the
+ * host.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code targets}</td>
+ * <td>(empty)</td>
+ * <td>If set, the channel balances calls across the servers at these {@code <host>:<port>} addresses instead, which
+ * are resolved by a {@link StaticNameResolverFactory}. The calls' authority is the first address, set
+ * {@code tls.authorityOverride} if the servers' certificates do not match it.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code loadBalancingPolicy}</td>
+ * <td>pick_first</td>
+ * <td>How calls are balanced across the resolved addresses: {@code pick_first} sends all calls to the first address
+ * it can connect to, {@code round_robin} selects the addresses in turn and {@code least_request} selects the address
+ * with fewer calls in flight out of two random ones.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code dnsRefreshInterval}</td>
+ * <td>(none)</td>
+ * <td>If set, the addresses of {@code hostname}, {@code target} or the hosts of {@code targets} are resolved again at
+ * this interval.
+ * Otherwise they are only resolved again after a connection failed, so new servers are not picked up while the
+ * known ones stay healthy.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code inProcessName}</td>
+ * <td>(none)</td>
+ * <td>If set, the channel connects to the in-process server of that name in the same JVM instead, e.g. the one
+ * served by a {@link io.dropwizard.grpc.server.GrpcServerFactory} with the same {@code inProcessName}. The
+ * {@code tls} and {@code allocator} settings do not apply to in-process channels.</td>
  * </tr>
  * <tr>
  * <td>{@code shutdownPeriod}</td>
  * <td>5 seconds</td>
  * <td>How long to wait before giving up when the channel is shutdown.</td>
  * </tr>
+ * <tr>
+ * <td>{@code poolSize}</td>
+ * <td>1</td>
+ * <td>Number of channels, each with its own HTTP/2 connection, to spread calls across.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code poolStrategy}</td>
+ * <td>least_in_flight</td>
+ * <td>How calls are spread across a pool of channels: {@code least_in_flight} selects the channel with the least
+ * calls in flight, {@code round_robin} selects the channels in turn.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code tls}</td>
+ * <td>(none)</td>
+ * <td>Transport security settings, see {@link ClientTlsFactory}. If not set, the channel communicates in
+ * plaintext.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code allocator}</td>
+ * <td>(none)</td>
+ * <td>The allocator of the buffers of the connections, see {@link ByteBufAllocatorFactory}. If set, its memory usage
+ * is exposed as gauges prefixed with {@code grpc.client.<channel name>.allocator}, otherwise netty's default
+ * allocator is used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code defaultDeadline}</td>
+ * <td>(none)</td>
+ * <td>The deadline of calls without an explicit deadline. The deadline of the current {@link io.grpc.Context}, e.g.
+ * of the call being served, still applies if it is earlier.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code methodDeadlines}</td>
+ * <td>(empty)</td>
+ * <td>The {@code defaultDeadline} by full method name ({@code <full service name>/<method name>}) or full service
+ * name.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code retryPolicies}</td>
+ * <td>(empty)</td>
+ * <td>{@link RetryPolicyFactory Retry policies} by full method name ({@code <full service name>/<method name>}) or
+ * full service name. If set, retries are enabled and gRPC retries the calls as the channel's default service config
+ * says, unless the name resolver provides a service config. Not for in-process channels and {@code unix:}
+ * targets.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code retryThrottling}</td>
+ * <td>(none)</td>
+ * <td>Stops retries while many calls fail, see {@link RetryThrottlingFactory}. Requires {@code retryPolicies}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code retryBufferSize}</td>
+ * <td>16 MiB</td>
+ * <td>The maximum size of the requests the channel buffers for retries, calls are not retried beyond it.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code perCallRetryBufferLimit}</td>
+ * <td>1 MiB</td>
+ * <td>The maximum size of the requests buffered for retries of a single call.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code hedgingPolicies}</td>
+ * <td>(empty)</td>
+ * <td>{@link HedgingPolicyFactory Hedging policies} by full method name or full service name, applied to unary
+ * methods only. A method must not have both a retry and a hedging policy, whether by its own name or by the name of
+ * its service.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code zeroCopyMethods}</td>
+ * <td>(empty)</td>
+ * <td>Full method names or full service names of methods whose protobuf messages are parsed without copying their
+ * {@code bytes} fields, see {@link io.dropwizard.grpc.ZeroCopyProtoMarshaller}.</td>
+ * </tr>
  * </table>
  */
-// TODO NettyChannelBuilder with client-side TLS validation
-// TODO ClientInterceptor to collect dropwizard metrics
 // TODO ClientInterceptor to send rpc call and exception events to logback
 public class GrpcChannelFactory {
-    @NotEmpty
+    /**
+     * Policies to balance calls across the addresses a channel's target resolves to.
+     */
+    public enum LoadBalancingPolicy {
+        /**
+         * Sends all calls to the first address which can be connected to, gRPC's default.
+         */
+        PICK_FIRST,
+        /**
+         * Selects the addresses in round-robin order.
+         */
+        ROUND_ROBIN,
+        /**
+         * Selects the address with fewer calls in flight out of two random ones.
+         */
+        LEAST_REQUEST
+    }
+
+    /**
+     * Strategies to select the channel of a pool for a new call.
+     */
+    public enum PoolStrategy {
+        /**
+         * Selects the channel with the least calls in flight, ties are broken in round-robin order.
+         */
+        LEAST_IN_FLIGHT,
+        /**
+         * Selects the channels in round-robin order.
+         */
+        ROUND_ROBIN
+    }
+
+    @Nullable
     private String hostname;
 
-    @Min(1)
     @Max(65535)
     private int port = -1;
 
+    @Nullable
+    private String target;
+
+    @NotNull
+    private List<String> targets = Collections.emptyList();
+
+    @NotNull
+    private LoadBalancingPolicy loadBalancingPolicy = LoadBalancingPolicy.PICK_FIRST;
+
+    @Nullable
+    @MinDuration(1)
+    private Duration dnsRefreshInterval;
+
+    @Nullable
+    private String inProcessName;
+
     @MinDuration(1)
     private Duration shutdownPeriod = Duration.seconds(5);
 
+    @Min(1)
+    private int poolSize = 1;
+
+    @NotNull
+    private PoolStrategy poolStrategy = PoolStrategy.LEAST_IN_FLIGHT;
+
+    @Valid
+    @Nullable
+    private ClientTlsFactory tls;
+
+    @Valid
+    @Nullable
+    private ByteBufAllocatorFactory allocator;
+
+    @Nullable
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration defaultDeadline;
+
+    @NotNull
+    private Map<String, Duration> methodDeadlines = Collections.emptyMap();
+
+    @Valid
+    @NotNull
+    private Map<String, RetryPolicyFactory> retryPolicies = Collections.emptyMap();
+
+    @Valid
+    @Nullable
+    private RetryThrottlingFactory retryThrottling;
+
+    @NotNull
+    private Size retryBufferSize = Size.megabytes(16);
+
+    @NotNull
+    private Size perCallRetryBufferLimit = Size.megabytes(1);
+
+    @Valid
+    @NotNull
+    private Map<String, HedgingPolicyFactory> hedgingPolicies = Collections.emptyMap();
+
+    @NotNull
+    private Set<String> zeroCopyMethods = Collections.emptySet();
+
     @JsonProperty
     public String getHostname() {
         return hostname;
@@ -74,6 +312,56 @@ public class GrpcChannelFactory {
         this.port = port;
     }
 
+    @JsonProperty
+    public String getTarget() {
+        return target;
+    }
+
+    @JsonProperty
+    public void setTarget(final String target) {
+        this.target = target;
+    }
+
+    @JsonProperty
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    @JsonProperty
+    public void setTargets(final List<String> targets) {
+        this.targets = targets;
+    }
+
+    @JsonProperty
+    public LoadBalancingPolicy getLoadBalancingPolicy() {
+        return loadBalancingPolicy;
+    }
+
+    @JsonProperty
+    public void setLoadBalancingPolicy(final LoadBalancingPolicy loadBalancingPolicy) {
+        this.loadBalancingPolicy = loadBalancingPolicy;
+    }
+
+    @JsonProperty
+    public Duration getDnsRefreshInterval() {
+        return dnsRefreshInterval;
+    }
+
+    @JsonProperty
+    public void setDnsRefreshInterval(final Duration dnsRefreshInterval) {
+        this.dnsRefreshInterval = dnsRefreshInterval;
+    }
+
+    @JsonProperty
+    public String getInProcessName() {
+        return inProcessName;
+    }
+
+    @JsonProperty
+    public void setInProcessName(final String inProcessName) {
+        this.inProcessName = inProcessName;
+    }
+
     @JsonProperty
     public Duration getShutdownPeriod() {
         return shutdownPeriod;
@@ -84,23 +372,384 @@ public class GrpcChannelFactory {
         this.shutdownPeriod = duration;
     }
 
+    @JsonProperty
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @JsonProperty
+    public void setPoolSize(final int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    @JsonProperty
+    public PoolStrategy getPoolStrategy() {
+        return poolStrategy;
+    }
+
+    @JsonProperty
+    public void setPoolStrategy(final PoolStrategy poolStrategy) {
+        this.poolStrategy = poolStrategy;
+    }
+
+    @JsonProperty
+    public ClientTlsFactory getTls() {
+        return tls;
+    }
+
+    @JsonProperty
+    public void setTls(final ClientTlsFactory tls) {
+        this.tls = tls;
+    }
+
+    @JsonProperty
+    public ByteBufAllocatorFactory getAllocator() {
+        return allocator;
+    }
+
+    @JsonProperty
+    public void setAllocator(final ByteBufAllocatorFactory allocator) {
+        this.allocator = allocator;
+    }
+
+    @JsonProperty
+    public Duration getDefaultDeadline() {
+        return defaultDeadline;
+    }
+
+    @JsonProperty
+    public void setDefaultDeadline(final Duration defaultDeadline) {
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    @JsonProperty
+    public Map<String, Duration> getMethodDeadlines() {
+        return methodDeadlines;
+    }
+
+    @JsonProperty
+    public void setMethodDeadlines(final Map<String, Duration> methodDeadlines) {
+        this.methodDeadlines = methodDeadlines;
+    }
+
+    @JsonProperty
+    public Map<String, RetryPolicyFactory> getRetryPolicies() {
+        return retryPolicies;
+    }
+
+    @JsonProperty
+    public void setRetryPolicies(final Map<String, RetryPolicyFactory> retryPolicies) {
+        this.retryPolicies = retryPolicies;
+    }
+
+    @JsonProperty
+    public RetryThrottlingFactory getRetryThrottling() {
+        return retryThrottling;
+    }
+
+    @JsonProperty
+    public void setRetryThrottling(final RetryThrottlingFactory retryThrottling) {
+        this.retryThrottling = retryThrottling;
+    }
+
+    @JsonProperty
+    public Size getRetryBufferSize() {
+        return retryBufferSize;
+    }
+
+    @JsonProperty
+    public void setRetryBufferSize(final Size retryBufferSize) {
+        this.retryBufferSize = retryBufferSize;
+    }
+
+    @JsonProperty
+    public Size getPerCallRetryBufferLimit() {
+        return perCallRetryBufferLimit;
+    }
+
+    @JsonProperty
+    public void setPerCallRetryBufferLimit(final Size perCallRetryBufferLimit) {
+        this.perCallRetryBufferLimit = perCallRetryBufferLimit;
+    }
+
+    @JsonProperty
+    public Map<String, HedgingPolicyFactory> getHedgingPolicies() {
+        return hedgingPolicies;
+    }
+
+    @JsonProperty
+    public void setHedgingPolicies(final Map<String, HedgingPolicyFactory> hedgingPolicies) {
+        this.hedgingPolicies = hedgingPolicies;
+    }
+
+    @JsonProperty
+    public Set<String> getZeroCopyMethods() {
+        return zeroCopyMethods;
+    }
+
+    @JsonProperty
+    public void setZeroCopyMethods(final Set<String> zeroCopyMethods) {
+        this.zeroCopyMethods = zeroCopyMethods;
+    }
+
+    @ValidationMethod(message = "hostname and port are required unless target, targets or inProcessName is set")
+    public boolean isValidTarget() {
+        return target != null || inProcessName != null || !targets.isEmpty()
+                || (hostname != null && !hostname.isEmpty() && port >= 1);
+    }
+
+    @ValidationMethod(message = "targets must be <host>:<port> addresses and cannot be combined with target or "
+            + "inProcessName")
+    public boolean isValidTargets() {
+        if (targets.isEmpty()) {
+            return true;
+        }
+        if (target != null || inProcessName != null) {
+            return false;
+        }
+        try {
+            new StaticNameResolverFactory(targets);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @ValidationMethod(message = "dnsRefreshInterval is not supported for inProcessName and unix: targets")
+    public boolean isValidDnsRefreshInterval() {
+        return dnsRefreshInterval == null || (inProcessName == null && !isUnixDomainSocket());
+    }
+
+    @ValidationMethod(message = "retryPolicies are not supported for inProcessName and unix: targets, and "
+            + "retryThrottling requires retryPolicies")
+    public boolean isValidRetryPolicies() {
+        if (retryPolicies.isEmpty()) {
+            return retryThrottling == null;
+        }
+        return inProcessName == null && !isUnixDomainSocket();
+    }
+
+    @ValidationMethod(message = "a method cannot have both a retry and a hedging policy, by method or service name")
+    public boolean isValidHedgingPolicies() {
+        return !covers(retryPolicies.keySet(), hedgingPolicies.keySet())
+                && !covers(hedgingPolicies.keySet(), retryPolicies.keySet());
+    }
+
+    /**
+     * @return whether one of the full method or service names {@code keys} is one of {@code names} or the service of
+     *         one of them
+     */
+    private static boolean covers(final Set<String> keys, final Set<String> names) {
+        for (final String name : names) {
+            final String serviceName = MethodDescriptor.extractFullServiceName(name);
+            if (keys.contains(name) || (serviceName != null && keys.contains(serviceName))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
-     * @return A {@link ManagedChannelBuilder}, with hostname and port set from the configuration and plaintext
-     * communication enabled. The builder can be customized further, e.g. to add channel-wide interceptors.
+     * @return A {@link ManagedChannelBuilder}, actually a {@link NettyChannelBuilder}, with hostname and port, target
+     * or targets, the load balancing policy and {@code allocator} set from the configuration and transport security
+     * enabled if {@code tls} is
+     * configured, plaintext communication otherwise. The builder can be customized further, e.g. to add channel-wide
+     * interceptors. If {@code inProcessName} is set, an {@link InProcessChannelBuilder} for the in-process server of
+     * that name.
+     * @throws UncheckedIOException if the TLS certificates or private key cannot be loaded
      */
     public ManagedChannelBuilder builder() {
-        return ManagedChannelBuilder.forAddress(getHostname(), getPort()).usePlaintext();
+        if (inProcessName != null) {
+            return InProcessChannelBuilder.forName(inProcessName);
+        }
+        final NettyChannelBuilder builder;
+        final NameResolver.Factory nameResolverFactory;
+        if (!targets.isEmpty()) {
+            builder = NettyChannelBuilder.forTarget(StaticNameResolverFactory.SCHEME + ":///");
+            nameResolverFactory = new StaticNameResolverFactory(targets);
+        } else if (target == null) {
+            builder = NettyChannelBuilder.forAddress(getHostname(), getPort());
+            nameResolverFactory = NameResolverProvider.asFactory();
+        } else if (target.startsWith(UnixDomainSockets.SCHEME)) {
+            builder = UnixDomainSockets.channelBuilder(target);
+            nameResolverFactory = null;
+        } else {
+            builder = NettyChannelBuilder.forTarget(target);
+            nameResolverFactory = NameResolverProvider.asFactory();
+        }
+        // gRPC neither resolves nor balances channels to a socket address
+        if (nameResolverFactory != null) {
+            builder.nameResolverFactory(wrap(nameResolverFactory)).loadBalancerFactory(loadBalancerFactory());
+            if (!retryPolicies.isEmpty()) {
+                int maxAttempts = 0;
+                for (final RetryPolicyFactory policy : retryPolicies.values()) {
+                    maxAttempts = Math.max(maxAttempts, policy.getMaxAttempts());
+                }
+                builder.enableRetry()
+                    .maxRetryAttempts(maxAttempts)
+                    .retryBufferSize(retryBufferSize.toBytes())
+                    .perRpcBufferLimit(perCallRetryBufferLimit.toBytes());
+                // gRPC 1.13 does not retry while census stats or tracing are enabled; the channel has its own metrics
+                InternalNettyChannelBuilder.setStatsEnabled(builder, false);
+                InternalNettyChannelBuilder.setTracingEnabled(builder, false);
+            }
+        }
+        if (allocator != null) {
+            builder.withOption(ChannelOption.ALLOCATOR, allocator.getAllocator());
+        }
+        if (tls == null) {
+            return builder.usePlaintext();
+        }
+        try {
+            builder.sslContext(tls.getSslContext());
+        } catch (final SSLException e) {
+            throw new UncheckedIOException("Could not configure transport security of the channel", e);
+        }
+        if (tls.getAuthorityOverride() != null) {
+            builder.overrideAuthority(tls.getAuthorityOverride());
+        }
+        return builder;
+    }
+
+    private boolean isUnixDomainSocket() {
+        return target != null && target.startsWith(UnixDomainSockets.SCHEME);
+    }
+
+    private NameResolver.Factory wrap(final NameResolver.Factory factory) {
+        NameResolver.Factory wrapped = factory;
+        if (dnsRefreshInterval != null) {
+            wrapped = new RefreshingNameResolverFactory(wrapped, dnsRefreshInterval.getQuantity(),
+                dnsRefreshInterval.getUnit());
+        }
+        if (!retryPolicies.isEmpty()) {
+            wrapped = new ServiceConfigNameResolverFactory(wrapped, serviceConfig());
+        }
+        return wrapped;
+    }
+
+    /**
+     * @return the service config with the retry policies and throttling, in the form gRPC parses its JSON form into
+     */
+    private Map<String, Object> serviceConfig() {
+        final List<Object> methodConfigs = new ArrayList<>();
+        for (final Map.Entry<String, RetryPolicyFactory> entry : retryPolicies.entrySet()) {
+            final Map<String, Object> methodName = new LinkedHashMap<>();
+            methodName.put("service", MethodDescriptor.extractFullServiceName(entry.getKey()));
+            if (entry.getKey().indexOf('/') >= 0) {
+                methodName.put("method", entry.getKey().substring(entry.getKey().indexOf('/') + 1));
+            }
+            final Map<String, Object> methodConfig = new LinkedHashMap<>();
+            methodConfig.put("name", Collections.singletonList(methodName));
+            methodConfig.put("retryPolicy", entry.getValue().toServiceConfig());
+            methodConfigs.add(methodConfig);
+        }
+        final Map<String, Object> serviceConfig = new LinkedHashMap<>();
+        serviceConfig.put("methodConfig", methodConfigs);
+        if (retryThrottling != null) {
+            serviceConfig.put("retryThrottling", retryThrottling.toServiceConfig());
+        }
+        return serviceConfig;
+    }
+
+    private LoadBalancer.Factory loadBalancerFactory() {
+        switch (loadBalancingPolicy) {
+            case ROUND_ROBIN:
+                return RoundRobinLoadBalancerFactory.getInstance();
+            case LEAST_REQUEST:
+                return LeastRequestLoadBalancerFactory.INSTANCE;
+            default:
+                return PickFirstBalancerFactory.getInstance();
+        }
     }
 
     /**
      * @param environment to use
-     * @return A {@link ManagedChannel} with hostname and port set from the configuration and plaintext communication
-     * enabled. The returned channel is lifecycle-managed in the given {@link Environment}.
+     * @return A {@link ManagedChannel} with hostname, port and transport security set from the configuration. The
+     * returned channel is named {@code <hostname>:<port>}, or after the {@code inProcessName}, the {@code target} or
+     * the comma-separated {@code targets} if set, and lifecycle-managed in the given {@link Environment}.
      */
     public ManagedChannel build(final Environment environment) {
+        final String name;
+        if (inProcessName != null) {
+            name = inProcessName;
+        } else if (target != null) {
+            name = target;
+        } else if (!targets.isEmpty()) {
+            name = String.join(",", targets);
+        } else {
+            name = getHostname() + ":" + getPort();
+        }
+        return build(environment, name);
+    }
+
+    /**
+     * @param environment to use
+     * @param name of the channel, used in logging and metric names
+     * @return A {@link ManagedChannel} with hostname, port, transport security and default deadlines set from the
+     * configuration. Metrics for all calls are collected in the given {@link Environment}. If {@code poolSize} is
+     * greater than 1, the returned channel spreads calls across a pool of channels. The returned channel is
+     * lifecycle-managed in the given {@link Environment}.
+     */
+    public ManagedChannel build(final Environment environment, final String name) {
+        final List<ClientInterceptor> interceptors = new ArrayList<>();
+        // the last interceptor is called first: hedging comes last, so that the metrics count each call once and the
+        // hedged attempts share the deadline of the call
+        if (!hedgingPolicies.isEmpty()) {
+            final ScheduledExecutorService scheduler = environment.lifecycle()
+                .scheduledExecutorService("grpc-hedging-" + name + "-%d", true).build();
+            interceptors.add(new HedgingClientInterceptor(hedgingPolicies, scheduler, environment.metrics(), name));
+        }
+        if (!retryPolicies.isEmpty()) {
+            interceptors.add(new RetryMetricsClientInterceptor(environment.metrics(), name, retryPolicies.keySet()));
+        }
+        interceptors.add(new MetricsClientInterceptor(environment.metrics(), name));
+        if (defaultDeadline != null || !methodDeadlines.isEmpty()) {
+            interceptors.add(new DeadlineClientInterceptor(defaultDeadline, methodDeadlines));
+        }
+        if (!zeroCopyMethods.isEmpty()) {
+            interceptors.add(new ZeroCopyClientInterceptor(zeroCopyMethods));
+        }
+        if (allocator != null && inProcessName == null) {
+            allocator.registerMetrics(environment.metrics(), MetricRegistry.name("grpc.client", name, "allocator"));
+        }
+        // shared by the channels of a pool, so that each address has a single state gauge
+        final LoadBalancer.Factory balancer;
+        if (inProcessName == null && !isUnixDomainSocket()) {
+            balancer = new InstrumentedLoadBalancerFactory(loadBalancerFactory(), environment.metrics(), name);
+        } else {
+            balancer = null;
+        }
         final ManagedChannel managedChannel;
-        managedChannel = builder().build();
-        environment.lifecycle().manage(new ManagedGrpcChannel(managedChannel, shutdownPeriod));
+        if (poolSize == 1) {
+            managedChannel = buildChannel(balancer, interceptors);
+        } else {
+            managedChannel = buildPool(environment.metrics(), name, balancer, interceptors);
+        }
+        environment.lifecycle().manage(new ManagedGrpcChannel(name, managedChannel, shutdownPeriod));
         return managedChannel;
     }
+
+    private ManagedChannel buildChannel(@Nullable final LoadBalancer.Factory balancer,
+            final List<ClientInterceptor> interceptors) {
+        final ManagedChannelBuilder<?> builder = builder();
+        if (balancer != null) {
+            builder.loadBalancerFactory(balancer);
+        }
+        return builder.intercept(interceptors).build();
+    }
+
+    private ManagedChannel buildPool(final MetricRegistry metrics, final String name,
+            @Nullable final LoadBalancer.Factory balancer, final List<ClientInterceptor> interceptors) {
+        final List<ManagedChannel> channels = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            channels.add(buildChannel(balancer, interceptors));
+        }
+        final PooledManagedChannel pool = new PooledManagedChannel(channels, poolStrategy);
+        for (int i = 0; i < poolSize; i++) {
+            final int index = i;
+            metrics.register(MetricRegistry.name("grpc.client", name, "pool", String.valueOf(index), "inFlight"),
+                (Gauge<Integer>) () -> pool.getInFlight(index));
+        }
+        return pool;
+    }
 }
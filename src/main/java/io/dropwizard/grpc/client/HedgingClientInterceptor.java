@@ -0,0 +1,347 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * {@link ClientInterceptor} which hedges the unary calls of selected methods: if no attempt of a call has responded
+ * after the hedging delay, a further attempt is sent, up to the maximum number of attempts, and the first attempt to
+ * respond wins. The other attempts are cancelled.
+ * <p>
+ * An attempt responds when it receives response headers or fails with a status code which is not one of the policy's
+ * non-fatal status codes. An attempt failing with a non-fatal status code starts the next attempt right away; if it
+ * was the last one, its status ends the call. Each hedged attempt carries the {@code grpc-previous-rpc-attempts}
+ * header with the number of attempts before it.
+ * <p>
+ * The attempts are only started when the request is complete, i.e. when the call is half-closed, which the stubs do
+ * right after sending the request of a unary call. The listener of the call only receives the callbacks of the attempt
+ * the call is committed to, i.e. the first to respond, as the attempts call back on different threads; since the
+ * request has been sent completely, dropping {@code onReady} of the other attempts loses nothing.
+ * <p>
+ * The meters {@code hedging.attempts} (hedged attempts sent) and {@code hedging.won} (calls whose response came from a
+ * hedged attempt) are prefixed with {@code grpc.client.<channel name>}.
+ */
+final class HedgingClientInterceptor implements ClientInterceptor {
+    private static final Metadata.Key<String> PREVIOUS_ATTEMPTS =
+            Metadata.Key.of("grpc-previous-rpc-attempts", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final Map<String, HedgingPolicyFactory> policies;
+    private final ScheduledExecutorService scheduler;
+    private final Meter attempts;
+    private final Meter won;
+
+    /**
+     * @param policies hedging policy by full method name ({@code <full service name>/<method name>}) or full service
+     *            name
+     * @param scheduler to start the hedged attempts on
+     * @param metrics to register the meters in
+     * @param name of the channel
+     */
+    HedgingClientInterceptor(final Map<String, HedgingPolicyFactory> policies,
+            final ScheduledExecutorService scheduler, final MetricRegistry metrics, final String name) {
+        this.policies = new HashMap<>(checkNotNull(policies, "policies"));
+        this.scheduler = checkNotNull(scheduler, "scheduler");
+        this.attempts = metrics.meter(MetricRegistry.name("grpc.client", name, "hedging", "attempts"));
+        this.won = metrics.meter(MetricRegistry.name("grpc.client", name, "hedging", "won"));
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions, final Channel next) {
+        if (method.getType() != MethodDescriptor.MethodType.UNARY) {
+            return next.newCall(method, callOptions);
+        }
+        final HedgingPolicyFactory policy = policy(method.getFullMethodName());
+        if (policy == null) {
+            return next.newCall(method, callOptions);
+        }
+        return new HedgingCall<>(method, callOptions, next, policy);
+    }
+
+    @Nullable
+    private HedgingPolicyFactory policy(final String fullMethodName) {
+        final HedgingPolicyFactory policy = policies.get(fullMethodName);
+        if (policy != null) {
+            return policy;
+        }
+        return policies.get(MethodDescriptor.extractFullServiceName(fullMethodName));
+    }
+
+    private final class HedgingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+        private final MethodDescriptor<ReqT, RespT> method;
+        private final CallOptions callOptions;
+        private final Channel next;
+        private final HedgingPolicyFactory policy;
+        // the hedged attempts are started in the context of the call, e.g. with its cancellation
+        private final Context context = Context.current();
+        private final Object lock = new Object();
+        private final List<Attempt> started = new ArrayList<>();
+        private volatile Attempt committed;
+        // guarded by lock
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private ReqT message;
+        private int requested;
+        private Boolean messageCompression;
+        private boolean halfClosed;
+        private boolean cancelled;
+        private int attemptCount;
+        private int openAttempts;
+        private ScheduledFuture<?> nextAttempt;
+
+        HedgingCall(final MethodDescriptor<ReqT, RespT> method, final CallOptions callOptions, final Channel next,
+                final HedgingPolicyFactory policy) {
+            this.method = method;
+            this.callOptions = callOptions;
+            this.next = next;
+            this.policy = policy;
+        }
+
+        @Override
+        public void start(final Listener<RespT> responseListener, final Metadata requestHeaders) {
+            synchronized (lock) {
+                listener = responseListener;
+                headers = requestHeaders;
+            }
+        }
+
+        @Override
+        public void request(final int numMessages) {
+            final List<Attempt> current;
+            synchronized (lock) {
+                requested += numMessages;
+                current = new ArrayList<>(started);
+            }
+            for (final Attempt attempt : current) {
+                attempt.call.request(numMessages);
+            }
+        }
+
+        @Override
+        public void sendMessage(final ReqT requestMessage) {
+            synchronized (lock) {
+                message = requestMessage;
+            }
+        }
+
+        @Override
+        public void setMessageCompression(final boolean enabled) {
+            synchronized (lock) {
+                messageCompression = enabled;
+            }
+        }
+
+        @Override
+        public void halfClose() {
+            synchronized (lock) {
+                halfClosed = true;
+            }
+            startAttempt();
+        }
+
+        @Override
+        public boolean isReady() {
+            final Attempt winner = committed;
+            if (winner != null) {
+                return winner.call.isReady();
+            }
+            final List<Attempt> current;
+            synchronized (lock) {
+                current = new ArrayList<>(started);
+            }
+            for (final Attempt attempt : current) {
+                if (attempt.call.isReady()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void cancel(@Nullable final String cancelMessage, @Nullable final Throwable cause) {
+            final List<Attempt> current;
+            final Listener<RespT> closeListener;
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                cancelNextAttempt();
+                current = new ArrayList<>(started);
+                // without attempts, no attempt closes the call
+                closeListener = attemptCount == 0 ? listener : null;
+            }
+            for (final Attempt attempt : current) {
+                attempt.call.cancel(cancelMessage, cause);
+            }
+            if (closeListener != null) {
+                closeListener.onClose(Status.CANCELLED.withDescription(cancelMessage).withCause(cause),
+                    new Metadata());
+            }
+        }
+
+        private void startAttempt() {
+            final Attempt attempt;
+            final Metadata attemptHeaders = new Metadata();
+            final ReqT attemptMessage;
+            final Boolean attemptCompression;
+            final int attemptRequested;
+            synchronized (lock) {
+                if (!halfClosed || cancelled || committed != null || attemptCount >= policy.getMaxAttempts()) {
+                    return;
+                }
+                cancelNextAttempt();
+                attempt = new Attempt(attemptCount++, next.newCall(method, callOptions));
+                openAttempts++;
+                attemptHeaders.merge(headers);
+                attemptMessage = message;
+                attemptCompression = messageCompression;
+                attemptRequested = requested;
+            }
+            if (attempt.index > 0) {
+                attemptHeaders.put(PREVIOUS_ATTEMPTS, String.valueOf(attempt.index));
+                attempts.mark();
+            }
+            attempt.call.start(attempt, attemptHeaders);
+            if (attemptCompression != null) {
+                attempt.call.setMessageCompression(attemptCompression);
+            }
+            if (attemptRequested > 0) {
+                attempt.call.request(attemptRequested);
+            }
+            if (attemptMessage != null) {
+                attempt.call.sendMessage(attemptMessage);
+            }
+            attempt.call.halfClose();
+
+            final int missedRequests;
+            final boolean lost;
+            synchronized (lock) {
+                started.add(attempt);
+                missedRequests = requested - attemptRequested;
+                lost = cancelled || (committed != null && committed != attempt);
+                if (!lost && committed == null && attemptCount < policy.getMaxAttempts()) {
+                    nextAttempt = scheduler.schedule(context.wrap(this::startAttempt),
+                        policy.getHedgingDelay().toNanoseconds(), TimeUnit.NANOSECONDS);
+                }
+            }
+            if (missedRequests > 0) {
+                attempt.call.request(missedRequests);
+            }
+            if (lost) {
+                attempt.call.cancel("Another attempt of the hedged call won", null);
+            }
+        }
+
+        private void cancelNextAttempt() {
+            if (nextAttempt != null) {
+                nextAttempt.cancel(false);
+                nextAttempt = null;
+            }
+        }
+
+        /**
+         * Commits the call to an attempt, if it has not been committed yet, and cancels the other attempts.
+         *
+         * @return whether the call is committed to the attempt
+         */
+        private boolean commit(final Attempt attempt) {
+            final List<Attempt> losers = new ArrayList<>();
+            synchronized (lock) {
+                if (committed != null) {
+                    return committed == attempt;
+                }
+                committed = attempt;
+                cancelNextAttempt();
+                for (final Attempt other : started) {
+                    if (other != attempt) {
+                        losers.add(other);
+                    }
+                }
+            }
+            if (attempt.index > 0) {
+                won.mark();
+            }
+            for (final Attempt loser : losers) {
+                loser.call.cancel("Another attempt of the hedged call won", null);
+            }
+            return true;
+        }
+
+        private final class Attempt extends ClientCall.Listener<RespT> {
+            private final int index;
+            private final ClientCall<ReqT, RespT> call;
+
+            Attempt(final int index, final ClientCall<ReqT, RespT> call) {
+                this.index = index;
+                this.call = call;
+            }
+
+            @Override
+            public void onHeaders(final Metadata responseHeaders) {
+                if (commit(this)) {
+                    listener().onHeaders(responseHeaders);
+                }
+            }
+
+            @Override
+            public void onMessage(final RespT responseMessage) {
+                if (committed == this) {
+                    listener().onMessage(responseMessage);
+                }
+            }
+
+            @Override
+            public void onReady() {
+                // attempts call back concurrently until one of them is committed to
+                if (committed == this) {
+                    listener().onReady();
+                }
+            }
+
+            @Override
+            public void onClose(final Status status, final Metadata trailers) {
+                final boolean retry;
+                synchronized (lock) {
+                    openAttempts--;
+                    retry = committed == null && !cancelled && !status.isOk()
+                            && policy.getNonFatalStatusCodes().contains(status.getCode())
+                            && (openAttempts > 0 || attemptCount < policy.getMaxAttempts());
+                }
+                if (retry) {
+                    // wait for the other attempts, and start the next one now rather than after the delay
+                    context.run(HedgingCall.this::startAttempt);
+                } else if (commit(this)) {
+                    listener().onClose(status, trailers);
+                }
+            }
+
+            private Listener<RespT> listener() {
+                synchronized (lock) {
+                    return listener;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.dropwizard.grpc.client;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.grpc.Status;
+
+/**
+ * A factory for the hedging policy of the unary calls of a method or service, see {@link GrpcChannelFactory}.
+ * <p>
+ * A hedged call sends further attempts of the call if no attempt has responded after the {@code hedgingDelay}, and
+ * uses the response of the first attempt to respond. The other attempts are cancelled, so only idempotent methods
+ * should be hedged. An attempt failing with a non-fatal status code starts the next attempt right away, any other
+ * response ends the call.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxAttempts}</td>
+ * <td>2</td>
+ * <td>The maximum number of attempts of a call, including the first one.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code hedgingDelay}</td>
+ * <td>100 milliseconds</td>
+ * <td>How long to wait for a response before sending the next attempt, e.g. about the 95th percentile of the
+ * response time, so that only the slowest calls are hedged.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code nonFatalStatusCodes}</td>
+ * <td>(empty)</td>
+ * <td>The status codes of failed attempts after which the call waits for the other attempts, e.g.
+ * {@code UNAVAILABLE}.</td>
+ * </tr>
+ * </table>
+ */
+public class HedgingPolicyFactory {
+    @Min(2)
+    private int maxAttempts = 2;
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration hedgingDelay = Duration.milliseconds(100);
+
+    @NotNull
+    private Set<Status.Code> nonFatalStatusCodes = Collections.emptySet();
+
+    @JsonProperty
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @JsonProperty
+    public void setMaxAttempts(final int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    @JsonProperty
+    public Duration getHedgingDelay() {
+        return hedgingDelay;
+    }
+
+    @JsonProperty
+    public void setHedgingDelay(final Duration hedgingDelay) {
+        this.hedgingDelay = hedgingDelay;
+    }
+
+    @JsonProperty
+    public Set<Status.Code> getNonFatalStatusCodes() {
+        return nonFatalStatusCodes;
+    }
+
+    @JsonProperty
+    public void setNonFatalStatusCodes(final Set<Status.Code> nonFatalStatusCodes) {
+        this.nonFatalStatusCodes = nonFatalStatusCodes;
+    }
+}
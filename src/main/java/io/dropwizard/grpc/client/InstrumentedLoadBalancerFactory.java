@@ -0,0 +1,238 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+import io.grpc.Attributes;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+
+/**
+ * {@link LoadBalancer.Factory} which exports the connectivity state of the subchannels created by the balancers of
+ * another factory as gauges.
+ * <p>
+ * The gauges are prefixed with {@code grpc.client.<channel name>.subchannels}: {@code ready}, {@code connecting},
+ * {@code idle} and {@code transientFailure} count the subchannels in each state, and
+ * {@code <address>.state} is the state of the subchannel connecting to an address. The gauge of an address is removed
+ * once no subchannel connects to it anymore, e.g. because it is no longer resolved. The same factory can be shared by
+ * the channels of a pool, then the counts cover all channels of the pool and the state of an address is the best
+ * state of its subchannels.
+ */
+final class InstrumentedLoadBalancerFactory extends LoadBalancer.Factory {
+    // from best to worst
+    private static final ImmutableList<ConnectivityState> STATES = ImmutableList.of(ConnectivityState.READY,
+        ConnectivityState.CONNECTING, ConnectivityState.IDLE, ConnectivityState.TRANSIENT_FAILURE,
+        ConnectivityState.SHUTDOWN);
+
+    private final LoadBalancer.Factory delegate;
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final Map<LoadBalancer.Subchannel, TrackedSubchannel> subchannels = new ConcurrentHashMap<>();
+    private final Set<String> addresses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param delegate factory of the balancers to instrument
+     * @param metrics to register the gauges in
+     * @param name of the channel
+     */
+    InstrumentedLoadBalancerFactory(final LoadBalancer.Factory delegate, final MetricRegistry metrics,
+            final String name) {
+        this.delegate = checkNotNull(delegate, "delegate");
+        this.metrics = checkNotNull(metrics, "metrics");
+        this.prefix = MetricRegistry.name("grpc.client", checkNotNull(name, "name"), "subchannels");
+        metrics.register(MetricRegistry.name(prefix, "ready"), (Gauge<Long>) () -> count(ConnectivityState.READY));
+        metrics.register(MetricRegistry.name(prefix, "connecting"),
+            (Gauge<Long>) () -> count(ConnectivityState.CONNECTING));
+        metrics.register(MetricRegistry.name(prefix, "idle"), (Gauge<Long>) () -> count(ConnectivityState.IDLE));
+        metrics.register(MetricRegistry.name(prefix, "transientFailure"),
+            (Gauge<Long>) () -> count(ConnectivityState.TRANSIENT_FAILURE));
+    }
+
+    @Override
+    public LoadBalancer newLoadBalancer(final LoadBalancer.Helper helper) {
+        final InstrumentedHelper instrumentedHelper = new InstrumentedHelper(helper);
+        return new InstrumentedLoadBalancer(delegate.newLoadBalancer(instrumentedHelper), instrumentedHelper);
+    }
+
+    private long count(final ConnectivityState state) {
+        return subchannels.values().stream().filter(subchannel -> subchannel.state == state).count();
+    }
+
+    private ConnectivityState state(final String address) {
+        ConnectivityState best = ConnectivityState.SHUTDOWN;
+        for (final TrackedSubchannel subchannel : subchannels.values()) {
+            if (subchannel.address.equals(address) && STATES.indexOf(subchannel.state) < STATES.indexOf(best)) {
+                best = subchannel.state;
+            }
+        }
+        return best;
+    }
+
+    private synchronized void track(final LoadBalancer.Subchannel subchannel,
+            final EquivalentAddressGroup addressGroup, final InstrumentedHelper owner) {
+        final String address = addressGroup.getAddresses().stream()
+            .map(InstrumentedLoadBalancerFactory::format).collect(Collectors.joining(","));
+        final TrackedSubchannel existing = subchannels.get(subchannel);
+        subchannels.put(subchannel, new TrackedSubchannel(address, owner,
+            existing == null ? ConnectivityState.IDLE : existing.state));
+        if (addresses.add(address)) {
+            metrics.register(MetricRegistry.name(prefix, address, "state"),
+                (Gauge<String>) () -> state(address).name());
+        }
+        if (existing != null) {
+            release(existing.address);
+        }
+    }
+
+    private synchronized void untrack(final LoadBalancer.Subchannel subchannel) {
+        final TrackedSubchannel tracked = subchannels.remove(subchannel);
+        if (tracked != null) {
+            release(tracked.address);
+        }
+    }
+
+    private synchronized void untrackAll(final InstrumentedHelper owner) {
+        final List<String> released = subchannels.values().stream().filter(tracked -> tracked.owner == owner)
+            .map(tracked -> tracked.address).collect(Collectors.toList());
+        subchannels.values().removeIf(tracked -> tracked.owner == owner);
+        released.forEach(this::release);
+    }
+
+    // removes the gauge of an address once no subchannel connects to it anymore
+    private void release(final String address) {
+        if (subchannels.values().stream().noneMatch(tracked -> tracked.address.equals(address))
+                && addresses.remove(address)) {
+            metrics.remove(MetricRegistry.name(prefix, address, "state"));
+        }
+    }
+
+    private static String format(final SocketAddress address) {
+        if (address instanceof InetSocketAddress && !((InetSocketAddress) address).isUnresolved()) {
+            final InetSocketAddress inetAddress = (InetSocketAddress) address;
+            return inetAddress.getAddress().getHostAddress() + ":" + inetAddress.getPort();
+        }
+        return address.toString();
+    }
+
+    private static final class TrackedSubchannel {
+        private final String address;
+        private final InstrumentedHelper owner;
+        private volatile ConnectivityState state;
+
+        TrackedSubchannel(final String address, final InstrumentedHelper owner, final ConnectivityState state) {
+            this.address = address;
+            this.owner = owner;
+            this.state = state;
+        }
+    }
+
+    private final class InstrumentedHelper extends LoadBalancer.Helper {
+        private final LoadBalancer.Helper delegate;
+
+        InstrumentedHelper(final LoadBalancer.Helper delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public LoadBalancer.Subchannel createSubchannel(final EquivalentAddressGroup addrs, final Attributes attrs) {
+            final LoadBalancer.Subchannel subchannel = delegate.createSubchannel(addrs, attrs);
+            track(subchannel, addrs, this);
+            return subchannel;
+        }
+
+        @Override
+        public void updateSubchannelAddresses(final LoadBalancer.Subchannel subchannel,
+                final EquivalentAddressGroup addrs) {
+            delegate.updateSubchannelAddresses(subchannel, addrs);
+            track(subchannel, addrs, this);
+        }
+
+        @Override
+        public ManagedChannel createOobChannel(final EquivalentAddressGroup eag, final String authority) {
+            return delegate.createOobChannel(eag, authority);
+        }
+
+        @Override
+        public void updateOobChannelAddresses(final ManagedChannel channel, final EquivalentAddressGroup eag) {
+            delegate.updateOobChannelAddresses(channel, eag);
+        }
+
+        @Override
+        public void updateBalancingState(final ConnectivityState newState,
+                final LoadBalancer.SubchannelPicker newPicker) {
+            delegate.updateBalancingState(newState, newPicker);
+        }
+
+        @Override
+        public void runSerialized(final Runnable task) {
+            delegate.runSerialized(task);
+        }
+
+        @Override
+        public NameResolver.Factory getNameResolverFactory() {
+            return delegate.getNameResolverFactory();
+        }
+
+        @Override
+        public String getAuthority() {
+            return delegate.getAuthority();
+        }
+    }
+
+    private final class InstrumentedLoadBalancer extends LoadBalancer {
+        private final LoadBalancer delegate;
+        private final InstrumentedHelper helper;
+
+        InstrumentedLoadBalancer(final LoadBalancer delegate, final InstrumentedHelper helper) {
+            this.delegate = delegate;
+            this.helper = helper;
+        }
+
+        @Override
+        public void handleResolvedAddressGroups(final List<EquivalentAddressGroup> servers,
+                final Attributes attributes) {
+            delegate.handleResolvedAddressGroups(servers, attributes);
+        }
+
+        @Override
+        public void handleNameResolutionError(final Status error) {
+            delegate.handleNameResolutionError(error);
+        }
+
+        @Override
+        public void handleSubchannelState(final Subchannel subchannel, final ConnectivityStateInfo stateInfo) {
+            final TrackedSubchannel tracked = subchannels.get(subchannel);
+            if (tracked != null) {
+                if (stateInfo.getState() == ConnectivityState.SHUTDOWN) {
+                    untrack(subchannel);
+                } else {
+                    tracked.state = stateInfo.getState();
+                }
+            }
+            delegate.handleSubchannelState(subchannel, stateInfo);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+            // the channel does not report the state of the subchannels once its balancer is shut down
+            untrackAll(helper);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+/**
+ * {@link LoadBalancer.Factory} of balancers which send each call to the less loaded of two randomly chosen ready
+ * subchannels, measured by the number of streams open on them.
+ * <p>
+ * Unlike round-robin, the balancers steer calls away from slow servers, and unlike always choosing the least loaded
+ * subchannel, the two random choices do not send a burst of calls to the same subchannel before its count catches up.
+ * Like gRPC's round-robin balancer, the balancers connect to all resolved addresses and reconnect idle subchannels.
+ */
+final class LeastRequestLoadBalancerFactory extends LoadBalancer.Factory {
+    static final LeastRequestLoadBalancerFactory INSTANCE = new LeastRequestLoadBalancerFactory();
+
+    private LeastRequestLoadBalancerFactory() {
+    }
+
+    @Override
+    public LoadBalancer newLoadBalancer(final LoadBalancer.Helper helper) {
+        return new LeastRequestLoadBalancer(helper);
+    }
+
+    /**
+     * A subchannel with its state and the number of streams open on it.
+     */
+    private static final class TrackedSubchannel extends ClientStreamTracer.Factory {
+        private final LoadBalancer.Subchannel subchannel;
+        private final AtomicInteger openStreams = new AtomicInteger();
+        private ConnectivityStateInfo state = ConnectivityStateInfo.forNonError(ConnectivityState.IDLE);
+
+        TrackedSubchannel(final LoadBalancer.Subchannel subchannel) {
+            this.subchannel = subchannel;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(final CallOptions callOptions, final Metadata headers) {
+            openStreams.incrementAndGet();
+            return new ClientStreamTracer() {
+                @Override
+                public void streamClosed(final Status status) {
+                    openStreams.decrementAndGet();
+                }
+            };
+        }
+    }
+
+    private static final class LeastRequestLoadBalancer extends LoadBalancer {
+        private final Helper helper;
+        private final Map<EquivalentAddressGroup, TrackedSubchannel> byAddresses = new HashMap<>();
+        private final Map<LoadBalancer.Subchannel, TrackedSubchannel> bySubchannel = new HashMap<>();
+
+        LeastRequestLoadBalancer(final Helper helper) {
+            this.helper = checkNotNull(helper, "helper");
+        }
+
+        @Override
+        public void handleResolvedAddressGroups(final List<EquivalentAddressGroup> servers,
+                final Attributes attributes) {
+            final Set<EquivalentAddressGroup> resolved = new HashSet<>();
+            for (final EquivalentAddressGroup server : servers) {
+                // the attributes of the group do not identify the server
+                resolved.add(new EquivalentAddressGroup(server.getAddresses()));
+            }
+            for (final EquivalentAddressGroup addresses : resolved) {
+                if (!byAddresses.containsKey(addresses)) {
+                    final LoadBalancer.Subchannel subchannel = helper.createSubchannel(addresses, Attributes.EMPTY);
+                    final TrackedSubchannel tracked = new TrackedSubchannel(subchannel);
+                    byAddresses.put(addresses, tracked);
+                    bySubchannel.put(subchannel, tracked);
+                    subchannel.requestConnection();
+                }
+            }
+            final Iterator<Map.Entry<EquivalentAddressGroup, TrackedSubchannel>> it = byAddresses.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<EquivalentAddressGroup, TrackedSubchannel> entry = it.next();
+                if (!resolved.contains(entry.getKey())) {
+                    it.remove();
+                    bySubchannel.remove(entry.getValue().subchannel);
+                    entry.getValue().subchannel.shutdown();
+                }
+            }
+            updateBalancingState(null);
+        }
+
+        @Override
+        public void handleNameResolutionError(final Status error) {
+            updateBalancingState(error);
+        }
+
+        @Override
+        public void handleSubchannelState(final LoadBalancer.Subchannel subchannel,
+                final ConnectivityStateInfo stateInfo) {
+            final TrackedSubchannel tracked = bySubchannel.get(subchannel);
+            if (tracked == null || stateInfo.getState() == ConnectivityState.SHUTDOWN) {
+                return;
+            }
+            if (stateInfo.getState() == ConnectivityState.IDLE) {
+                subchannel.requestConnection();
+            }
+            tracked.state = stateInfo;
+            updateBalancingState(null);
+        }
+
+        @Override
+        public void shutdown() {
+            for (final TrackedSubchannel tracked : byAddresses.values()) {
+                tracked.subchannel.shutdown();
+            }
+            byAddresses.clear();
+            bySubchannel.clear();
+        }
+
+        private void updateBalancingState(@Nullable final Status resolutionError) {
+            final List<TrackedSubchannel> ready = new ArrayList<>();
+            boolean connecting = false;
+            Status failure = resolutionError;
+            for (final TrackedSubchannel tracked : byAddresses.values()) {
+                switch (tracked.state.getState()) {
+                    case READY:
+                        ready.add(tracked);
+                        break;
+                    case TRANSIENT_FAILURE:
+                        if (failure == null) {
+                            failure = tracked.state.getStatus();
+                        }
+                        break;
+                    default:
+                        connecting = true;
+                }
+            }
+            if (!ready.isEmpty()) {
+                helper.updateBalancingState(ConnectivityState.READY, new ReadyPicker(ready));
+            } else if (failure != null && (resolutionError != null || !connecting)) {
+                helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE, new NotReadyPicker(failure));
+            } else {
+                helper.updateBalancingState(ConnectivityState.CONNECTING, new NotReadyPicker(null));
+            }
+        }
+    }
+
+    private static final class ReadyPicker extends LoadBalancer.SubchannelPicker {
+        private final List<TrackedSubchannel> ready;
+
+        ReadyPicker(final List<TrackedSubchannel> ready) {
+            this.ready = ImmutableList.copyOf(ready);
+        }
+
+        @Override
+        public LoadBalancer.PickResult pickSubchannel(final LoadBalancer.PickSubchannelArgs args) {
+            final TrackedSubchannel picked;
+            if (ready.size() == 1) {
+                picked = ready.get(0);
+            } else {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int first = random.nextInt(ready.size());
+                int second = random.nextInt(ready.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                final TrackedSubchannel a = ready.get(first);
+                final TrackedSubchannel b = ready.get(second);
+                picked = a.openStreams.get() <= b.openStreams.get() ? a : b;
+            }
+            return LoadBalancer.PickResult.withSubchannel(picked.subchannel, picked);
+        }
+    }
+
+    private static final class NotReadyPicker extends LoadBalancer.SubchannelPicker {
+        private final Status error;
+
+        /**
+         * @param error to fail the calls with, or {@code null} to let them wait for a ready subchannel
+         */
+        NotReadyPicker(@Nullable final Status error) {
+            this.error = error;
+        }
+
+        @Override
+        public LoadBalancer.PickResult pickSubchannel(final LoadBalancer.PickSubchannelArgs args) {
+            return error == null ? LoadBalancer.PickResult.withNoResult() : LoadBalancer.PickResult.withError(error);
+        }
+    }
+}
@@ -12,10 +12,10 @@ import io.grpc.ManagedChannel;
 /**
  * Dropwizard lifecycle management for a gRPC channel.
  */
-// TODO attach name for logging purposes
 public final class ManagedGrpcChannel implements Managed {
     private static final Logger log = LoggerFactory.getLogger(ManagedGrpcChannel.class);
 
+    private final String name;
     private final ManagedChannel channel;
     private final Duration disconnectTimeout;
 
@@ -24,6 +24,11 @@ public final class ManagedGrpcChannel implements Managed {
     }
 
     public ManagedGrpcChannel(final ManagedChannel channel, final Duration disconnectTimeout) {
+        this(checkNotNull(channel, "channel").authority(), channel, disconnectTimeout);
+    }
+
+    public ManagedGrpcChannel(final String name, final ManagedChannel channel, final Duration disconnectTimeout) {
+        this.name = checkNotNull(name, "name");
         this.channel = checkNotNull(channel, "channel");
         this.disconnectTimeout = checkNotNull(disconnectTimeout, "disconnectTimeout");
     }
@@ -35,8 +40,8 @@ public final class ManagedGrpcChannel implements Managed {
     }
 
     public void stop() throws Exception {
-        log.info("Disconnecting gRPC client", channel);
+        log.info("Disconnecting gRPC client {}", name);
         channel.shutdown().awaitTermination(disconnectTimeout.getQuantity(), disconnectTimeout.getUnit());
-        log.info("gRPC client disconnected");
+        log.info("gRPC client {} disconnected", name);
     }
 }
@@ -0,0 +1,174 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * {@link ClientInterceptor} which collects dropwizard metrics for the calls made on a channel.
+ * <p>
+ * Metric handles are resolved the first time a method is called and cached per {@link MethodDescriptor}, so
+ * subsequent calls neither look up metrics by name nor concatenate strings.
+ * <p>
+ * The following metrics are collected, prefixed with {@code grpc.client.<channel name>}:
+ * <table summary="Metrics">
+ * <tr>
+ * <td>Name</td>
+ * <td>Type</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code inFlight}</td>
+ * <td>Counter</td>
+ * <td>Calls currently in progress on the channel.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code <full service name>.<method name>.calls}</td>
+ * <td>Timer</td>
+ * <td>Duration of calls, from the start of the call until it is closed.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code <full service name>.<method name>.completed.<status code>}</td>
+ * <td>Meter</td>
+ * <td>Calls completed with the given status code, e.g. {@code completed.OK}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code <full service name>.<method name>.failed}</td>
+ * <td>Meter</td>
+ * <td>Calls completed with a status code other than {@code OK}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code <full service name>.<method name>.messagesSent}</td>
+ * <td>Meter</td>
+ * <td>Request messages sent.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code <full service name>.<method name>.messagesReceived}</td>
+ * <td>Meter</td>
+ * <td>Response messages received.</td>
+ * </tr>
+ * </table>
+ */
+public final class MetricsClientInterceptor implements ClientInterceptor {
+    private static final Status.Code[] CODES = Status.Code.values();
+
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final Counter inFlight;
+    private final ConcurrentMap<MethodDescriptor<?, ?>, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+
+    public MetricsClientInterceptor(final MetricRegistry metrics, final String channelName) {
+        this.metrics = checkNotNull(metrics, "metrics");
+        this.prefix = MetricRegistry.name("grpc.client", checkNotNull(channelName, "channelName"));
+        this.inFlight = metrics.counter(MetricRegistry.name(prefix, "inFlight"));
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions, final Channel next) {
+        MethodMetrics methodMetrics = this.methodMetrics.get(method);
+        if (methodMetrics == null) {
+            methodMetrics = this.methodMetrics.computeIfAbsent(method, MethodMetrics::new);
+        }
+        return new MetricsClientCall<>(next.newCall(method, callOptions), methodMetrics);
+    }
+
+    private final class MethodMetrics {
+        private final String prefix;
+        private final Timer calls;
+        private final Meter failed;
+        private final Meter messagesSent;
+        private final Meter messagesReceived;
+        private final AtomicReferenceArray<Meter> completed;
+
+        MethodMetrics(final MethodDescriptor<?, ?> method) {
+            final String fullMethodName = method.getFullMethodName();
+            this.prefix = MetricRegistry.name(MetricsClientInterceptor.this.prefix,
+                MethodDescriptor.extractFullServiceName(fullMethodName),
+                fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1));
+            this.calls = metrics.timer(MetricRegistry.name(prefix, "calls"));
+            this.failed = metrics.meter(MetricRegistry.name(prefix, "failed"));
+            this.messagesSent = metrics.meter(MetricRegistry.name(prefix, "messagesSent"));
+            this.messagesReceived = metrics.meter(MetricRegistry.name(prefix, "messagesReceived"));
+            this.completed = new AtomicReferenceArray<>(CODES.length);
+        }
+
+        void record(final Status.Code code, final long durationNanos) {
+            inFlight.dec();
+            calls.update(durationNanos, TimeUnit.NANOSECONDS);
+            completedMeter(code).mark();
+            if (code != Status.Code.OK) {
+                failed.mark();
+            }
+        }
+
+        private Meter completedMeter(final Status.Code code) {
+            final int index = code.ordinal();
+            Meter meter = completed.get(index);
+            if (meter == null) {
+                meter = metrics.meter(MetricRegistry.name(prefix, "completed", code.name()));
+                completed.set(index, meter);
+            }
+            return meter;
+        }
+    }
+
+    private final class MetricsClientCall<ReqT, RespT>
+            extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+        private final MethodMetrics methodMetrics;
+
+        MetricsClientCall(final ClientCall<ReqT, RespT> delegate, final MethodMetrics methodMetrics) {
+            super(delegate);
+            this.methodMetrics = methodMetrics;
+        }
+
+        @Override
+        public void start(final Listener<RespT> responseListener, final Metadata headers) {
+            inFlight.inc();
+            final long startNanos = System.nanoTime();
+            try {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                    responseListener) {
+                    @Override
+                    public void onMessage(final RespT message) {
+                        methodMetrics.messagesReceived.mark();
+                        super.onMessage(message);
+                    }
+
+                    @Override
+                    public void onClose(final Status status, final Metadata trailers) {
+                        methodMetrics.record(status.getCode(), System.nanoTime() - startNanos);
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            } catch (final RuntimeException e) {
+                methodMetrics.record(Status.fromThrowable(e).getCode(), System.nanoTime() - startNanos);
+                throw e;
+            }
+        }
+
+        @Override
+        public void sendMessage(final ReqT message) {
+            super.sendMessage(message);
+            methodMetrics.messagesSent.mark();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableList;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * {@link ManagedChannel} which spreads calls across a fixed pool of channels, each with its own HTTP/2 connection.
+ * <p>
+ * A single HTTP/2 connection is limited by the server's {@code MAX_CONCURRENT_STREAMS} setting and suffers from
+ * head-of-line blocking under load. Spreading calls across several connections avoids both.
+ */
+final class PooledManagedChannel extends ManagedChannel {
+    private final List<ManagedChannel> channels;
+    private final AtomicInteger[] inFlight;
+    private final GrpcChannelFactory.PoolStrategy strategy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    PooledManagedChannel(final List<ManagedChannel> channels, final GrpcChannelFactory.PoolStrategy strategy) {
+        checkArgument(!channels.isEmpty(), "channels is empty");
+        this.channels = ImmutableList.copyOf(channels);
+        this.strategy = checkNotNull(strategy, "strategy");
+        this.inFlight = new AtomicInteger[channels.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @param index of the channel in the pool
+     * @return the number of calls currently in flight on the given channel
+     */
+    int getInFlight(final int index) {
+        return inFlight[index].get();
+    }
+
+    int size() {
+        return channels.size();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions) {
+        final int index = select();
+        return new PooledClientCall<>(channels.get(index).newCall(method, callOptions), inFlight[index]);
+    }
+
+    private int select() {
+        final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % inFlight.length;
+        if (strategy == GrpcChannelFactory.PoolStrategy.ROUND_ROBIN) {
+            return start;
+        }
+        int selected = start;
+        int least = inFlight[start].get();
+        for (int i = 1; i < inFlight.length && least > 0; i++) {
+            final int index = (start + i) % inFlight.length;
+            final int current = inFlight[index].get();
+            if (current < least) {
+                selected = index;
+                least = current;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        for (final ManagedChannel channel : channels) {
+            channel.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (final ManagedChannel channel : channels) {
+            if (!channel.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (final ManagedChannel channel : channels) {
+            if (!channel.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        for (final ManagedChannel channel : channels) {
+            channel.shutdownNow();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the most available state of all channels in the pool, e.g. {@link ConnectivityState#READY} if at least
+     *         one channel is ready
+     */
+    @Override
+    public ConnectivityState getState(final boolean requestConnection) {
+        ConnectivityState state = ConnectivityState.SHUTDOWN;
+        for (final ManagedChannel channel : channels) {
+            final ConnectivityState channelState = channel.getState(requestConnection);
+            if (rank(channelState) < rank(state)) {
+                state = channelState;
+            }
+        }
+        return state;
+    }
+
+    private static int rank(final ConnectivityState state) {
+        switch (state) {
+            case READY:
+                return 0;
+            case CONNECTING:
+                return 1;
+            case IDLE:
+                return 2;
+            case TRANSIENT_FAILURE:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+        for (final ManagedChannel channel : channels) {
+            channel.resetConnectBackoff();
+        }
+    }
+
+    @Override
+    public void enterIdle() {
+        for (final ManagedChannel channel : channels) {
+            channel.enterIdle();
+        }
+    }
+
+    private static final class PooledClientCall<ReqT, RespT>
+            extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+        private final AtomicInteger inFlight;
+
+        PooledClientCall(final ClientCall<ReqT, RespT> delegate, final AtomicInteger inFlight) {
+            super(delegate);
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void start(final Listener<RespT> responseListener, final Metadata headers) {
+            inFlight.incrementAndGet();
+            try {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                    responseListener) {
+                    @Override
+                    public void onClose(final Status status, final Metadata trailers) {
+                        inFlight.decrementAndGet();
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            } catch (final RuntimeException e) {
+                inFlight.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+}
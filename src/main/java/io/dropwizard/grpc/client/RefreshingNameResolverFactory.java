@@ -0,0 +1,105 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.grpc.Attributes;
+import io.grpc.NameResolver;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * {@link NameResolver.Factory} whose resolvers refresh the resolvers of another factory at a fixed interval.
+ * <p>
+ * gRPC's DNS resolver only resolves a name again after a connection failed, so a channel would never pick up servers
+ * added to a DNS name while the existing ones stay healthy. The refreshes are scheduled on a shared daemon thread.
+ */
+final class RefreshingNameResolverFactory extends NameResolver.Factory {
+    private static final Logger log = LoggerFactory.getLogger(RefreshingNameResolverFactory.class);
+
+    private static final class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new DefaultThreadFactory("grpc-client-resolver-refresh", true));
+    }
+
+    private final NameResolver.Factory delegate;
+    private final long intervalNanos;
+
+    /**
+     * @param delegate factory of the resolvers to refresh
+     * @param interval between the refreshes
+     * @param unit of the interval
+     */
+    RefreshingNameResolverFactory(final NameResolver.Factory delegate, final long interval, final TimeUnit unit) {
+        checkArgument(interval > 0, "interval must be positive");
+        this.delegate = checkNotNull(delegate, "delegate");
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    @Nullable
+    @Override
+    public NameResolver newNameResolver(final URI targetUri, final Attributes params) {
+        final NameResolver resolver = delegate.newNameResolver(targetUri, params);
+        return resolver == null ? null : new RefreshingNameResolver(resolver, intervalNanos);
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return delegate.getDefaultScheme();
+    }
+
+    private static final class RefreshingNameResolver extends NameResolver {
+        private final NameResolver delegate;
+        private final long intervalNanos;
+        private ScheduledFuture<?> refreshes;
+
+        RefreshingNameResolver(final NameResolver delegate, final long intervalNanos) {
+            this.delegate = delegate;
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return delegate.getServiceAuthority();
+        }
+
+        @Override
+        public synchronized void start(final Listener listener) {
+            delegate.start(listener);
+            refreshes = SchedulerHolder.SCHEDULER.scheduleWithFixedDelay(this::scheduledRefresh, intervalNanos,
+                intervalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void refresh() {
+            delegate.refresh();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            if (refreshes != null) {
+                refreshes.cancel(false);
+            }
+            delegate.shutdown();
+        }
+
+        private void scheduledRefresh() {
+            try {
+                delegate.refresh();
+            } catch (final RuntimeException e) {
+                // an exception would cancel all further refreshes
+                log.warn("Could not refresh name resolver of {}", delegate.getServiceAuthority(), e);
+            }
+        }
+    }
+}
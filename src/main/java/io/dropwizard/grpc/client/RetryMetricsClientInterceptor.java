@@ -0,0 +1,77 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * {@link ClientInterceptor} which counts the attempts gRPC retries the calls of selected methods with.
+ * <p>
+ * gRPC marks each retried attempt with the {@code grpc-previous-rpc-attempts} header, so a stream tracer sees which
+ * streams are retries. The meters {@code retries.attempts} (retried attempts) and {@code retries.won} (retried
+ * attempts which succeeded) are prefixed with {@code grpc.client.<channel name>}.
+ */
+final class RetryMetricsClientInterceptor implements ClientInterceptor {
+    private static final Metadata.Key<String> PREVIOUS_ATTEMPTS =
+            Metadata.Key.of("grpc-previous-rpc-attempts", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final ClientStreamTracer NOOP_TRACER = new ClientStreamTracer() {
+    };
+
+    private final Set<String> methods;
+    private final Meter attempts;
+    private final Meter won;
+    private final ClientStreamTracer.Factory tracerFactory = new ClientStreamTracer.Factory() {
+        @Override
+        public ClientStreamTracer newClientStreamTracer(final CallOptions callOptions, final Metadata headers) {
+            if (!headers.containsKey(PREVIOUS_ATTEMPTS)) {
+                return NOOP_TRACER;
+            }
+            attempts.mark();
+            return new ClientStreamTracer() {
+                @Override
+                public void streamClosed(final Status status) {
+                    if (status.isOk()) {
+                        won.mark();
+                    }
+                }
+            };
+        }
+    };
+
+    /**
+     * @param metrics to register the meters in
+     * @param name of the channel
+     * @param methods full method names ({@code <full service name>/<method name>}) or full service names of the
+     *            methods with a retry policy
+     */
+    RetryMetricsClientInterceptor(final MetricRegistry metrics, final String name, final Set<String> methods) {
+        this.methods = new HashSet<>(checkNotNull(methods, "methods"));
+        this.attempts = metrics.meter(MetricRegistry.name("grpc.client", name, "retries", "attempts"));
+        this.won = metrics.meter(MetricRegistry.name("grpc.client", name, "retries", "won"));
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions, final Channel next) {
+        final String fullMethodName = method.getFullMethodName();
+        if (!methods.contains(fullMethodName)
+                && !methods.contains(MethodDescriptor.extractFullServiceName(fullMethodName))) {
+            return next.newCall(method, callOptions);
+        }
+        return next.newCall(method, callOptions.withStreamTracerFactory(tracerFactory));
+    }
+}
@@ -0,0 +1,166 @@
+package io.dropwizard.grpc.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import io.grpc.Status;
+
+/**
+ * A factory for the retry policy of the calls of a method or service, which gRPC applies to the calls of channels
+ * with retries enabled, see {@link GrpcChannelFactory}.
+ * <p>
+ * A failed call is retried if it failed with one of the retryable status codes before the server sent response
+ * headers. Attempts are delayed by a random backoff between 0 and the current backoff, which starts at
+ * {@code initialBackoff} and is multiplied by {@code backoffMultiplier} after each attempt, up to {@code maxBackoff}.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxAttempts}</td>
+ * <td>3</td>
+ * <td>The maximum number of attempts of a call, including the first one.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code initialBackoff}</td>
+ * <td>100 milliseconds</td>
+ * <td>The backoff before the first retry.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxBackoff}</td>
+ * <td>1 second</td>
+ * <td>The maximum backoff, at least {@code initialBackoff}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code backoffMultiplier}</td>
+ * <td>2</td>
+ * <td>The factor the backoff grows by after each attempt.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code retryableStatusCodes}</td>
+ * <td>[UNAVAILABLE]</td>
+ * <td>The status codes of failed attempts which are retried, e.g. {@code UNAVAILABLE} or
+ * {@code RESOURCE_EXHAUSTED}.</td>
+ * </tr>
+ * </table>
+ */
+public class RetryPolicyFactory {
+    @Min(2)
+    private int maxAttempts = 3;
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration initialBackoff = Duration.milliseconds(100);
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration maxBackoff = Duration.seconds(1);
+
+    @DecimalMin(value = "0", inclusive = false)
+    private double backoffMultiplier = 2;
+
+    @NotNull
+    @Size(min = 1)
+    private Set<Status.Code> retryableStatusCodes = Collections.singleton(Status.Code.UNAVAILABLE);
+
+    @JsonProperty
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @JsonProperty
+    public void setMaxAttempts(final int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    @JsonProperty
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    @JsonProperty
+    public void setInitialBackoff(final Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    @JsonProperty
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    @JsonProperty
+    public void setMaxBackoff(final Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    @JsonProperty
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    @JsonProperty
+    public void setBackoffMultiplier(final double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    @JsonProperty
+    public Set<Status.Code> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    @JsonProperty
+    public void setRetryableStatusCodes(final Set<Status.Code> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    @ValidationMethod(message = "maxBackoff must not be shorter than initialBackoff")
+    public boolean isValidMaxBackoff() {
+        return initialBackoff == null || maxBackoff == null
+                || maxBackoff.toNanoseconds() >= initialBackoff.toNanoseconds();
+    }
+
+    /**
+     * @return the policy as the {@code retryPolicy} of a method config of a gRPC service config
+     */
+    Map<String, Object> toServiceConfig() {
+        // the service config is parsed JSON, so numbers are doubles and durations are strings in seconds
+        final Map<String, Object> retryPolicy = new LinkedHashMap<>();
+        retryPolicy.put("maxAttempts", (double) maxAttempts);
+        retryPolicy.put("initialBackoff", seconds(initialBackoff));
+        retryPolicy.put("maxBackoff", seconds(maxBackoff));
+        retryPolicy.put("backoffMultiplier", backoffMultiplier);
+        final Set<Status.Code> sorted = EnumSet.noneOf(Status.Code.class);
+        sorted.addAll(retryableStatusCodes);
+        final List<Object> codes = new ArrayList<>();
+        for (final Status.Code code : sorted) {
+            codes.add(code.name());
+        }
+        retryPolicy.put("retryableStatusCodes", codes);
+        return retryPolicy;
+    }
+
+    private static String seconds(final Duration duration) {
+        final long nanos = duration.toNanoseconds();
+        return String.format("%d.%09ds", TimeUnit.NANOSECONDS.toSeconds(nanos), nanos % TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,75 @@
+package io.dropwizard.grpc.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A factory for the retry throttling of a channel, which stops retries while many calls fail so that retries do not
+ * add to the load of an overloaded server, see {@link GrpcChannelFactory}.
+ * <p>
+ * The channel holds up to {@code maxTokens} tokens. Each failed attempt takes a token, each successful call returns
+ * {@code tokenRatio} tokens, and calls are only retried while more than half of the tokens are left.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxTokens}</td>
+ * <td>10</td>
+ * <td>The number of tokens, at most 1000.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code tokenRatio}</td>
+ * <td>0.1</td>
+ * <td>The tokens returned by each successful call.</td>
+ * </tr>
+ * </table>
+ */
+public class RetryThrottlingFactory {
+    @Min(1)
+    @Max(1000)
+    private int maxTokens = 10;
+
+    @DecimalMin(value = "0", inclusive = false)
+    private double tokenRatio = 0.1;
+
+    @JsonProperty
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    @JsonProperty
+    public void setMaxTokens(final int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    @JsonProperty
+    public double getTokenRatio() {
+        return tokenRatio;
+    }
+
+    @JsonProperty
+    public void setTokenRatio(final double tokenRatio) {
+        this.tokenRatio = tokenRatio;
+    }
+
+    /**
+     * @return the throttling as the {@code retryThrottling} of a gRPC service config
+     */
+    Map<String, Object> toServiceConfig() {
+        final Map<String, Object> retryThrottling = new LinkedHashMap<>();
+        retryThrottling.put("maxTokens", (double) maxTokens);
+        retryThrottling.put("tokenRatio", tokenRatio);
+        return retryThrottling;
+    }
+}
@@ -0,0 +1,95 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.internal.GrpcAttributes;
+
+/**
+ * {@link NameResolver.Factory} whose resolvers pass a default service config to the channel along with the addresses
+ * resolved by the resolvers of another factory, unless those provide a service config themselves.
+ * <p>
+ * gRPC 1.13 has no other way to set the service config of a channel, which holds e.g. the retry policies of its
+ * methods. The channel reads it from the {@link GrpcAttributes#NAME_RESOLVER_SERVICE_CONFIG} attribute.
+ */
+final class ServiceConfigNameResolverFactory extends NameResolver.Factory {
+    private final NameResolver.Factory delegate;
+    private final Map<String, Object> serviceConfig;
+
+    /**
+     * @param delegate factory of the resolvers which resolve the addresses
+     * @param serviceConfig the service config as parsed from its JSON form
+     */
+    ServiceConfigNameResolverFactory(final NameResolver.Factory delegate, final Map<String, Object> serviceConfig) {
+        this.delegate = checkNotNull(delegate, "delegate");
+        this.serviceConfig = ImmutableMap.copyOf(checkNotNull(serviceConfig, "serviceConfig"));
+    }
+
+    @Nullable
+    @Override
+    public NameResolver newNameResolver(final URI targetUri, final Attributes params) {
+        final NameResolver resolver = delegate.newNameResolver(targetUri, params);
+        return resolver == null ? null : new ServiceConfigNameResolver(resolver, serviceConfig);
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return delegate.getDefaultScheme();
+    }
+
+    private static final class ServiceConfigNameResolver extends NameResolver {
+        private final NameResolver delegate;
+        private final Map<String, Object> serviceConfig;
+
+        ServiceConfigNameResolver(final NameResolver delegate, final Map<String, Object> serviceConfig) {
+            this.delegate = delegate;
+            this.serviceConfig = serviceConfig;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return delegate.getServiceAuthority();
+        }
+
+        @Override
+        public void start(final Listener listener) {
+            delegate.start(new Listener() {
+                @Override
+                public void onAddresses(final List<EquivalentAddressGroup> servers, final Attributes attributes) {
+                    if (attributes.get(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG) != null) {
+                        listener.onAddresses(servers, attributes);
+                    } else {
+                        listener.onAddresses(servers, attributes.toBuilder()
+                            .set(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG, serviceConfig).build());
+                    }
+                }
+
+                @Override
+                public void onError(final Status error) {
+                    listener.onError(error);
+                }
+            });
+        }
+
+        @Override
+        public void refresh() {
+            delegate.refresh();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * {@link NameResolver.Factory} of resolvers of a static list of {@code <host>:<port>} addresses, for channels which
+ * balance calls across a known set of servers without a DNS name covering all of them.
+ * <p>
+ * The resolvers resolve the hosts when they are started and whenever the channel refreshes them, e.g. after a
+ * connection failed. Each address a host resolves to becomes its own subchannel, hosts which cannot be resolved are
+ * skipped unless none can be resolved. The hosts are resolved with the JVM's resolver on a shared pool of daemon
+ * threads, so that the channel is never blocked by a lookup.
+ * <p>
+ * Channels use the resolvers for targets with the {@value #SCHEME} scheme, e.g. {@code static:///}, the target's
+ * authority and path are ignored. The authority of the calls is the first address of the list.
+ */
+public final class StaticNameResolverFactory extends NameResolver.Factory {
+    /**
+     * Scheme of the targets the factory resolves.
+     */
+    public static final String SCHEME = "static";
+
+    private static final class ExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newCachedThreadPool(new DefaultThreadFactory("grpc-client-static-resolver", true));
+    }
+
+    private final List<HostAndPort> addresses;
+
+    /**
+     * @param addresses {@code <host>:<port>} addresses to resolve, IPv6 hosts in brackets
+     * @throws IllegalArgumentException if the list is empty or an address has no port
+     */
+    public StaticNameResolverFactory(final List<String> addresses) {
+        checkNotNull(addresses, "addresses");
+        checkArgument(!addresses.isEmpty(), "addresses is empty");
+        final ImmutableList.Builder<HostAndPort> parsed = ImmutableList.builder();
+        for (final String address : addresses) {
+            final HostAndPort hostAndPort = HostAndPort.fromString(address);
+            checkArgument(hostAndPort.hasPort(), "address %s has no port", address);
+            parsed.add(hostAndPort);
+        }
+        this.addresses = parsed.build();
+    }
+
+    @Nullable
+    @Override
+    public NameResolver newNameResolver(final URI targetUri, final Attributes params) {
+        if (!SCHEME.equals(targetUri.getScheme())) {
+            return null;
+        }
+        return new StaticNameResolver(addresses, ExecutorHolder.EXECUTOR);
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    private static final class StaticNameResolver extends NameResolver {
+        private final List<HostAndPort> addresses;
+        private final Executor executor;
+        private Listener listener;
+        private boolean resolving;
+        private boolean shutdown;
+
+        StaticNameResolver(final List<HostAndPort> addresses, final Executor executor) {
+            this.addresses = addresses;
+            this.executor = executor;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return addresses.get(0).toString();
+        }
+
+        @Override
+        public synchronized void start(final Listener listener) {
+            checkState(this.listener == null, "already started");
+            this.listener = checkNotNull(listener, "listener");
+            resolve();
+        }
+
+        @Override
+        public synchronized void refresh() {
+            if (listener != null) {
+                resolve();
+            }
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+        }
+
+        private void resolve() {
+            if (resolving || shutdown) {
+                return;
+            }
+            resolving = true;
+            final Listener resolvedListener = listener;
+            executor.execute(() -> {
+                try {
+                    lookup(resolvedListener);
+                } finally {
+                    synchronized (this) {
+                        resolving = false;
+                    }
+                }
+            });
+        }
+
+        private void lookup(final Listener resolvedListener) {
+            final List<EquivalentAddressGroup> groups = new ArrayList<>();
+            UnknownHostException failure = null;
+            for (final HostAndPort address : addresses) {
+                try {
+                    for (final InetAddress inetAddress : InetAddress.getAllByName(address.getHost())) {
+                        groups.add(new EquivalentAddressGroup(
+                            new InetSocketAddress(inetAddress, address.getPort())));
+                    }
+                } catch (final UnknownHostException e) {
+                    failure = e;
+                }
+            }
+            synchronized (this) {
+                if (shutdown) {
+                    return;
+                }
+            }
+            if (groups.isEmpty()) {
+                resolvedListener.onError(Status.UNAVAILABLE.withDescription("Unable to resolve " + addresses)
+                    .withCause(failure));
+            } else {
+                resolvedListener.onAddresses(groups, Attributes.EMPTY);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.dropwizard.grpc.client;
+
+import java.net.SocketAddress;
+
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Builders of channels to servers listening on Unix domain sockets, which require the native epoll transport.
+ * <p>
+ * The epoll transport is an optional dependency, its classes are only touched after it has been checked to be
+ * available. The channels share an event loop group of daemon threads, which lives as long as the JVM, like gRPC's
+ * shared event loop group of the NIO transport.
+ */
+final class UnixDomainSockets {
+    static final String SCHEME = "unix:";
+
+    private static final class EventLoopGroupHolder {
+        private static final EventLoopGroup EVENT_LOOP_GROUP =
+                new EpollEventLoopGroup(0, new DefaultThreadFactory("grpc-client-unix", true));
+    }
+
+    // loaded only if the epoll transport is available, as verifying it requires its classes
+    private static final class DomainSocketAddresses {
+        static SocketAddress of(final String path) {
+            return new DomainSocketAddress(path);
+        }
+    }
+
+    // prevent instantiation
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * @param target {@code unix:<path>} or {@code unix://<absolute path>}
+     * @return a new channel builder for the socket at the path of the target
+     * @throws IllegalStateException if the epoll transport is not available
+     */
+    static NettyChannelBuilder channelBuilder(final String target) {
+        if (!isEpollAvailable()) {
+            throw new IllegalStateException("Unix domain sockets require the native epoll transport, add "
+                    + "io.netty:netty-transport-native-epoll with the linux-x86_64 classifier to the classpath");
+        }
+        return NettyChannelBuilder.forAddress(DomainSocketAddresses.of(path(target)))
+            .channelType(EpollDomainSocketChannel.class)
+            .eventLoopGroup(EventLoopGroupHolder.EVENT_LOOP_GROUP)
+            // the default authority would be the path, which is not a valid authority
+            .overrideAuthority("localhost");
+    }
+
+    static String path(final String target) {
+        final String path = target.substring(SCHEME.length());
+        // unix://<absolute path> with an empty authority
+        return path.startsWith("//") ? path.substring(2) : path;
+    }
+
+    private static boolean isEpollAvailable() {
+        try {
+            Class.forName("io.netty.channel.epoll.Epoll", false, UnixDomainSockets.class.getClassLoader());
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        return Epoll.isAvailable();
+    }
+}
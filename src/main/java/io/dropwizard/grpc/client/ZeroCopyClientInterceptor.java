@@ -0,0 +1,45 @@
+package io.dropwizard.grpc.client;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.dropwizard.grpc.ZeroCopyProtoMarshaller;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+/**
+ * {@link ClientInterceptor} which sends the requests and parses the responses of selected methods with
+ * {@link ZeroCopyProtoMarshaller}s.
+ */
+final class ZeroCopyClientInterceptor implements ClientInterceptor {
+    private final Set<String> methods;
+    private final ConcurrentMap<MethodDescriptor<?, ?>, MethodDescriptor<?, ?>> rebound = new ConcurrentHashMap<>();
+
+    /**
+     * @param methods full method names ({@code <full service name>/<method name>}) or full service names
+     */
+    ZeroCopyClientInterceptor(final Set<String> methods) {
+        this.methods = new HashSet<>(checkNotNull(methods, "methods"));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+            final CallOptions callOptions, final Channel next) {
+        final String fullMethodName = method.getFullMethodName();
+        if (!methods.contains(fullMethodName)
+                && !methods.contains(MethodDescriptor.extractFullServiceName(fullMethodName))) {
+            return next.newCall(method, callOptions);
+        }
+        // method descriptors are usually constants of the generated stubs, so each is rebound once
+        return next.newCall((MethodDescriptor<ReqT, RespT>) rebound.computeIfAbsent(method,
+            ZeroCopyProtoMarshaller::rebind), callOptions);
+    }
+}
@@ -0,0 +1,184 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit which is adjusted from the round-trip times of completed calls.
+ * <p>
+ * Samples are taken for every completed call, together with the number of calls which were in progress when the call
+ * was started. They are gathered without locking in windows of {@value #WINDOW_SIZE} samples, and the limit is
+ * adjusted once per window from the lowest round-trip time of the window, the highest number of calls in progress and
+ * whether any call failed because it took too long, so that completing calls do not contend for a lock. The limit
+ * only grows while the server is actually busy: windows in which less than half of the limit was in use do not
+ * increase it.
+ */
+abstract class AdaptiveLimit {
+    // number of samples per window
+    static final int WINDOW_SIZE = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final AtomicInteger windowSamples = new AtomicInteger();
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private volatile boolean windowDropped;
+    // guarded by this
+    double estimatedLimit;
+    private volatile int limit;
+
+    AdaptiveLimit(final int initialLimit, final int minLimit, final int maxLimit, final double smoothing) {
+        checkArgument(minLimit >= 1 && minLimit <= initialLimit && initialLimit <= maxLimit,
+            "minLimit <= initialLimit <= maxLimit must hold");
+        checkArgument(smoothing > 0 && smoothing <= 1, "smoothing must be in (0, 1]");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return the current number of calls which may be in progress at the same time
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param rttNanos round-trip time of the call
+     * @param inFlight number of calls in progress when the call was started, including the call itself
+     * @param dropped whether the call failed because it took too long, e.g. with {@code DEADLINE_EXCEEDED}
+     */
+    void onSample(final long rttNanos, final int inFlight, final boolean dropped) {
+        windowMinRtt.accumulateAndGet(Math.max(1, rttNanos), Math::min);
+        windowMaxInFlight.accumulateAndGet(inFlight, Math::max);
+        if (dropped) {
+            windowDropped = true;
+        }
+        // exactly one sample completes the window; samples racing with the adjustment may end up in either window
+        if (windowSamples.incrementAndGet() == WINDOW_SIZE) {
+            adjust();
+        }
+    }
+
+    private synchronized void adjust() {
+        final long rtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+        final int inFlight = windowMaxInFlight.getAndSet(0);
+        final boolean dropped = windowDropped;
+        windowDropped = false;
+        final int samples = windowSamples.getAndSet(0);
+        final double newLimit = nextLimit(rtt, inFlight, dropped, samples);
+        if (Double.isNaN(newLimit)) {
+            return;
+        }
+        final double bounded = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        estimatedLimit = estimatedLimit * (1 - smoothing) + bounded * smoothing;
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Called with the lock held, once per window.
+     *
+     * @param rttNanos lowest round-trip time of the window
+     * @param inFlight highest number of calls in progress of the window
+     * @param dropped whether a call of the window failed because it took too long
+     * @param samples number of samples of the window
+     * @return the new limit before smoothing and bounds are applied, or {@link Double#NaN} to keep the current limit
+     */
+    abstract double nextLimit(long rttNanos, int inFlight, boolean dropped, int samples);
+
+    static double log10(final double limit) {
+        return Math.max(1, Math.log10(limit));
+    }
+
+    /**
+     * Compares the round-trip time of each window with a long-term average: the limit shrinks while calls take longer
+     * than {@code tolerance} times the average, and grows by a small queue of {@code sqrt(limit)} otherwise.
+     */
+    static final class Gradient extends AdaptiveLimit {
+        // number of windows the long-term average roughly covers
+        private static final int WINDOWS = 60;
+
+        private final double tolerance;
+        // guarded by this
+        private double longRtt;
+
+        Gradient(final int initialLimit, final int minLimit, final int maxLimit, final double smoothing,
+                final double tolerance) {
+            super(initialLimit, minLimit, maxLimit, smoothing);
+            checkArgument(tolerance >= 1, "tolerance must be at least 1");
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        double nextLimit(final long rttNanos, final int inFlight, final boolean dropped, final int samples) {
+            if (longRtt == 0) {
+                longRtt = rttNanos;
+            } else {
+                longRtt += (rttNanos - longRtt) * 2 / (WINDOWS + 1);
+            }
+            // recover quickly from a load spike which has inflated the long-term average
+            if (longRtt / rttNanos > 2) {
+                longRtt *= 0.95;
+            }
+            if (!dropped && inFlight < estimatedLimit / 2) {
+                return Double.NaN;
+            }
+            final double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rttNanos));
+            return estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        }
+    }
+
+    /**
+     * Estimates the number of queued calls from the round-trip time of each window and the lowest round-trip time
+     * observed, i.e. without queueing: the limit grows while fewer than {@code 3 * log10(limit)} calls are queued and
+     * shrinks while more than {@code 6 * log10(limit)} calls are queued. The lowest round-trip time is measured anew
+     * every {@code 30 * limit} samples, so that the limit follows changes of the service time.
+     */
+    static final class Vegas extends AdaptiveLimit {
+        private static final int PROBE_MULTIPLIER = 30;
+
+        // guarded by this
+        private long rttNoLoad;
+        // guarded by this
+        private long samples;
+
+        Vegas(final int initialLimit, final int minLimit, final int maxLimit, final double smoothing) {
+            super(initialLimit, minLimit, maxLimit, smoothing);
+        }
+
+        @Override
+        double nextLimit(final long rttNanos, final int inFlight, final boolean dropped, final int windowSamples) {
+            samples += windowSamples;
+            if (samples >= PROBE_MULTIPLIER * estimatedLimit) {
+                samples = 0;
+                rttNoLoad = rttNanos;
+                return Double.NaN;
+            }
+            if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+                rttNoLoad = rttNanos;
+                return Double.NaN;
+            }
+            final double log10 = log10(estimatedLimit);
+            if (dropped) {
+                return estimatedLimit - log10;
+            }
+            if (inFlight < estimatedLimit / 2) {
+                return Double.NaN;
+            }
+            final double queueSize = Math.ceil(estimatedLimit * (1 - (double) rttNoLoad / rttNanos));
+            if (queueSize <= log10) {
+                return estimatedLimit + 6 * log10;
+            } else if (queueSize < 3 * log10) {
+                return estimatedLimit + log10;
+            } else if (queueSize > 6 * log10) {
+                return estimatedLimit - log10;
+            }
+            return Double.NaN;
+        }
+    }
+}
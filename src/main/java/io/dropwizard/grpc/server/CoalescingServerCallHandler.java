@@ -0,0 +1,304 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Meter;
+
+import io.dropwizard.grpc.server.SerializedMessages.Key;
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * {@link ServerCallHandler} which coalesces concurrent calls to a unary method with byte-identical requests: the first
+ * call is passed to the handler of the method, and calls with the same request which arrive before it completes wait
+ * for its response, which is sent to all of them.
+ * <p>
+ * Like {@link ResponseCachingServerCallHandler}, the handler is bound to a copy of the method which transfers requests
+ * and responses as byte arrays. The shared call runs in a {@link Context} forked from the context of the first call,
+ * so it is only cancelled once all waiting calls have been cancelled, and it has no deadline of its own.
+ *
+ * @param <ReqT> type of the requests of the method
+ * @param <RespT> type of the responses of the method
+ */
+final class CoalescingServerCallHandler<ReqT, RespT> implements ServerCallHandler<byte[], byte[]> {
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final ServerCallHandler<ReqT, RespT> next;
+    private final ConcurrentMap<Key, SharedCall> sharedCalls = new ConcurrentHashMap<>();
+    private final Meter calls;
+    private final Meter coalesced;
+
+    /**
+     * @param method the unary method whose calls are coalesced
+     * @param next handler of the method
+     * @param calls meter of all calls
+     * @param coalesced meter of the calls which waited for the response of another call
+     */
+    CoalescingServerCallHandler(final MethodDescriptor<ReqT, RespT> method, final ServerCallHandler<ReqT, RespT> next,
+            final Meter calls, final Meter coalesced) {
+        checkArgument(method.getType() == MethodDescriptor.MethodType.UNARY, "Only unary methods can be coalesced");
+        this.method = method;
+        this.next = checkNotNull(next, "next");
+        this.calls = checkNotNull(calls, "calls");
+        this.coalesced = checkNotNull(coalesced, "coalesced");
+    }
+
+    @Override
+    public ServerCall.Listener<byte[]> startCall(final ServerCall<byte[], byte[]> call, final Metadata headers) {
+        // like the unary handlers of gRPC, so that a second request is detected
+        call.request(2);
+        return new CoalescingListener(call, headers);
+    }
+
+    private static Metadata copyOf(final Metadata metadata) {
+        final Metadata copy = new Metadata();
+        copy.merge(metadata);
+        return copy;
+    }
+
+    /**
+     * Waits for the request, then joins the shared call for the request or starts it.
+     */
+    private final class CoalescingListener extends ServerCall.Listener<byte[]> {
+        private final ServerCall<byte[], byte[]> call;
+        private final Metadata headers;
+        @Nullable
+        private byte[] request;
+        @Nullable
+        private SharedCall sharedCall;
+        private boolean closed;
+
+        CoalescingListener(final ServerCall<byte[], byte[]> call, final Metadata headers) {
+            this.call = call;
+            this.headers = headers;
+        }
+
+        @Override
+        public void onMessage(final byte[] message) {
+            if (request != null) {
+                closed = true;
+                call.close(Status.INTERNAL.withDescription("Too many requests"), new Metadata());
+                return;
+            }
+            request = message;
+        }
+
+        @Override
+        public void onHalfClose() {
+            if (closed) {
+                return;
+            }
+            if (request == null) {
+                closed = true;
+                call.close(Status.INTERNAL.withDescription("Half-closed without a request"), new Metadata());
+                return;
+            }
+            calls.mark();
+            final Key key = new Key(request);
+            while (true) {
+                final SharedCall created = new SharedCall(key, call);
+                final SharedCall existing = sharedCalls.putIfAbsent(key, created);
+                if (existing == null) {
+                    sharedCall = created;
+                    created.start(headers);
+                    return;
+                }
+                if (existing.join(call)) {
+                    coalesced.mark();
+                    sharedCall = existing;
+                    return;
+                }
+                // the existing call has completed in the meantime and is no longer shared
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            if (sharedCall != null) {
+                sharedCall.leave(call);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (sharedCall != null) {
+                sharedCall.complete();
+            }
+        }
+    }
+
+    /**
+     * The call passed to the handler of the method on behalf of all waiting calls. The response is buffered and sent
+     * to each waiting call when the handler closes the call.
+     */
+    private final class SharedCall extends ServerCall<ReqT, RespT> {
+        private final Key key;
+        private final ServerCall<byte[], byte[]> first;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // guarded by this
+        private final List<ServerCall<byte[], byte[]>> waiting = new ArrayList<>(1);
+        // guarded by this
+        private boolean done;
+        @Nullable
+        private volatile Context.CancellableContext context;
+        @Nullable
+        private volatile ServerCall.Listener<ReqT> delegate;
+        @Nullable
+        private Metadata headers;
+        @Nullable
+        private byte[] response;
+
+        SharedCall(final Key key, final ServerCall<byte[], byte[]> first) {
+            this.key = key;
+            this.first = first;
+            waiting.add(first);
+        }
+
+        /**
+         * @param call to wait for the response of this call
+         * @return whether the call has joined, otherwise this call has already completed
+         */
+        synchronized boolean join(final ServerCall<byte[], byte[]> call) {
+            if (done) {
+                return false;
+            }
+            waiting.add(call);
+            return true;
+        }
+
+        /**
+         * Passes this call to the handler of the method.
+         *
+         * @param requestHeaders of the first call
+         */
+        void start(final Metadata requestHeaders) {
+            final ReqT request;
+            try {
+                request = method.parseRequest(new ByteArrayInputStream(key.getBytes()));
+            } catch (final StatusRuntimeException e) {
+                close(e.getStatus(), new Metadata());
+                return;
+            }
+            // the cancellation of the first call must not cancel the work done for the other calls
+            final Context.CancellableContext forked = Context.current().fork().withCancellation();
+            context = forked;
+            final Context previous = forked.attach();
+            try {
+                final ServerCall.Listener<ReqT> listener = next.startCall(this, requestHeaders);
+                delegate = listener;
+                listener.onMessage(request);
+                listener.onHalfClose();
+            } finally {
+                forked.detach(previous);
+            }
+        }
+
+        /**
+         * Removes a cancelled call, and cancels this call if no other calls wait for it.
+         */
+        void leave(final ServerCall<byte[], byte[]> call) {
+            synchronized (this) {
+                if (done || !waiting.remove(call) || !waiting.isEmpty()) {
+                    return;
+                }
+                done = true;
+                sharedCalls.remove(key, this);
+            }
+            final Context.CancellableContext forked = context;
+            if (forked != null) {
+                forked.cancel(null);
+            }
+            final ServerCall.Listener<ReqT> listener = delegate;
+            if (listener != null) {
+                listener.onCancel();
+            }
+        }
+
+        /**
+         * Notifies the handler of the method once the response has been sent to a waiting call.
+         */
+        void complete() {
+            final ServerCall.Listener<ReqT> listener = delegate;
+            if (listener != null && completed.compareAndSet(false, true)) {
+                listener.onComplete();
+            }
+        }
+
+        @Override
+        public void request(final int numMessages) {
+            // the request has been delivered by start()
+        }
+
+        @Override
+        public void sendHeaders(final Metadata responseHeaders) {
+            headers = responseHeaders;
+        }
+
+        @Override
+        public void sendMessage(final RespT message) {
+            response = SerializedMessages.toByteArray(method.streamResponse(message));
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            final List<ServerCall<byte[], byte[]>> calls;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                sharedCalls.remove(key, this);
+                calls = new ArrayList<>(waiting);
+            }
+            for (final ServerCall<byte[], byte[]> call : calls) {
+                if (headers != null || response != null) {
+                    call.sendHeaders(headers == null ? new Metadata() : copyOf(headers));
+                }
+                if (response != null) {
+                    call.sendMessage(response);
+                }
+                call.close(status, copyOf(trailers));
+            }
+            final Context.CancellableContext forked = context;
+            if (forked != null) {
+                forked.cancel(null);
+            }
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return done && waiting.isEmpty();
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return first.getAttributes();
+        }
+
+        @Nullable
+        @Override
+        public String getAuthority() {
+            return first.getAuthority();
+        }
+
+        @Override
+        public MethodDescriptor<ReqT, RespT> getMethodDescriptor() {
+            return method;
+        }
+    }
+}
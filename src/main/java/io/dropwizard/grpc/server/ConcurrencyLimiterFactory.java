@@ -0,0 +1,219 @@
+package io.dropwizard.grpc.server;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.validation.ValidationMethod;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerInterceptor;
+
+/**
+ * A factory for adaptive concurrency limiters, which reject calls with {@code RESOURCE_EXHAUSTED} once the number of
+ * calls in progress exceeds a limit that is adjusted from the observed round-trip times of calls.
+ * <p>
+ * Only unary methods are limited: streaming calls may last arbitrarily long, so they would hold a slot of the limiter
+ * for their whole lifetime and their durations would drive the limit down. The health service
+ * {@code grpc.health.v1.Health} is never limited, so that health checks are answered while the server sheds load.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code algorithm}</td>
+ * <td>gradient</td>
+ * <td>{@code gradient} shrinks the limit while round-trip times exceed their long-term average by more than
+ * {@code tolerance}. {@code vegas} estimates the number of queued calls from the lowest observed round-trip time and
+ * keeps it between {@code 3 * log10(limit)} and {@code 6 * log10(limit)}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code scope}</td>
+ * <td>method</td>
+ * <td>{@code method} limits each method separately, {@code service} limits all methods of a service together.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code initialLimit}</td>
+ * <td>20</td>
+ * <td>The limit before any calls have completed.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code minLimit}</td>
+ * <td>1</td>
+ * <td>The lower bound of the limit.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxLimit}</td>
+ * <td>1000</td>
+ * <td>The upper bound of the limit.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code smoothing}</td>
+ * <td>0.2</td>
+ * <td>How much of each adjustment is applied to the limit, between 0 (exclusive) and 1.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code tolerance}</td>
+ * <td>1.5</td>
+ * <td>How much longer than their long-term average round-trip times of a {@code gradient} limiter may be before the
+ * limit shrinks.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * Each limiter registers the following metrics, prefixed with {@code grpc.server.<full service name>.<method name>}
+ * or {@code grpc.server.<full service name>} depending on the {@code scope}: {@code limiter.limit} (gauge of the
+ * current limit), {@code limiter.inFlight} (gauge of the calls in progress) and {@code limiter.rejected} (meter of
+ * calls rejected with {@code RESOURCE_EXHAUSTED}).
+ */
+public class ConcurrencyLimiterFactory {
+    /**
+     * Algorithms adjusting the limit.
+     */
+    public enum Algorithm {
+        GRADIENT, VEGAS
+    }
+
+    /**
+     * Scopes of a limiter.
+     */
+    public enum Scope {
+        METHOD, SERVICE
+    }
+
+    @NotNull
+    private Algorithm algorithm = Algorithm.GRADIENT;
+
+    @NotNull
+    private Scope scope = Scope.METHOD;
+
+    @Min(1)
+    private int initialLimit = 20;
+
+    @Min(1)
+    private int minLimit = 1;
+
+    @Min(1)
+    private int maxLimit = 1000;
+
+    @DecimalMin(value = "0", inclusive = false)
+    @DecimalMax("1")
+    private double smoothing = 0.2;
+
+    @DecimalMin("1")
+    private double tolerance = 1.5;
+
+    @JsonProperty
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @JsonProperty
+    public void setAlgorithm(final Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    @JsonProperty
+    public Scope getScope() {
+        return scope;
+    }
+
+    @JsonProperty
+    public void setScope(final Scope scope) {
+        this.scope = scope;
+    }
+
+    @JsonProperty
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @JsonProperty
+    public void setInitialLimit(final int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    @JsonProperty
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    @JsonProperty
+    public void setMinLimit(final int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    @JsonProperty
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @JsonProperty
+    public void setMaxLimit(final int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    @JsonProperty
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    @JsonProperty
+    public void setSmoothing(final double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    @JsonProperty
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    @JsonProperty
+    public void setTolerance(final double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @ValidationMethod(message = "minLimit <= initialLimit <= maxLimit must hold")
+    public boolean isValidLimits() {
+        return minLimit <= initialLimit && initialLimit <= maxLimit;
+    }
+
+    /**
+     * @param method to limit
+     * @return the name of the limiter for the given method, which is shared by all methods with the same name
+     */
+    String limiterName(final MethodDescriptor<?, ?> method) {
+        final String fullMethodName = method.getFullMethodName();
+        final String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+        return scope == Scope.SERVICE ? serviceName
+                : MetricRegistry.name(serviceName, fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * @param metrics to register the limiter metrics in
+     * @param prefix of the metric names, e.g. {@code grpc.server}
+     * @param name of the limiter, see {@link #limiterName(MethodDescriptor)}
+     * @return a new limiter
+     */
+    ServerInterceptor build(final MetricRegistry metrics, final String prefix, final String name) {
+        final AdaptiveLimit limit;
+        if (algorithm == Algorithm.VEGAS) {
+            limit = new AdaptiveLimit.Vegas(initialLimit, minLimit, maxLimit, smoothing);
+        } else {
+            limit = new AdaptiveLimit.Gradient(initialLimit, minLimit, maxLimit, smoothing, tolerance);
+        }
+        final ConcurrencyLimitingServerInterceptor limiter = new ConcurrencyLimitingServerInterceptor(limit,
+            metrics.meter(MetricRegistry.name(prefix, name, "limiter", "rejected")));
+        metrics.register(MetricRegistry.name(prefix, name, "limiter", "limit"), (Gauge<Integer>) limiter::getLimit);
+        metrics.register(MetricRegistry.name(prefix, name, "limiter", "inFlight"),
+            (Gauge<Integer>) limiter::getInFlight);
+        return limiter;
+    }
+}
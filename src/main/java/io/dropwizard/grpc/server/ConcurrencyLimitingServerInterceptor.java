@@ -0,0 +1,129 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Meter;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * {@link ServerInterceptor} which limits the number of calls in progress to an {@link AdaptiveLimit}.
+ * <p>
+ * Calls over the limit are closed immediately with {@link Status#RESOURCE_EXHAUSTED} without invoking the service, so
+ * that an overloaded server sheds load instead of queueing it. The round-trip time of every admitted call is reported
+ * to the limit when the call is closed. Calls which are cancelled, e.g. because the client went away, release their
+ * slot without being sampled.
+ */
+final class ConcurrencyLimitingServerInterceptor implements ServerInterceptor {
+    private static final ServerCall.Listener<Object> NOOP_LISTENER = new ServerCall.Listener<Object>() {
+    };
+
+    private final AdaptiveLimit limit;
+    private final Meter rejected;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    ConcurrencyLimitingServerInterceptor(final AdaptiveLimit limit, final Meter rejected) {
+        this.limit = checkNotNull(limit, "limit");
+        this.rejected = checkNotNull(rejected, "rejected");
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call,
+            final Metadata headers, final ServerCallHandler<ReqT, RespT> next) {
+        final int current = inFlight.incrementAndGet();
+        if (current > limit.getLimit()) {
+            inFlight.decrementAndGet();
+            rejected.mark();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Concurrency limit exceeded"), new Metadata());
+            return noopListener();
+        }
+        final LimitedServerCall<ReqT, RespT> limitedCall = new LimitedServerCall<>(this, call, current);
+        final ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(limitedCall, headers);
+        } catch (final RuntimeException e) {
+            limitedCall.release(null);
+            throw e;
+        }
+        return new LimitedServerCallListener<>(listener, limitedCall);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <ReqT> ServerCall.Listener<ReqT> noopListener() {
+        return (ServerCall.Listener<ReqT>) NOOP_LISTENER;
+    }
+
+    private static final class LimitedServerCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LimitedServerCall> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(LimitedServerCall.class, "released");
+
+        private final ConcurrencyLimitingServerInterceptor interceptor;
+        private final int inFlight;
+        private final long startNanos;
+        private volatile int released;
+
+        LimitedServerCall(final ConcurrencyLimitingServerInterceptor interceptor,
+                final ServerCall<ReqT, RespT> delegate, final int inFlight) {
+            super(delegate);
+            this.interceptor = interceptor;
+            this.inFlight = inFlight;
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            release(status.getCode());
+            super.close(status, trailers);
+        }
+
+        /**
+         * @param code the call was closed with, or {@code null} if it was cancelled or failed to start
+         */
+        void release(@Nullable final Status.Code code) {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                interceptor.inFlight.decrementAndGet();
+                if (code != null) {
+                    interceptor.limit.onSample(System.nanoTime() - startNanos, inFlight,
+                        code == Status.Code.DEADLINE_EXCEEDED);
+                }
+            }
+        }
+    }
+
+    private static final class LimitedServerCallListener<ReqT>
+            extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
+        private final LimitedServerCall<ReqT, ?> call;
+
+        LimitedServerCallListener(final ServerCall.Listener<ReqT> delegate, final LimitedServerCall<ReqT, ?> call) {
+            super(delegate);
+            this.call = call;
+        }
+
+        @Override
+        public void onCancel() {
+            call.release(null);
+            super.onCancel();
+        }
+    }
+}
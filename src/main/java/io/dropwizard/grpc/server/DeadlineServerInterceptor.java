@@ -0,0 +1,63 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Meter;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * {@link ServerInterceptor} which rejects calls with {@link Status#DEADLINE_EXCEEDED} if less than a minimum of their
+ * deadline remains, so that the service does not do work whose result the client would throw away.
+ * <p>
+ * The deadline is taken from the {@code grpc-timeout} header of the call when it arrives, so the time a call waits in
+ * the queue of an executor counts against it. {@link DropwizardServerBuilder} therefore checks calls when they arrive
+ * and again when they are started on the executor. Calls without a deadline are never rejected.
+ */
+final class DeadlineServerInterceptor implements ServerInterceptor {
+    private static final ServerCall.Listener<Object> NOOP_LISTENER = new ServerCall.Listener<Object>() {
+    };
+
+    private final long minRemainingNanos;
+    private final Meter rejected;
+
+    /**
+     * @param minRemainingNanos minimum time remaining until the deadline of a call, calls whose deadline has expired
+     *            are rejected if this is 0
+     * @param rejected meter of the rejected calls
+     */
+    DeadlineServerInterceptor(final long minRemainingNanos, final Meter rejected) {
+        this.minRemainingNanos = minRemainingNanos;
+        this.rejected = checkNotNull(rejected, "rejected");
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call,
+            final Metadata headers, final ServerCallHandler<ReqT, RespT> next) {
+        final Deadline deadline = Context.current().getDeadline();
+        if (deadline != null) {
+            final long remainingNanos = deadline.timeRemaining(TimeUnit.NANOSECONDS);
+            if (remainingNanos <= 0 || remainingNanos < minRemainingNanos) {
+                rejected.mark();
+                call.close(Status.DEADLINE_EXCEEDED.withDescription(
+                    "Deadline too short, " + TimeUnit.NANOSECONDS.toMillis(remainingNanos) + "ms remaining"),
+                    new Metadata());
+                return noopListener();
+            }
+        }
+        return next.startCall(call, headers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <ReqT> ServerCall.Listener<ReqT> noopListener() {
+        return (ServerCall.Listener<ReqT>) NOOP_LISTENER;
+    }
+}
@@ -0,0 +1,242 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * {@link ServerInterceptor} which runs calls on an application {@link Executor} while the gRPC server itself runs
+ * with a direct executor.
+ * <p>
+ * The interceptor is invoked on the transport thread. It hands the start of the call and all subsequent listener
+ * events to the executor, in order and one at a time per call. If the executor rejects the start of a call, e.g.
+ * because its queue is full, the call is closed immediately with {@link Status#RESOURCE_EXHAUSTED} without invoking
+ * the service. The events of a call which has already been started are never rejected: if the executor rejects them,
+ * the call is deferred with its queued events, and the executor threads run the deferred calls as soon as they have
+ * finished their current call, before they take new calls from the executor's queue. Events are never run on the
+ * transport thread, which must not block. Only if the executor has been shut down, a started call is closed with
+ * {@link Status#UNAVAILABLE}.
+ * <p>
+ * If a {@link PriorityClassifier} is given, each call is assigned to a priority class of a {@link WeightedFairExecutor}
+ * when it arrives. A call which has not been started yet may be shed by that executor, which closes it with the status
+ * given by the executor.
+ */
+final class DispatchingServerInterceptor implements ServerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(DispatchingServerInterceptor.class);
+
+    private final Executor executor;
+    private final Meter rejected;
+    @Nullable
+    private final PriorityClassifier classifier;
+    // started calls whose events the executor rejected, at most once each since their events are still pending
+    private final Queue<DispatchedCallListener<?, ?>> deferred = new ConcurrentLinkedQueue<>();
+    private final Runnable runDeferred = this::runDeferred;
+
+    DispatchingServerInterceptor(final Executor executor, final Meter rejected) {
+        this(executor, rejected, null);
+    }
+
+    DispatchingServerInterceptor(final Executor executor, final Meter rejected,
+            @Nullable final PriorityClassifier classifier) {
+        this.executor = checkNotNull(executor, "executor");
+        this.rejected = checkNotNull(rejected, "rejected");
+        this.classifier = classifier;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call,
+            final Metadata headers, final ServerCallHandler<ReqT, RespT> next) {
+        final DispatchedCallListener<ReqT, RespT> listener;
+        listener = new DispatchedCallListener<>(call, Context.current(),
+            classifier == null ? 0 : classifier.classify(call.getMethodDescriptor(), headers));
+        listener.start(next, headers);
+        return listener;
+    }
+
+    private void runDeferred() {
+        DispatchedCallListener<?, ?> listener;
+        while ((listener = deferred.poll()) != null) {
+            listener.drain();
+        }
+    }
+
+    /**
+     * Defers a started call whose events the executor rejected, so that the executor threads run its events without
+     * taking up a place in the executor's queue.
+     */
+    private void defer(final DispatchedCallListener<?, ?> listener) {
+        deferred.add(listener);
+        // an executor thread may have checked for deferred calls just before they were added, so that the call
+        // would wait for the next call to finish. If the executor rejects this as well, it is still saturated, and
+        // the threads check for deferred calls again when they have finished their current call.
+        try {
+            executor.execute(runDeferred);
+        } catch (final RejectedExecutionException e) {
+            if (isShutdown() && deferred.remove(listener)) {
+                listener.close(Status.UNAVAILABLE.withDescription("Server executor has been shut down"));
+            }
+        }
+    }
+
+    private boolean isShutdown() {
+        return executor instanceof ExecutorService && ((ExecutorService) executor).isShutdown();
+    }
+
+    private final class DispatchedCallListener<ReqT, RespT> extends ServerCall.Listener<ReqT>
+            implements WeightedFairExecutor.PrioritizedTask {
+        private final ServerCall<ReqT, RespT> call;
+        private final Context context;
+        private final int priorityClass;
+        private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        // only accessed while draining the events, which happens one thread at a time
+        private ServerCall.Listener<ReqT> delegate;
+        private volatile boolean started;
+        private volatile boolean closed;
+
+        DispatchedCallListener(final ServerCall<ReqT, RespT> call, final Context context, final int priorityClass) {
+            this.call = call;
+            this.context = context;
+            this.priorityClass = priorityClass;
+        }
+
+        @Override
+        public int getPriorityClass() {
+            return priorityClass;
+        }
+
+        @Nullable
+        @Override
+        public Deadline getDeadline() {
+            return context.getDeadline();
+        }
+
+        @Override
+        public boolean shed(final Status status) {
+            // only called by the executor instead of run(), so it never races with the start of the call
+            if (started) {
+                return false;
+            }
+            close(status);
+            return true;
+        }
+
+        void start(final ServerCallHandler<ReqT, RespT> next, final Metadata headers) {
+            dispatch(() -> delegate = next.startCall(call, headers));
+        }
+
+        @Override
+        public void onMessage(final ReqT message) {
+            dispatch(() -> delegate.onMessage(message));
+        }
+
+        @Override
+        public void onHalfClose() {
+            dispatch(() -> delegate.onHalfClose());
+        }
+
+        @Override
+        public void onCancel() {
+            dispatch(() -> delegate.onCancel());
+        }
+
+        @Override
+        public void onComplete() {
+            dispatch(() -> delegate.onComplete());
+        }
+
+        @Override
+        public void onReady() {
+            dispatch(() -> delegate.onReady());
+        }
+
+        private void dispatch(final Runnable event) {
+            if (closed) {
+                return;
+            }
+            events.add(event);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (final RejectedExecutionException e) {
+                    if (!started) {
+                        rejected.mark();
+                        close(Status.RESOURCE_EXHAUSTED.withDescription("Server executor is saturated"));
+                    } else if (isShutdown()) {
+                        close(Status.UNAVAILABLE.withDescription("Server executor has been shut down"));
+                    } else {
+                        defer(this);
+                    }
+                }
+            }
+        }
+
+        // only called while no thread drains the events
+        void close(final Status status) {
+            closed = true;
+            events.clear();
+            call.close(status, new Metadata());
+        }
+
+        @Override
+        public void run() {
+            drain();
+            runDeferred();
+        }
+
+        void drain() {
+            started = true;
+            final Context previous = context.attach();
+            try {
+                int drained;
+                do {
+                    drained = 0;
+                    Runnable event;
+                    while ((event = events.poll()) != null) {
+                        drained++;
+                        runEvent(event);
+                    }
+                } while (pending.addAndGet(-drained) != 0);
+            } finally {
+                context.detach(previous);
+            }
+        }
+
+        private void runEvent(final Runnable event) {
+            if (closed) {
+                return;
+            }
+            try {
+                event.run();
+            } catch (final RuntimeException e) {
+                log.error("Exception while executing call {}", call.getMethodDescriptor().getFullMethodName(), e);
+                closed = true;
+                call.close(Status.fromThrowable(e), new Metadata());
+            } catch (final Error e) {
+                closed = true;
+                call.close(Status.fromThrowable(e), new Metadata());
+                throw e;
+            }
+        }
+    }
+}
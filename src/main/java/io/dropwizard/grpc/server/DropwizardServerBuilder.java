@@ -3,69 +3,317 @@ package io.dropwizard.grpc.server;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+import io.dropwizard.grpc.ZeroCopyProtoMarshaller;
+import io.dropwizard.grpc.health.v1.HealthGrpc;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
 import io.grpc.BindableService;
 import io.grpc.CompressorRegistry;
 import io.grpc.DecompressorRegistry;
 import io.grpc.HandlerRegistry;
+import io.grpc.MethodDescriptor;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
+import io.grpc.ServerMethodDefinition;
 import io.grpc.ServerServiceDefinition;
 import io.grpc.ServerStreamTracer.Factory;
 import io.grpc.ServerTransportFilter;
+import io.grpc.ServiceDescriptor;
+import io.grpc.inprocess.InProcessServerBuilder;
 
 /**
  * {@link ServerBuilder} decorator which adds the resulting {@link Server} instance to the environment' lifecycle.
+ * <p>
+ * Every method of the services added via {@link #addService(ServerServiceDefinition)} and
+ * {@link #addService(BindableService)} is intercepted by a {@link MetricsServerInterceptor} which collects metrics
+ * in the environment's metric registry. The services are added to the underlying builder when {@link #build()} is
+ * called.
+ * <p>
+ * The built server is managed by a {@link ManagedGrpcServer}, which drains the server in phases when it is stopped.
+ * The number of calls in progress on the whole server is counted by {@code grpc.server.inFlight}, calls cancelled
+ * because they did not complete within the shutdown period are counted by {@code grpc.server.shutdown.cancelled}.
+ * <p>
+ * If a {@link ConcurrencyLimiterFactory} is set via {@link #concurrencyLimiter(ConcurrencyLimiterFactory)}, calls to
+ * the unary methods of the added services are admitted by adaptive concurrency limiters before they are handed to the
+ * executor, so that calls over the limit are rejected without waiting in its queue. Streaming calls, whose duration
+ * is no round-trip time, and calls to the health service, which must answer even when the server is overloaded, are
+ * not limited.
+ * <p>
+ * If a minimum deadline is set via {@link #minDeadline(Duration, Map)}, calls with less time remaining until their
+ * deadline are rejected with {@code DEADLINE_EXCEEDED} when they arrive, counted per method by
+ * {@code deadline.rejected}, and when they are started on the executor, counted per method by
+ * {@code deadline.expiredInQueue}.
+ * <p>
+ * Unary methods with a {@link ResponseCacheFactory} set via {@link #responseCaches(Map)} are answered from a cache of
+ * serialized responses before they are admitted by a limiter or queued for the executor. Concurrent calls with
+ * identical requests to the unary methods set via {@link #coalesceRequests(Set)} share a single call of the method,
+ * counted per method by {@code coalescing.calls} and {@code coalescing.coalesced}, with the gauge
+ * {@code coalescing.ratio} of the coalesced calls.
+ * <p>
+ * The methods set via {@link #zeroCopyMethods(Set)} parse their protobuf messages with a
+ * {@link ZeroCopyProtoMarshaller}.
+ * <p>
+ * A builder created with a name builds a server whose metric names are prefixed with {@code grpc.server.<name>}
+ * instead of {@code grpc.server}, so that several servers, e.g. listening on different ports, can be told apart in
+ * logs and metrics.
+ * <p>
+ * If an in-process name is set via {@link #inProcess(String)}, the services are also served by an in-process server
+ * under that name, with the same interceptors, executor and metrics. Calls from channels built with
+ * {@link io.grpc.inprocess.InProcessChannelBuilder} for that name neither serialize their messages nor pass through
+ * the network stack. The in-process server is managed by a {@link ManagedGrpcServer} of its own.
  */
 public final class DropwizardServerBuilder extends ServerBuilder<DropwizardServerBuilder> {
     private final Environment environment;
     private final ServerBuilder<?> origin;
     private final Duration shutdownPeriod;
+    @Nullable
+    private final String name;
+    private final String serverMetricPrefix;
+    private final List<ServerServiceDefinition> services = new ArrayList<>();
+    // settings applied to the in-process server, too
+    private final List<Consumer<ServerBuilder<?>>> sharedSettings = new ArrayList<>();
+    @Nullable
+    private String inProcessName;
+    @Nullable
+    private Path socketFile;
+    @Nullable
+    private ServerInterceptor dispatcher;
+    @Nullable
+    private HandlerRegistry fallbackRegistry;
+    @Nullable
+    private GrpcHealthService healthService;
+    private Duration preDrainDelay = Duration.seconds(0);
+    @Nullable
+    private ConcurrencyLimiterFactory concurrencyLimiter;
+    @Nullable
+    private Duration minDeadline;
+    private Map<String, Duration> methodMinDeadlines = Collections.emptyMap();
+    private Map<String, ResponseCacheFactory> responseCaches = Collections.emptyMap();
+    private Set<String> coalescedMethods = Collections.emptySet();
+    private Set<String> zeroCopyMethods = Collections.emptySet();
 
     public DropwizardServerBuilder(final Environment environment, final ServerBuilder<?> origin,
             final Duration shutdownPeriod) {
+        this(environment, origin, shutdownPeriod, null);
+    }
+
+    /**
+     * @param environment to manage the server in and to register the metrics with
+     * @param origin builder of the server
+     * @param shutdownPeriod how long to wait for calls in progress when the server is stopped
+     * @param name of the server used in logging and metric names, or {@code null}
+     */
+    public DropwizardServerBuilder(final Environment environment, final ServerBuilder<?> origin,
+            final Duration shutdownPeriod, @Nullable final String name) {
         this.environment = checkNotNull(environment, "Environment is null");
         this.origin = checkNotNull(origin, "ServerBuilder is null");
         this.shutdownPeriod = checkNotNull(shutdownPeriod, "shutdownPeriod is null");
+        this.name = name;
+        this.serverMetricPrefix = MetricRegistry.name("grpc.server", name);
+    }
+
+    /**
+     * @return the name of the server, or {@code null}
+     */
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the prefix of the names of the server's metrics, {@code grpc.server} or {@code grpc.server.<name>}
+     */
+    String getMetricPrefix() {
+        return serverMetricPrefix;
+    }
+
+    /**
+     * @return the prefix of the names of the server's threads, {@code grpc-server} or {@code grpc-server-<name>}
+     */
+    String getThreadNamePrefix() {
+        return name == null ? "grpc-server" : "grpc-server-" + name;
     }
 
     @Override
     public DropwizardServerBuilder directExecutor() {
-        origin.directExecutor();
+        share(ServerBuilder::directExecutor);
+        dispatcher = null;
         return this;
     }
 
     @Override
     public DropwizardServerBuilder executor(@Nullable final Executor executor) {
-        origin.executor(executor);
+        share(builder -> builder.executor(executor));
+        dispatcher = null;
+        return this;
+    }
+
+    /**
+     * Runs the calls of all added services on an application executor via the given dispatcher, while the transport
+     * delivers calls directly to the dispatcher. Overridden by subsequent calls to {@link #directExecutor()} or
+     * {@link #executor(Executor)}.
+     *
+     * @param dispatcher which hands calls to the application executor
+     * @return this
+     */
+    DropwizardServerBuilder dispatchingExecutor(final DispatchingServerInterceptor dispatcher) {
+        share(ServerBuilder::directExecutor);
+        this.dispatcher = checkNotNull(dispatcher, "dispatcher");
+        return this;
+    }
+
+    /**
+     * Adds the given health service to the server. The health service reports the server and all its services as
+     * {@code SERVING} once the server has been started, and as {@code NOT_SERVING} as soon as it is stopped.
+     *
+     * @param healthService to add
+     * @return this
+     */
+    public DropwizardServerBuilder healthService(final GrpcHealthService healthService) {
+        this.healthService = checkNotNull(healthService, "healthService");
+        return addService(healthService);
+    }
+
+    /**
+     * @return the health service added via {@link #healthService(GrpcHealthService)}, or {@code null}
+     */
+    @Nullable
+    public GrpcHealthService getHealthService() {
+        return healthService;
+    }
+
+    /**
+     * @param preDrainDelay how long the server keeps accepting calls when it is stopped, after the health service has
+     *            reported it as {@code NOT_SERVING}
+     * @return this
+     */
+    public DropwizardServerBuilder preDrainDelay(final Duration preDrainDelay) {
+        this.preDrainDelay = checkNotNull(preDrainDelay, "preDrainDelay");
+        return this;
+    }
+
+    /**
+     * @param concurrencyLimiter which creates the limiters for the methods of all added services, or {@code null} to
+     *            not limit the number of calls in progress
+     * @return this
+     */
+    public DropwizardServerBuilder concurrencyLimiter(@Nullable final ConcurrencyLimiterFactory concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Rejects calls with {@code DEADLINE_EXCEEDED} if less than the given minimum remains until their deadline, when
+     * they arrive and again when they are started on the executor. Calls without a deadline are never rejected.
+     *
+     * @param minDeadline minimum remaining time of the calls to methods without an entry in
+     *            {@code methodMinDeadlines}, 0 to only reject calls whose deadline has expired
+     * @param methodMinDeadlines minimum remaining time by full method name ({@code <full service name>/<method
+     *            name>}) or full service name
+     * @return this
+     */
+    public DropwizardServerBuilder minDeadline(final Duration minDeadline,
+            final Map<String, Duration> methodMinDeadlines) {
+        this.minDeadline = checkNotNull(minDeadline, "minDeadline");
+        this.methodMinDeadlines = new HashMap<>(checkNotNull(methodMinDeadlines, "methodMinDeadlines"));
+        return this;
+    }
+
+    /**
+     * Answers calls to the given methods from caches of their serialized responses. Every method has a cache of its
+     * own.
+     *
+     * @param responseCaches cache by full method name ({@code <full service name>/<method name>}), which must name a
+     *            unary method, or by full service name, which caches all unary methods of the service
+     * @return this
+     */
+    public DropwizardServerBuilder responseCaches(final Map<String, ResponseCacheFactory> responseCaches) {
+        this.responseCaches = new HashMap<>(checkNotNull(responseCaches, "responseCaches"));
+        return this;
+    }
+
+    /**
+     * Coalesces concurrent calls with byte-identical requests to the given methods: the method is called once and its
+     * response is sent to all waiting calls. The shared call is cancelled only if all waiting calls are cancelled.
+     *
+     * @param coalescedMethods full method names ({@code <full service name>/<method name>}), which must name unary
+     *            methods, or full service names, which coalesce all unary methods of the service
+     * @return this
+     */
+    public DropwizardServerBuilder coalesceRequests(final Set<String> coalescedMethods) {
+        this.coalescedMethods = new HashSet<>(checkNotNull(coalescedMethods, "coalescedMethods"));
+        return this;
+    }
+
+    /**
+     * Parses the requests and sends the responses of the given methods with {@link ZeroCopyProtoMarshaller}s, which
+     * avoid copying large {@code bytes} fields.
+     *
+     * @param zeroCopyMethods full method names ({@code <full service name>/<method name>}) or full service names
+     * @return this
+     */
+    public DropwizardServerBuilder zeroCopyMethods(final Set<String> zeroCopyMethods) {
+        this.zeroCopyMethods = new HashSet<>(checkNotNull(zeroCopyMethods, "zeroCopyMethods"));
+        return this;
+    }
+
+    /**
+     * Serves the services in-process, too.
+     *
+     * @param inProcessName name of the in-process server, or {@code null} to serve the services only via the
+     *            underlying builder
+     * @return this
+     */
+    public DropwizardServerBuilder inProcess(@Nullable final String inProcessName) {
+        this.inProcessName = inProcessName;
+        return this;
+    }
+
+    /**
+     * @param socketFile the Unix domain socket the underlying builder listens on, which is deleted before the server
+     *            is started if it is stale and after it has been stopped, or {@code null}
+     * @return this
+     */
+    public DropwizardServerBuilder socketFile(@Nullable final Path socketFile) {
+        this.socketFile = socketFile;
         return this;
     }
 
     @Override
     public DropwizardServerBuilder addService(final ServerServiceDefinition service) {
-        // TODO configure io.grpc.ServerInterceptor to collect dropwizard metrics
         // TODO configure io.grpc.ServerInterceptor to send rpc call and exception events to logback
-        origin.addService(service);
+        services.add(checkNotNull(service, "service"));
         return this;
     }
 
     @Override
     public DropwizardServerBuilder addService(final BindableService bindableService) {
-        // TODO configure io.grpc.ServerInterceptor to collect dropwizard metrics
-        // TODO configure io.grpc.ServerInterceptor to send rpc call and exception events to logback
-        origin.addService(bindableService);
-        return this;
+        return addService(bindableService.bindService());
     }
 
     @Override
     public DropwizardServerBuilder intercept(final ServerInterceptor interceptor) {
-        origin.intercept(interceptor);
+        share(builder -> builder.intercept(interceptor));
         return this;
     }
 
@@ -77,13 +325,13 @@ public final class DropwizardServerBuilder extends ServerBuilder<DropwizardServe
 
     @Override
     public DropwizardServerBuilder addStreamTracerFactory(final Factory factory) {
-        origin.addStreamTracerFactory(factory);
+        share(builder -> builder.addStreamTracerFactory(factory));
         return this;
     }
 
     @Override
     public DropwizardServerBuilder fallbackHandlerRegistry(@Nullable final HandlerRegistry fallbackRegistry) {
-        origin.fallbackHandlerRegistry(fallbackRegistry);
+        this.fallbackRegistry = fallbackRegistry;
         return this;
     }
 
@@ -95,21 +343,251 @@ public final class DropwizardServerBuilder extends ServerBuilder<DropwizardServe
 
     @Override
     public DropwizardServerBuilder decompressorRegistry(@Nullable final DecompressorRegistry registry) {
-        origin.decompressorRegistry(registry);
+        share(builder -> builder.decompressorRegistry(registry));
         return this;
     }
 
     @Override
     public DropwizardServerBuilder compressorRegistry(@Nullable final CompressorRegistry registry) {
-        origin.compressorRegistry(registry);
+        share(builder -> builder.compressorRegistry(registry));
         return this;
     }
 
     @Override
     public Server build() {
+        final Counter inFlight = environment.metrics().counter(MetricRegistry.name(serverMetricPrefix, "inFlight"));
+        final Meter cancelled =
+                environment.metrics().meter(MetricRegistry.name(serverMetricPrefix, "shutdown", "cancelled"));
+        final Map<String, ServerInterceptor> limiters = new HashMap<>();
+        final List<ServerServiceDefinition> intercepted = new ArrayList<>(services.size());
+        for (final ServerServiceDefinition service : services) {
+            intercepted.add(interceptMethods(service, inFlight, limiters));
+        }
+        final HandlerRegistry fallback = fallbackRegistry == null || dispatcher == null ? fallbackRegistry
+                : new DispatchingHandlerRegistry(fallbackRegistry, dispatcher);
+        intercepted.forEach(origin::addService);
+        origin.fallbackHandlerRegistry(fallback);
+        // the server-wide counter covers the calls of both servers, so each of them counts its own calls in progress
+        // to tell how many it cancels when shut down
+        final Counter serverInFlight = inProcessName == null ? inFlight : new Counter();
+        if (inProcessName != null) {
+            origin.addStreamTracerFactory(new InFlightStreamTracerFactory(serverInFlight));
+            final Counter inProcessInFlight = new Counter();
+            final ServerBuilder<?> inProcessBuilder = InProcessServerBuilder.forName(inProcessName);
+            sharedSettings.forEach(setting -> setting.accept(inProcessBuilder));
+            inProcessBuilder.addStreamTracerFactory(new InFlightStreamTracerFactory(inProcessInFlight));
+            intercepted.forEach(inProcessBuilder::addService);
+            inProcessBuilder.fallbackHandlerRegistry(fallback);
+            // registered before the server, so it is stopped after the server has been drained, as the calls being
+            // drained may call services in-process
+            environment.lifecycle().manage(new ManagedGrpcServer(inProcessBuilder.build(), shutdownPeriod,
+                new ManagedGrpcServer.Options()
+                    .name(inProcessName + " (in-process)")
+                    .inFlight(inProcessInFlight)
+                    .cancelled(cancelled)));
+        }
         final Server server;
         server = origin.build();
-        environment.lifecycle().manage(new ManagedGrpcServer(server, shutdownPeriod));
+        environment.lifecycle().manage(new ManagedGrpcServer(server, shutdownPeriod, new ManagedGrpcServer.Options()
+            .name(name)
+            .preDrainDelay(preDrainDelay)
+            .healthService(healthService)
+            .inFlight(serverInFlight)
+            .cancelled(cancelled)
+            .socketFile(socketFile)));
         return server;
     }
+
+    private void share(final Consumer<ServerBuilder<?>> setting) {
+        setting.accept(origin);
+        sharedSettings.add(setting);
+    }
+
+    private ServerServiceDefinition interceptMethods(final ServerServiceDefinition service, final Counter inFlight,
+            final Map<String, ServerInterceptor> limiters) {
+        final List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        boolean rebound = false;
+        for (final ServerMethodDefinition<?, ?> method : service.getMethods()) {
+            final ServerMethodDefinition<?, ?> intercepted = interceptMethod(zeroCopy(method), inFlight, limiters);
+            rebound |= intercepted.getMethodDescriptor() != method.getMethodDescriptor();
+            methods.add(intercepted);
+        }
+        final ServiceDescriptor descriptor = service.getServiceDescriptor();
+        final ServerServiceDefinition.Builder intercepted;
+        intercepted = ServerServiceDefinition.builder(rebound ? rebindDescriptor(descriptor, methods) : descriptor);
+        for (final ServerMethodDefinition<?, ?> method : methods) {
+            intercepted.addMethod(method);
+        }
+        return intercepted.build();
+    }
+
+    /**
+     * A service definition must reference the same method descriptors as its service descriptor, so methods bound to
+     * new descriptors require a new service descriptor.
+     */
+    private static ServiceDescriptor rebindDescriptor(final ServiceDescriptor service,
+            final List<ServerMethodDefinition<?, ?>> methods) {
+        final ServiceDescriptor.Builder descriptor;
+        descriptor = ServiceDescriptor.newBuilder(service.getName()).setSchemaDescriptor(service.getSchemaDescriptor());
+        for (final ServerMethodDefinition<?, ?> method : methods) {
+            descriptor.addMethod(method.getMethodDescriptor());
+        }
+        return descriptor.build();
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> zeroCopy(
+            final ServerMethodDefinition<ReqT, RespT> method) {
+        final String fullMethodName = method.getMethodDescriptor().getFullMethodName();
+        if (!zeroCopyMethods.contains(fullMethodName)
+                && !zeroCopyMethods.contains(MethodDescriptor.extractFullServiceName(fullMethodName))) {
+            return method;
+        }
+        return ServerMethodDefinition.create(ZeroCopyProtoMarshaller.rebind(method.getMethodDescriptor()),
+            method.getServerCallHandler());
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<?, ?> interceptMethod(
+            final ServerMethodDefinition<ReqT, RespT> method, final Counter inFlight,
+            final Map<String, ServerInterceptor> limiters) {
+        final String fullMethodName = method.getMethodDescriptor().getFullMethodName();
+        final String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+        final String metricPrefix = MetricRegistry.name(serverMetricPrefix, serviceName,
+            fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1));
+        ServerCallHandler<ReqT, RespT> handler = method.getServerCallHandler();
+        final long minDeadlineNanos = minDeadlineNanos(fullMethodName, serviceName);
+        if (dispatcher != null) {
+            if (minDeadlineNanos >= 0) {
+                // the time spent in the queue of the executor counts against the deadline
+                handler = interceptHandler(new DeadlineServerInterceptor(minDeadlineNanos,
+                    environment.metrics().meter(MetricRegistry.name(metricPrefix, "deadline", "expiredInQueue"))),
+                    handler);
+            }
+            handler = interceptHandler(dispatcher, handler);
+        }
+        if (concurrencyLimiter != null && method.getMethodDescriptor().getType() == MethodDescriptor.MethodType.UNARY
+                && !HealthGrpc.SERVICE_NAME.equals(serviceName)) {
+            // methods of a service share a limiter if the limiter is scoped to services
+            final ServerInterceptor limiter = limiters.computeIfAbsent(
+                concurrencyLimiter.limiterName(method.getMethodDescriptor()),
+                limiterName -> concurrencyLimiter.build(environment.metrics(), serverMetricPrefix, limiterName));
+            handler = interceptHandler(limiter, handler);
+        }
+        final MethodDescriptor<ReqT, RespT> descriptor = method.getMethodDescriptor();
+        final String responseCacheKey = unaryMethodKey(responseCaches.keySet(), descriptor, "Response caching");
+        if (unaryMethodKey(coalescedMethods, descriptor, "Request coalescing") != null) {
+            // only cache misses are coalesced
+            return cacheMethod(coalesceMethod(descriptor, handler, metricPrefix), responseCacheKey, metricPrefix,
+                minDeadlineNanos, inFlight);
+        }
+        return cacheMethod(ServerMethodDefinition.create(descriptor, handler), responseCacheKey, metricPrefix,
+            minDeadlineNanos, inFlight);
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<?, ?> cacheMethod(final ServerMethodDefinition<ReqT, RespT> method,
+            @Nullable final String responseCacheKey, final String metricPrefix, final long minDeadlineNanos,
+            final Counter inFlight) {
+        if (responseCacheKey == null) {
+            return instrumentMethod(method, metricPrefix, minDeadlineNanos, inFlight);
+        }
+        // cache hits are neither limited nor queued
+        return instrumentMethod(responseCaches.get(responseCacheKey).build(environment.metrics(), metricPrefix,
+            method.getMethodDescriptor(), method.getServerCallHandler()), metricPrefix, minDeadlineNanos, inFlight);
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<byte[], byte[]> coalesceMethod(
+            final MethodDescriptor<ReqT, RespT> method, final ServerCallHandler<ReqT, RespT> handler,
+            final String metricPrefix) {
+        final MetricRegistry metrics = environment.metrics();
+        final Meter calls = metrics.meter(MetricRegistry.name(metricPrefix, "coalescing", "calls"));
+        final Meter coalesced = metrics.meter(MetricRegistry.name(metricPrefix, "coalescing", "coalesced"));
+        metrics.register(MetricRegistry.name(metricPrefix, "coalescing", "ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(coalesced.getOneMinuteRate(), calls.getOneMinuteRate());
+            }
+        });
+        return ServerMethodDefinition.create(SerializedMessages.bytesMethod(method),
+            new CoalescingServerCallHandler<>(method, handler, calls, coalesced));
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> instrumentMethod(
+            final ServerMethodDefinition<ReqT, RespT> method, final String metricPrefix, final long minDeadlineNanos,
+            final Counter inFlight) {
+        ServerCallHandler<ReqT, RespT> handler = method.getServerCallHandler();
+        if (minDeadlineNanos >= 0) {
+            handler = interceptHandler(new DeadlineServerInterceptor(minDeadlineNanos,
+                environment.metrics().meter(MetricRegistry.name(metricPrefix, "deadline", "rejected"))), handler);
+        }
+        // metric handles are resolved once per method here instead of once per call
+        handler = interceptHandler(new MetricsServerInterceptor(environment.metrics(), serverMetricPrefix,
+            method.getMethodDescriptor(), inFlight), handler);
+        return ServerMethodDefinition.create(method.getMethodDescriptor(), handler);
+    }
+
+    /**
+     * @param configured full method names and full service names for which a feature is configured
+     * @param method to look up
+     * @param feature name of the feature, for the error message
+     * @return the full method name or the full service name of the given unary method if it is configured, otherwise
+     *         {@code null}
+     * @throws IllegalArgumentException if the full method name is configured but the method is not unary
+     */
+    @Nullable
+    private static String unaryMethodKey(final Set<String> configured, final MethodDescriptor<?, ?> method,
+            final String feature) {
+        final boolean unary = method.getType() == MethodDescriptor.MethodType.UNARY;
+        if (configured.contains(method.getFullMethodName())) {
+            if (!unary) {
+                throw new IllegalArgumentException(feature + " requires a unary method: " + method.getFullMethodName());
+            }
+            return method.getFullMethodName();
+        }
+        final String serviceName = MethodDescriptor.extractFullServiceName(method.getFullMethodName());
+        return unary && configured.contains(serviceName) ? serviceName : null;
+    }
+
+    /**
+     * @return the minimum remaining deadline of calls to the given method in nanoseconds, or -1 if not checked
+     */
+    private long minDeadlineNanos(final String fullMethodName, final String serviceName) {
+        if (minDeadline == null) {
+            return -1;
+        }
+        Duration min = methodMinDeadlines.get(fullMethodName);
+        if (min == null) {
+            min = methodMinDeadlines.getOrDefault(serviceName, minDeadline);
+        }
+        return min.toNanoseconds();
+    }
+
+    private static <ReqT, RespT> ServerCallHandler<ReqT, RespT> interceptHandler(
+            final ServerInterceptor interceptor, final ServerCallHandler<ReqT, RespT> next) {
+        return (call, headers) -> interceptor.interceptCall(call, headers, next);
+    }
+
+    /**
+     * Dispatches the methods of a fallback registry, which are looked up per call and therefore not instrumented.
+     */
+    private static final class DispatchingHandlerRegistry extends HandlerRegistry {
+        private final HandlerRegistry delegate;
+        private final ServerInterceptor dispatcher;
+
+        DispatchingHandlerRegistry(final HandlerRegistry delegate, final ServerInterceptor dispatcher) {
+            this.delegate = delegate;
+            this.dispatcher = dispatcher;
+        }
+
+        @Nullable
+        @Override
+        public ServerMethodDefinition<?, ?> lookupMethod(final String methodName, @Nullable final String authority) {
+            final ServerMethodDefinition<?, ?> method = delegate.lookupMethod(methodName, authority);
+            return method == null ? null : dispatch(method);
+        }
+
+        private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> dispatch(
+                final ServerMethodDefinition<ReqT, RespT> method) {
+            return ServerMethodDefinition.create(method.getMethodDescriptor(),
+                interceptHandler(dispatcher, method.getServerCallHandler()));
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import io.dropwizard.grpc.health.v1.HealthCheckRequest;
+import io.dropwizard.grpc.health.v1.HealthCheckResponse;
+import io.dropwizard.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.dropwizard.grpc.health.v1.HealthGrpc;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Implementation of the gRPC health checking protocol ({@code grpc.health.v1.Health}).
+ * <p>
+ * The status of each service is set by the application via {@link #setStatus(String, ServingStatus)}, the empty
+ * service name denotes the status of the server as a whole. {@code Check} answers from the stored statuses without
+ * any further work, {@code Watch} pushes every change to the subscribed clients.
+ * <p>
+ * When the server is stopped, {@link ManagedGrpcServer} calls {@link #enterTerminalState()} to report all services as
+ * {@code NOT_SERVING} before the server stops accepting calls, so that load balancers move traffic away in time.
+ */
+public final class GrpcHealthService extends HealthGrpc.HealthImplBase {
+    private final ConcurrentMap<String, ServingStatus> statuses = new ConcurrentHashMap<>();
+    // guarded by this
+    private final Map<String, Set<StreamObserver<HealthCheckResponse>>> watchers = new HashMap<>();
+    // guarded by this
+    private boolean terminal;
+
+    /**
+     * Sets the status of the given service and notifies all watchers of the service if it changed. Ignored after
+     * {@link #enterTerminalState()} has been called.
+     *
+     * @param service full name of the service, or empty for the server as a whole
+     * @param status of the service
+     */
+    public synchronized void setStatus(final String service, final ServingStatus status) {
+        checkNotNull(service, "service");
+        checkNotNull(status, "status");
+        if (!terminal) {
+            update(service, status);
+        }
+    }
+
+    /**
+     * Removes the status of the given service, which is reported as unknown afterwards. Ignored after
+     * {@link #enterTerminalState()} has been called.
+     *
+     * @param service full name of the service, or empty for the server as a whole
+     */
+    public synchronized void clearStatus(final String service) {
+        checkNotNull(service, "service");
+        if (!terminal) {
+            update(service, null);
+        }
+    }
+
+    /**
+     * @param service full name of the service, or empty for the server as a whole
+     * @return the status of the given service, or {@code null} if it is unknown
+     */
+    @Nullable
+    public ServingStatus getStatus(final String service) {
+        return statuses.get(service);
+    }
+
+    /**
+     * @return the names of all services with a known status
+     */
+    Set<String> getServices() {
+        return new LinkedHashSet<>(statuses.keySet());
+    }
+
+    /**
+     * Reports all known services as {@code NOT_SERVING} and ignores all subsequent status changes.
+     */
+    public synchronized void enterTerminalState() {
+        terminal = true;
+        update("", ServingStatus.NOT_SERVING);
+        for (final String service : new ArrayList<>(statuses.keySet())) {
+            update(service, ServingStatus.NOT_SERVING);
+        }
+    }
+
+    /**
+     * Completes all {@code Watch} calls, so that they do not delay the shutdown of the server.
+     */
+    synchronized void completeWatches() {
+        for (final Set<StreamObserver<HealthCheckResponse>> observers : watchers.values()) {
+            for (final StreamObserver<HealthCheckResponse> observer : observers) {
+                try {
+                    observer.onCompleted();
+                } catch (final RuntimeException e) {
+                    // the call has been cancelled concurrently
+                }
+            }
+        }
+        watchers.clear();
+    }
+
+    @Override
+    public void check(final HealthCheckRequest request, final StreamObserver<HealthCheckResponse> responseObserver) {
+        final ServingStatus status = statuses.get(request.getService());
+        if (status == null) {
+            responseObserver.onError(Status.NOT_FOUND
+                .withDescription("unknown service " + request.getService()).asRuntimeException());
+        } else {
+            responseObserver.onNext(HealthCheckResponse.newBuilder().setStatus(status).build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    @Override
+    public void watch(final HealthCheckRequest request, final StreamObserver<HealthCheckResponse> responseObserver) {
+        final String service = request.getService();
+        ((ServerCallStreamObserver<HealthCheckResponse>) responseObserver).setOnCancelHandler(() -> {
+            synchronized (this) {
+                final Set<StreamObserver<HealthCheckResponse>> observers = watchers.get(service);
+                if (observers != null && observers.remove(responseObserver) && observers.isEmpty()) {
+                    watchers.remove(service);
+                }
+            }
+        });
+        synchronized (this) {
+            final ServingStatus status = statuses.get(service);
+            responseObserver.onNext(response(status));
+            watchers.computeIfAbsent(service, s -> new LinkedHashSet<>()).add(responseObserver);
+        }
+    }
+
+    private void update(final String service, @Nullable final ServingStatus status) {
+        final ServingStatus previous = status == null ? statuses.remove(service) : statuses.put(service, status);
+        if (previous == status) {
+            return;
+        }
+        final Set<StreamObserver<HealthCheckResponse>> observers = watchers.get(service);
+        if (observers == null) {
+            return;
+        }
+        final HealthCheckResponse response = response(status);
+        for (final StreamObserver<HealthCheckResponse> observer : new ArrayList<>(observers)) {
+            try {
+                observer.onNext(response);
+            } catch (final RuntimeException e) {
+                // the call has been cancelled concurrently, its cancel handler removes it
+            }
+        }
+    }
+
+    private static HealthCheckResponse response(@Nullable final ServingStatus status) {
+        return HealthCheckResponse.newBuilder()
+            .setStatus(status == null ? ServingStatus.SERVICE_UNKNOWN : status)
+            .build();
+    }
+}
@@ -1,18 +1,41 @@
 package io.dropwizard.grpc.server;
 
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import io.dropwizard.grpc.ByteBufAllocatorFactory;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.util.SizeUnit;
+import io.dropwizard.validation.MaxSize;
 import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.MinSize;
 import io.dropwizard.validation.ValidationMethod;
 import io.grpc.ServerBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 /**
  * A factory for creating pre-configured {@link ServerBuilder} instances in dropwizard applications.
@@ -28,25 +51,206 @@ import io.grpc.ServerBuilder;
  * <td>Description</td>
  * </tr>
  * <tr>
+ * <td>{@code name}</td>
+ * <td>(none)</td>
+ * <td>Name of the server, used in logging, thread names and metric names, which are prefixed with
+ * {@code grpc.server.<name>} instead of {@code grpc.server}. Required for {@code listeners}.</td>
+ * </tr>
+ * <tr>
  * <td>{@code port}</td>
  * <td>8080</td>
  * <td>Port number the gRPC server should bind on.</td>
  * </tr>
  * <tr>
+ * <td>{@code unixSocketPath}</td>
+ * <td>(none)</td>
+ * <td>If set, the server listens on a Unix domain socket at this path instead of {@code port}, e.g. for a sidecar
+ * proxy on the same host. A stale socket file is deleted before the server is started, and the socket file is deleted
+ * when the server is stopped. The server fails to start if the path is not a socket or another server listens on it.
+ * Requires the native epoll transport on the classpath (see {@code useEpoll}), which is then used regardless of
+ * {@code useEpoll}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code inProcessName}</td>
+ * <td>(none)</td>
+ * <td>If set, the services are also served in-process under this name, for channels of the same JVM, e.g. built by
+ * a {@link io.dropwizard.grpc.client.GrpcChannelFactory} with the same {@code inProcessName}. In-process calls pass
+ * the messages without serializing them.</td>
+ * </tr>
+ * <tr>
  * <td>{@code shutdownPeriod}</td>
  * <td>5 seconds</td>
- * <td>How long to wait before giving up when the server is shutdown.</td>
+ * <td>How long to wait for calls in progress when the server is shutdown, before they are cancelled.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code preDrainDelay}</td>
+ * <td>0 seconds</td>
+ * <td>How long the server keeps accepting calls when it is stopped, after the health service has reported it as
+ * {@code NOT_SERVING} and before it sends a GOAWAY to its clients. Should be long enough for load balancers to notice
+ * the health change.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code healthServiceEnabled}</td>
+ * <td>false</td>
+ * <td>Whether to add a {@link GrpcHealthService} implementing {@code grpc.health.v1.Health} to the server. Its
+ * statuses are refreshed from the environment's health checks in the background.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code healthCheckInterval}</td>
+ * <td>5 seconds</td>
+ * <td>How often the health checks are run to refresh the statuses of the health service.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code serviceHealthChecks}</td>
+ * <td>(empty)</td>
+ * <td>The names of the health checks which determine the status of a service, by full service name. The status of
+ * services which are not listed, and of the server as a whole, is determined by all health checks.</td>
  * </tr>
  * <tr>
  * <td>{@code certChainFile}</td>
  * <td>(none)</td>
- * <td>The certificate chain file to configure transport security in the gRPC server.</td>
+ * <td>The certificate chain file to configure transport security in the gRPC server. Use {@code tls} for more
+ * settings.</td>
  * </tr>
  * <tr>
  * <td>{@code privateKeyFile}</td>
  * <td>(none)</td>
  * <td>The private key file to configure transport security in the gRPC server.</td>
  * </tr>
+ * <tr>
+ * <td>{@code tls}</td>
+ * <td>(none)</td>
+ * <td>Transport security settings including provider, client authentication and certificate reloading, see
+ * {@link ServerTlsFactory}. Cannot be combined with {@code certChainFile} and {@code privateKeyFile}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code useEpoll}</td>
+ * <td>true</td>
+ * <td>Whether to use the native epoll transport if it is available. NIO is used otherwise. Requires
+ * {@code io.netty:netty-transport-native-epoll} with the {@code linux-x86_64} classifier on the classpath.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code bossEventLoopThreads}</td>
+ * <td>(none)</td>
+ * <td>Number of threads accepting connections. gRPC's shared boss event loop group is used if neither this, nor
+ * {@code workerEventLoopThreads} is set and epoll is not used, otherwise defaults to 1.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code workerEventLoopThreads}</td>
+ * <td>(none)</td>
+ * <td>Number of threads handling connection I/O. gRPC's shared worker event loop group is used if neither this, nor
+ * {@code bossEventLoopThreads} is set and epoll is not used, otherwise defaults to netty's default of twice the
+ * number of available processors.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code flowControlWindow}</td>
+ * <td>(gRPC default, 1 MiB)</td>
+ * <td>The HTTP/2 flow control window per stream, less than 2 GiB.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxInboundMessageSize}</td>
+ * <td>(gRPC default, 4 MiB)</td>
+ * <td>The maximum size of a single request message, less than 2 GiB.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxConcurrentCallsPerConnection}</td>
+ * <td>(unlimited)</td>
+ * <td>The maximum number of concurrent calls per HTTP/2 connection.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code keepAliveTime}</td>
+ * <td>(gRPC default, 2 hours)</td>
+ * <td>Idle time of a connection after which a keepalive ping is sent.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code keepAliveTimeout}</td>
+ * <td>(gRPC default, 20 seconds)</td>
+ * <td>How long to wait for a keepalive ping to be acknowledged before closing the connection.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxConnectionIdle}</td>
+ * <td>(infinite)</td>
+ * <td>Idle time of a connection without outstanding calls after which it is gracefully closed.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxConnectionAge}</td>
+ * <td>(infinite)</td>
+ * <td>Maximum age of a connection before it is gracefully closed.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxConnectionAgeGrace}</td>
+ * <td>(infinite)</td>
+ * <td>Grace period for outstanding calls after {@code maxConnectionAge} is reached, before the connection is closed
+ * forcefully.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code permitKeepAliveTime}</td>
+ * <td>(gRPC default, 5 minutes)</td>
+ * <td>The most aggressive keepalive time clients are permitted to use.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code permitKeepAliveWithoutCalls}</td>
+ * <td>false</td>
+ * <td>Whether clients are permitted to send keepalive pings without outstanding calls.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code allocator}</td>
+ * <td>(none)</td>
+ * <td>The allocator of the buffers of the connections, see {@link ByteBufAllocatorFactory}. If set, its memory usage
+ * is exposed as gauges prefixed with {@code grpc.server.allocator}, otherwise netty's default allocator is used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code executor}</td>
+ * <td>(gRPC default executor)</td>
+ * <td>The executor which runs the calls, see {@link ServerExecutorFactory}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code concurrencyLimiter}</td>
+ * <td>(none)</td>
+ * <td>Limits the number of calls in progress per method or per service to a limit adjusted from the observed
+ * round-trip times and rejects calls over the limit with {@code RESOURCE_EXHAUSTED}, see
+ * {@link ConcurrencyLimiterFactory}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code minDeadline}</td>
+ * <td>(none)</td>
+ * <td>If set, calls with less time remaining until their deadline are rejected with {@code DEADLINE_EXCEEDED} when
+ * they arrive and again when they are started on the executor, so that the time spent in its queue counts against the
+ * deadline. 0 rejects only calls whose deadline has expired. Calls without a deadline are never rejected.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code methodMinDeadlines}</td>
+ * <td>(empty)</td>
+ * <td>The {@code minDeadline} by full method name ({@code <full service name>/<method name>}) or full service name,
+ * for methods which need more time than others. Requires {@code minDeadline}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code responseCaches}</td>
+ * <td>(empty)</td>
+ * <td>Caches of serialized responses of idempotent unary methods by full method name or full service name, see
+ * {@link ResponseCacheFactory}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code coalescedMethods}</td>
+ * <td>(empty)</td>
+ * <td>Full method names or full service names of idempotent unary methods whose concurrent calls with identical
+ * requests share a single call of the method, whose response is sent to all of them.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code zeroCopyMethods}</td>
+ * <td>(empty)</td>
+ * <td>Full method names or full service names of methods whose protobuf messages are parsed without copying their
+ * {@code bytes} fields, see {@link io.dropwizard.grpc.ZeroCopyProtoMarshaller}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code listeners}</td>
+ * <td>(empty)</td>
+ * <td>Further servers with the same services, each configured with all of the settings above including a
+ * {@code name}, e.g. an internal plaintext port tuned for bulk streaming next to an external port with transport
+ * security and tight limits. Each listener is a server of its own and managed separately; set its event loop threads
+ * to keep its connections off the event loops of the other servers. The server and its listeners must have distinct
+ * names, ports, {@code unixSocketPath}s and {@code inProcessName}s.</td>
+ * </tr>
  * </table>
  *
  * <p>
@@ -72,21 +276,134 @@ import io.grpc.ServerBuilder;
  *     ...
  *     configuration.getGrpcServerFactory().builder(environment).addService(&#47;* your code here *&#47;).build();
  *     ...
+ *     // or, to serve the same services on all listeners
+ *     for (final ServerBuilder&lt;?&gt; builder : configuration.getGrpcServerFactory().builders(environment)) {
+ *         builder.addService(&#47;* your code here *&#47;).build();
+ *     }
+ *     ...
  * }
  * </pre>
  */
 public class GrpcServerFactory {
+    @Nullable
+    private String name;
+
     @Min(0)
     @Max(65535)
     private int port = 8080;
 
+    @Nullable
+    private Path unixSocketPath;
+
+    @Nullable
+    private String inProcessName;
+
     @MinDuration(1)
     private Duration shutdownPeriod = Duration.seconds(5);
 
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration preDrainDelay = Duration.seconds(0);
+
+    private boolean healthServiceEnabled = false;
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration healthCheckInterval = Duration.seconds(5);
+
+    @NotNull
+    private Map<String, Set<String>> serviceHealthChecks = Collections.emptyMap();
+
     private Path certChainFile;
 
     private Path privateKeyFile;
 
+    @Valid
+    @Nullable
+    private ServerTlsFactory tls;
+
+    private boolean useEpoll = true;
+
+    @Min(1)
+    private Integer bossEventLoopThreads;
+
+    @Min(1)
+    private Integer workerEventLoopThreads;
+
+    @MinSize(value = 1, unit = SizeUnit.KILOBYTES)
+    @MaxSize(value = Integer.MAX_VALUE, unit = SizeUnit.BYTES)
+    private Size flowControlWindow;
+
+    @MinSize(value = 1, unit = SizeUnit.KILOBYTES)
+    @MaxSize(value = Integer.MAX_VALUE, unit = SizeUnit.BYTES)
+    private Size maxInboundMessageSize;
+
+    @Min(1)
+    private Integer maxConcurrentCallsPerConnection;
+
+    @MinDuration(value = 10, unit = TimeUnit.SECONDS)
+    private Duration keepAliveTime;
+
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration keepAliveTimeout;
+
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    private Duration maxConnectionIdle;
+
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    private Duration maxConnectionAge;
+
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration maxConnectionAgeGrace;
+
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration permitKeepAliveTime;
+
+    private boolean permitKeepAliveWithoutCalls = false;
+
+    @Valid
+    @Nullable
+    private ByteBufAllocatorFactory allocator;
+
+    @Valid
+    @NotNull
+    private ServerExecutorFactory executor = new ServerExecutorFactory();
+
+    @Valid
+    @Nullable
+    private ConcurrencyLimiterFactory concurrencyLimiter;
+
+    @Nullable
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration minDeadline;
+
+    @NotNull
+    private Map<String, Duration> methodMinDeadlines = Collections.emptyMap();
+
+    @Valid
+    @NotNull
+    private Map<String, ResponseCacheFactory> responseCaches = Collections.emptyMap();
+
+    @NotNull
+    private Set<String> coalescedMethods = Collections.emptySet();
+
+    @NotNull
+    private Set<String> zeroCopyMethods = Collections.emptySet();
+
+    @Valid
+    @NotNull
+    private List<GrpcServerFactory> listeners = Collections.emptyList();
+
+    @JsonProperty("name")
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty("name")
+    public void setName(final String name) {
+        this.name = name;
+    }
+
     @JsonProperty("port")
     public int getPort() {
         return port;
@@ -97,6 +414,26 @@ public class GrpcServerFactory {
         this.port = port;
     }
 
+    @JsonProperty("unixSocketPath")
+    public Path getUnixSocketPath() {
+        return unixSocketPath;
+    }
+
+    @JsonProperty("unixSocketPath")
+    public void setUnixSocketPath(final Path unixSocketPath) {
+        this.unixSocketPath = unixSocketPath;
+    }
+
+    @JsonProperty("inProcessName")
+    public String getInProcessName() {
+        return inProcessName;
+    }
+
+    @JsonProperty("inProcessName")
+    public void setInProcessName(final String inProcessName) {
+        this.inProcessName = inProcessName;
+    }
+
     @JsonProperty("shutdownPeriod")
     public Duration getShutdownPeriod() {
         return shutdownPeriod;
@@ -107,6 +444,46 @@ public class GrpcServerFactory {
         this.shutdownPeriod = duration;
     }
 
+    @JsonProperty("preDrainDelay")
+    public Duration getPreDrainDelay() {
+        return preDrainDelay;
+    }
+
+    @JsonProperty("preDrainDelay")
+    public void setPreDrainDelay(final Duration preDrainDelay) {
+        this.preDrainDelay = preDrainDelay;
+    }
+
+    @JsonProperty("healthServiceEnabled")
+    public boolean isHealthServiceEnabled() {
+        return healthServiceEnabled;
+    }
+
+    @JsonProperty("healthServiceEnabled")
+    public void setHealthServiceEnabled(final boolean healthServiceEnabled) {
+        this.healthServiceEnabled = healthServiceEnabled;
+    }
+
+    @JsonProperty("healthCheckInterval")
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    @JsonProperty("healthCheckInterval")
+    public void setHealthCheckInterval(final Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @JsonProperty("serviceHealthChecks")
+    public Map<String, Set<String>> getServiceHealthChecks() {
+        return serviceHealthChecks;
+    }
+
+    @JsonProperty("serviceHealthChecks")
+    public void setServiceHealthChecks(final Map<String, Set<String>> serviceHealthChecks) {
+        this.serviceHealthChecks = serviceHealthChecks;
+    }
+
     @JsonProperty("certChainFile")
     public Path getCertChainFile() {
         return certChainFile;
@@ -127,6 +504,236 @@ public class GrpcServerFactory {
         this.privateKeyFile = privateKeyFile;
     }
 
+    @JsonProperty("tls")
+    public ServerTlsFactory getTls() {
+        return tls;
+    }
+
+    @JsonProperty("tls")
+    public void setTls(final ServerTlsFactory tls) {
+        this.tls = tls;
+    }
+
+    @JsonProperty("useEpoll")
+    public boolean isUseEpoll() {
+        return useEpoll;
+    }
+
+    @JsonProperty("useEpoll")
+    public void setUseEpoll(final boolean useEpoll) {
+        this.useEpoll = useEpoll;
+    }
+
+    @JsonProperty("bossEventLoopThreads")
+    public Integer getBossEventLoopThreads() {
+        return bossEventLoopThreads;
+    }
+
+    @JsonProperty("bossEventLoopThreads")
+    public void setBossEventLoopThreads(final Integer bossEventLoopThreads) {
+        this.bossEventLoopThreads = bossEventLoopThreads;
+    }
+
+    @JsonProperty("workerEventLoopThreads")
+    public Integer getWorkerEventLoopThreads() {
+        return workerEventLoopThreads;
+    }
+
+    @JsonProperty("workerEventLoopThreads")
+    public void setWorkerEventLoopThreads(final Integer workerEventLoopThreads) {
+        this.workerEventLoopThreads = workerEventLoopThreads;
+    }
+
+    @JsonProperty("flowControlWindow")
+    public Size getFlowControlWindow() {
+        return flowControlWindow;
+    }
+
+    @JsonProperty("flowControlWindow")
+    public void setFlowControlWindow(final Size flowControlWindow) {
+        this.flowControlWindow = flowControlWindow;
+    }
+
+    @JsonProperty("maxInboundMessageSize")
+    public Size getMaxInboundMessageSize() {
+        return maxInboundMessageSize;
+    }
+
+    @JsonProperty("maxInboundMessageSize")
+    public void setMaxInboundMessageSize(final Size maxInboundMessageSize) {
+        this.maxInboundMessageSize = maxInboundMessageSize;
+    }
+
+    @JsonProperty("maxConcurrentCallsPerConnection")
+    public Integer getMaxConcurrentCallsPerConnection() {
+        return maxConcurrentCallsPerConnection;
+    }
+
+    @JsonProperty("maxConcurrentCallsPerConnection")
+    public void setMaxConcurrentCallsPerConnection(final Integer maxConcurrentCallsPerConnection) {
+        this.maxConcurrentCallsPerConnection = maxConcurrentCallsPerConnection;
+    }
+
+    @JsonProperty("keepAliveTime")
+    public Duration getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    @JsonProperty("keepAliveTime")
+    public void setKeepAliveTime(final Duration keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    @JsonProperty("keepAliveTimeout")
+    public Duration getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    @JsonProperty("keepAliveTimeout")
+    public void setKeepAliveTimeout(final Duration keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    @JsonProperty("maxConnectionIdle")
+    public Duration getMaxConnectionIdle() {
+        return maxConnectionIdle;
+    }
+
+    @JsonProperty("maxConnectionIdle")
+    public void setMaxConnectionIdle(final Duration maxConnectionIdle) {
+        this.maxConnectionIdle = maxConnectionIdle;
+    }
+
+    @JsonProperty("maxConnectionAge")
+    public Duration getMaxConnectionAge() {
+        return maxConnectionAge;
+    }
+
+    @JsonProperty("maxConnectionAge")
+    public void setMaxConnectionAge(final Duration maxConnectionAge) {
+        this.maxConnectionAge = maxConnectionAge;
+    }
+
+    @JsonProperty("maxConnectionAgeGrace")
+    public Duration getMaxConnectionAgeGrace() {
+        return maxConnectionAgeGrace;
+    }
+
+    @JsonProperty("maxConnectionAgeGrace")
+    public void setMaxConnectionAgeGrace(final Duration maxConnectionAgeGrace) {
+        this.maxConnectionAgeGrace = maxConnectionAgeGrace;
+    }
+
+    @JsonProperty("permitKeepAliveTime")
+    public Duration getPermitKeepAliveTime() {
+        return permitKeepAliveTime;
+    }
+
+    @JsonProperty("permitKeepAliveTime")
+    public void setPermitKeepAliveTime(final Duration permitKeepAliveTime) {
+        this.permitKeepAliveTime = permitKeepAliveTime;
+    }
+
+    @JsonProperty("permitKeepAliveWithoutCalls")
+    public boolean isPermitKeepAliveWithoutCalls() {
+        return permitKeepAliveWithoutCalls;
+    }
+
+    @JsonProperty("permitKeepAliveWithoutCalls")
+    public void setPermitKeepAliveWithoutCalls(final boolean permitKeepAliveWithoutCalls) {
+        this.permitKeepAliveWithoutCalls = permitKeepAliveWithoutCalls;
+    }
+
+    @JsonProperty("allocator")
+    public ByteBufAllocatorFactory getAllocator() {
+        return allocator;
+    }
+
+    @JsonProperty("allocator")
+    public void setAllocator(final ByteBufAllocatorFactory allocator) {
+        this.allocator = allocator;
+    }
+
+    @JsonProperty("executor")
+    public ServerExecutorFactory getExecutor() {
+        return executor;
+    }
+
+    @JsonProperty("executor")
+    public void setExecutor(final ServerExecutorFactory executor) {
+        this.executor = executor;
+    }
+
+    @JsonProperty("concurrencyLimiter")
+    public ConcurrencyLimiterFactory getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    @JsonProperty("concurrencyLimiter")
+    public void setConcurrencyLimiter(final ConcurrencyLimiterFactory concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @JsonProperty("minDeadline")
+    public Duration getMinDeadline() {
+        return minDeadline;
+    }
+
+    @JsonProperty("minDeadline")
+    public void setMinDeadline(final Duration minDeadline) {
+        this.minDeadline = minDeadline;
+    }
+
+    @JsonProperty("methodMinDeadlines")
+    public Map<String, Duration> getMethodMinDeadlines() {
+        return methodMinDeadlines;
+    }
+
+    @JsonProperty("methodMinDeadlines")
+    public void setMethodMinDeadlines(final Map<String, Duration> methodMinDeadlines) {
+        this.methodMinDeadlines = methodMinDeadlines;
+    }
+
+    @JsonProperty("responseCaches")
+    public Map<String, ResponseCacheFactory> getResponseCaches() {
+        return responseCaches;
+    }
+
+    @JsonProperty("responseCaches")
+    public void setResponseCaches(final Map<String, ResponseCacheFactory> responseCaches) {
+        this.responseCaches = responseCaches;
+    }
+
+    @JsonProperty("coalescedMethods")
+    public Set<String> getCoalescedMethods() {
+        return coalescedMethods;
+    }
+
+    @JsonProperty("coalescedMethods")
+    public void setCoalescedMethods(final Set<String> coalescedMethods) {
+        this.coalescedMethods = coalescedMethods;
+    }
+
+    @JsonProperty("zeroCopyMethods")
+    public Set<String> getZeroCopyMethods() {
+        return zeroCopyMethods;
+    }
+
+    @JsonProperty("zeroCopyMethods")
+    public void setZeroCopyMethods(final Set<String> zeroCopyMethods) {
+        this.zeroCopyMethods = zeroCopyMethods;
+    }
+
+    @JsonProperty("listeners")
+    public List<GrpcServerFactory> getListeners() {
+        return listeners;
+    }
+
+    @JsonProperty("listeners")
+    public void setListeners(final List<GrpcServerFactory> listeners) {
+        this.listeners = listeners;
+    }
+
     @ValidationMethod(message = "cert chain file {value} does not exist")
     public boolean isValidCertChainFile() {
         return certChainFile == null || Files.exists(certChainFile);
@@ -137,20 +744,167 @@ public class GrpcServerFactory {
         return privateKeyFile == null || Files.exists(privateKeyFile);
     }
 
+    @ValidationMethod(message = "methodMinDeadlines requires minDeadline")
+    public boolean isValidMethodMinDeadlines() {
+        return minDeadline != null || methodMinDeadlines.isEmpty();
+    }
+
+    @ValidationMethod(message = "tls cannot be combined with certChainFile and privateKeyFile")
+    public boolean isValidTls() {
+        return tls == null || (certChainFile == null && privateKeyFile == null);
+    }
+
+    @ValidationMethod(message = "listeners must have distinct names, ports, unixSocketPaths and inProcessNames and no "
+            + "listeners of their own")
+    public boolean isValidListeners() {
+        final Set<String> names = new HashSet<>();
+        final Set<Integer> ports = new HashSet<>();
+        final Set<Path> socketPaths = new HashSet<>();
+        final Set<String> inProcessNames = new HashSet<>();
+        if (name != null) {
+            names.add(name);
+        }
+        if (port != 0 && unixSocketPath == null) {
+            ports.add(port);
+        }
+        if (unixSocketPath != null) {
+            socketPaths.add(unixSocketPath.toAbsolutePath().normalize());
+        }
+        if (inProcessName != null) {
+            inProcessNames.add(inProcessName);
+        }
+        for (final GrpcServerFactory listener : listeners) {
+            if (listener.getName() == null || !names.add(listener.getName()) || !listener.getListeners().isEmpty()
+                    || (listener.getPort() != 0 && listener.getUnixSocketPath() == null
+                            && !ports.add(listener.getPort()))
+                    || (listener.getUnixSocketPath() != null
+                            && !socketPaths.add(listener.getUnixSocketPath().toAbsolutePath().normalize()))
+                    || (listener.getInProcessName() != null && !inProcessNames.add(listener.getInProcessName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @param environment to use
-     * @return A {@link ServerBuilder}, with port and optional transport security set from the configuration. To use
-     *         this, add gRPC services to the server, then call build(). The returned server is lifecycle-managed in the
-     *         given {@link Environment}.
+     * @return A {@link ServerBuilder}, with port, netty transport settings, executor and optional transport security
+     *         set from the configuration. To use this, add gRPC services to the server, then call build(). The returned
+     *         server and the event loop groups and executor created for it are lifecycle-managed in the given
+     *         {@link Environment}. The builder is a {@link DropwizardServerBuilder}, which provides the health service
+     *         via {@link DropwizardServerBuilder#getHealthService()} if it is enabled.
+     * @throws UncheckedIOException if {@code tls} is configured and the certificates or the private key cannot be
+     *         loaded
      */
     public ServerBuilder<?> builder(final Environment environment) {
-        final ServerBuilder<?> originBuilder;
-        final ServerBuilder<?> dropwizardBuilder;
-        originBuilder = ServerBuilder.forPort(port);
-        dropwizardBuilder = new DropwizardServerBuilder(environment, originBuilder, shutdownPeriod);
+        final NettyServerBuilder originBuilder;
+        final DropwizardServerBuilder dropwizardBuilder;
+        originBuilder = unixSocketPath == null ? NettyServerBuilder.forPort(port)
+                : NettyTransports.domainSocketServerBuilder(unixSocketPath);
+        configureTransport(environment, originBuilder);
+        dropwizardBuilder = new DropwizardServerBuilder(environment, originBuilder, shutdownPeriod, name);
+        if (tls != null) {
+            try {
+                originBuilder.sslContext(tls.build(environment, dropwizardBuilder));
+            } catch (final SSLException e) {
+                throw new UncheckedIOException("Could not configure transport security of the server", e);
+            }
+        }
+        executor.configure(environment, dropwizardBuilder, shutdownPeriod);
+        dropwizardBuilder.preDrainDelay(preDrainDelay);
+        dropwizardBuilder.concurrencyLimiter(concurrencyLimiter);
+        if (minDeadline != null) {
+            dropwizardBuilder.minDeadline(minDeadline, methodMinDeadlines);
+        }
+        dropwizardBuilder.responseCaches(responseCaches);
+        dropwizardBuilder.coalesceRequests(coalescedMethods);
+        dropwizardBuilder.zeroCopyMethods(zeroCopyMethods);
+        dropwizardBuilder.inProcess(inProcessName);
+        dropwizardBuilder.socketFile(unixSocketPath);
+        if (healthServiceEnabled) {
+            final GrpcHealthService healthService = new GrpcHealthService();
+            final ScheduledExecutorService healthCheckExecutor =
+                    environment.lifecycle().scheduledExecutorService("grpc-health-check-%d", true).build();
+            environment.lifecycle().manage(new HealthCheckBridge(environment.healthChecks(), healthService,
+                serviceHealthChecks, healthCheckExecutor, healthCheckInterval));
+            dropwizardBuilder.healthService(healthService);
+        }
         if (certChainFile != null && privateKeyFile != null) {
             dropwizardBuilder.useTransportSecurity(certChainFile.toFile(), privateKeyFile.toFile());
         }
         return dropwizardBuilder;
     }
+
+    /**
+     * @param environment to use
+     * @return A {@link ServerBuilder} for this server as returned by {@link #builder(Environment)}, followed by one for
+     *         each of the {@code listeners}. Add the same services to each of them and build each of them.
+     * @throws UncheckedIOException if {@code tls} of a server is configured and the certificates or the private key
+     *         cannot be loaded
+     */
+    public List<ServerBuilder<?>> builders(final Environment environment) {
+        final List<ServerBuilder<?>> builders = new ArrayList<>(1 + listeners.size());
+        builders.add(builder(environment));
+        for (final GrpcServerFactory listener : listeners) {
+            builders.add(listener.builder(environment));
+        }
+        return builders;
+    }
+
+    private void configureTransport(final Environment environment, final NettyServerBuilder builder) {
+        // domain sockets are only supported by the epoll transport
+        final boolean epoll = unixSocketPath != null || (useEpoll && NettyTransports.isEpollAvailable());
+        if (epoll || bossEventLoopThreads != null || workerEventLoopThreads != null) {
+            final String threadNamePrefix = name == null ? "grpc-server" : "grpc-server-" + name;
+            final EventLoopGroup bossGroup = newEventLoopGroup(environment, epoll, threadNamePrefix + "-boss",
+                bossEventLoopThreads == null ? 1 : bossEventLoopThreads);
+            final EventLoopGroup workerGroup = newEventLoopGroup(environment, epoll, threadNamePrefix + "-worker",
+                workerEventLoopThreads == null ? 0 : workerEventLoopThreads);
+            builder.bossEventLoopGroup(bossGroup).workerEventLoopGroup(workerGroup);
+            if (unixSocketPath == null) {
+                builder.channelType(NettyTransports.serverChannelType(epoll));
+            }
+        }
+        if (flowControlWindow != null) {
+            builder.flowControlWindow(Math.toIntExact(flowControlWindow.toBytes()));
+        }
+        if (maxInboundMessageSize != null) {
+            builder.maxInboundMessageSize(Math.toIntExact(maxInboundMessageSize.toBytes()));
+        }
+        if (maxConcurrentCallsPerConnection != null) {
+            builder.maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection);
+        }
+        if (keepAliveTime != null) {
+            builder.keepAliveTime(keepAliveTime.getQuantity(), keepAliveTime.getUnit());
+        }
+        if (keepAliveTimeout != null) {
+            builder.keepAliveTimeout(keepAliveTimeout.getQuantity(), keepAliveTimeout.getUnit());
+        }
+        if (maxConnectionIdle != null) {
+            builder.maxConnectionIdle(maxConnectionIdle.getQuantity(), maxConnectionIdle.getUnit());
+        }
+        if (maxConnectionAge != null) {
+            builder.maxConnectionAge(maxConnectionAge.getQuantity(), maxConnectionAge.getUnit());
+        }
+        if (maxConnectionAgeGrace != null) {
+            builder.maxConnectionAgeGrace(maxConnectionAgeGrace.getQuantity(), maxConnectionAgeGrace.getUnit());
+        }
+        if (permitKeepAliveTime != null) {
+            builder.permitKeepAliveTime(permitKeepAliveTime.getQuantity(), permitKeepAliveTime.getUnit());
+        }
+        builder.permitKeepAliveWithoutCalls(permitKeepAliveWithoutCalls);
+        if (allocator != null) {
+            builder.withChildOption(ChannelOption.ALLOCATOR, allocator.getAllocator());
+            allocator.registerMetrics(environment.metrics(), MetricRegistry.name("grpc.server", name, "allocator"));
+        }
+    }
+
+    private EventLoopGroup newEventLoopGroup(final Environment environment, final boolean epoll, final String name,
+            final int threads) {
+        final EventLoopGroup eventLoopGroup;
+        eventLoopGroup = NettyTransports.newEventLoopGroup(epoll, threads, new DefaultThreadFactory(name, true));
+        // registered before the server is built, so the group is stopped after the server
+        environment.lifecycle().manage(new ManagedEventLoopGroup(name, eventLoopGroup, shutdownPeriod));
+        return eventLoopGroup;
+    }
 }
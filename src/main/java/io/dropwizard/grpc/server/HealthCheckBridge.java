@@ -0,0 +1,102 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.google.common.collect.ImmutableMap;
+
+import io.dropwizard.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Periodically runs the health checks of a {@link HealthCheckRegistry} and reports the results via a
+ * {@link GrpcHealthService}.
+ * <p>
+ * Health probes are answered from the statuses stored in the health service, they never run health checks themselves.
+ * The server as a whole is {@code SERVING} if all health checks are healthy. A service is {@code SERVING} if the
+ * health checks mapped to it are healthy, services without a mapping report the status of the server as a whole.
+ */
+final class HealthCheckBridge implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(HealthCheckBridge.class);
+
+    private final HealthCheckRegistry healthChecks;
+    private final GrpcHealthService healthService;
+    private final Map<String, Set<String>> serviceHealthChecks;
+    private final ScheduledExecutorService executor;
+    private final Duration interval;
+    @Nullable
+    private ScheduledFuture<?> refresh;
+
+    HealthCheckBridge(final HealthCheckRegistry healthChecks, final GrpcHealthService healthService,
+            final Map<String, Set<String>> serviceHealthChecks, final ScheduledExecutorService executor,
+            final Duration interval) {
+        this.healthChecks = checkNotNull(healthChecks, "healthChecks");
+        this.healthService = checkNotNull(healthService, "healthService");
+        this.serviceHealthChecks = ImmutableMap.copyOf(serviceHealthChecks);
+        this.executor = checkNotNull(executor, "executor");
+        this.interval = checkNotNull(interval, "interval");
+    }
+
+    @Override
+    public void start() throws Exception {
+        // report the initial status before the server is started
+        refresh();
+        refresh = executor.scheduleWithFixedDelay(this::refresh, interval.toMilliseconds(), interval.toMilliseconds(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+    }
+
+    void refresh() {
+        try {
+            final SortedMap<String, HealthCheck.Result> results = healthChecks.runHealthChecks();
+            final ServingStatus serverStatus = status(results, results.keySet());
+            healthService.setStatus("", serverStatus);
+            final Set<String> services = new LinkedHashSet<>(healthService.getServices());
+            services.addAll(serviceHealthChecks.keySet());
+            services.remove("");
+            for (final String service : services) {
+                final Set<String> names = serviceHealthChecks.get(service);
+                healthService.setStatus(service, names == null ? serverStatus : status(results, names));
+            }
+        } catch (final RuntimeException e) {
+            log.error("Could not refresh the health status from the health checks", e);
+        }
+    }
+
+    private static ServingStatus status(final Map<String, HealthCheck.Result> results,
+            final Collection<String> names) {
+        for (final String name : names) {
+            final HealthCheck.Result result = results.get(name);
+            if (result == null) {
+                log.warn("Health check {} is not registered", name);
+                return ServingStatus.NOT_SERVING;
+            }
+            if (!result.isHealthy()) {
+                return ServingStatus.NOT_SERVING;
+            }
+        }
+        return ServingStatus.SERVING;
+    }
+}
@@ -0,0 +1,39 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.codahale.metrics.Counter;
+
+import io.grpc.Metadata;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+
+/**
+ * {@link ServerStreamTracer.Factory} which counts the calls in progress on a single server.
+ * <p>
+ * The services of a server which also serves in-process are shared by both servers, so the server-wide
+ * {@code inFlight} counter of {@link MetricsServerInterceptor} counts the calls of both. Each of the servers counts its
+ * own calls with this factory instead, so that {@link ManagedGrpcServer} only counts the calls of the server it shuts
+ * down as cancelled.
+ */
+final class InFlightStreamTracerFactory extends ServerStreamTracer.Factory {
+    private final Counter inFlight;
+
+    /**
+     * @param inFlight counter of the calls in progress on the server
+     */
+    InFlightStreamTracerFactory(final Counter inFlight) {
+        this.inFlight = checkNotNull(inFlight, "inFlight");
+    }
+
+    @Override
+    public ServerStreamTracer newServerStreamTracer(final String fullMethodName, final Metadata headers) {
+        inFlight.inc();
+        return new ServerStreamTracer() {
+            @Override
+            public void streamClosed(final Status status) {
+                inFlight.dec();
+            }
+        };
+    }
+}
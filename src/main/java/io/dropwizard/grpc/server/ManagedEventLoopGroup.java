@@ -0,0 +1,46 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import io.netty.channel.EventLoopGroup;
+
+/**
+ * Dropwizard lifecycle management for a netty {@link EventLoopGroup} used by a gRPC server.
+ * <p>
+ * The group must be registered with the lifecycle before the server which uses it, so that it is stopped only after
+ * the server has been stopped.
+ */
+final class ManagedEventLoopGroup implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(ManagedEventLoopGroup.class);
+
+    private final String name;
+    private final EventLoopGroup eventLoopGroup;
+    private final Duration shutdownTimeout;
+
+    ManagedEventLoopGroup(final String name, final EventLoopGroup eventLoopGroup, final Duration shutdownTimeout) {
+        this.name = checkNotNull(name, "name");
+        this.eventLoopGroup = checkNotNull(eventLoopGroup, "eventLoopGroup");
+        this.shutdownTimeout = checkNotNull(shutdownTimeout, "shutdownTimeout");
+    }
+
+    @Override
+    public void start() throws Exception {
+        // event loop threads are started lazily by netty
+    }
+
+    @Override
+    public void stop() throws Exception {
+        log.debug("Shutting down event loop group {}", name);
+        final boolean terminated = eventLoopGroup
+            .shutdownGracefully(0, shutdownTimeout.getQuantity(), shutdownTimeout.getUnit())
+            .await(shutdownTimeout.getQuantity(), shutdownTimeout.getUnit());
+        if (!terminated) {
+            log.info("Event loop group {} did not terminate after {}", name, shutdownTimeout);
+        }
+    }
+}
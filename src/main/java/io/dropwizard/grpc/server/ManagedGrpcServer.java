@@ -2,52 +2,245 @@ package io.dropwizard.grpc.server;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+
+import io.dropwizard.grpc.health.v1.HealthCheckResponse.ServingStatus;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.util.Duration;
 import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
 
 /**
  * Dropwizard lifecycle management for a gRPC server.
+ * <p>
+ * If a {@link GrpcHealthService} is given, the server and all its services are reported as {@code SERVING} once the
+ * server has been started, unless their status has been set already. Services without a status inherit the status of
+ * the server as a whole if that has been set, e.g. from the health checks.
+ * <p>
+ * The server is drained in phases when it is stopped:
+ * <ol>
+ * <li>If a {@link GrpcHealthService} is given, all services are reported as {@code NOT_SERVING}.</li>
+ * <li>The server keeps accepting calls for the {@code preDrainDelay}, so that load balancers notice the health change
+ * and move traffic away.</li>
+ * <li>The server is shut down, which sends a GOAWAY to all clients. Clients stop sending new calls on their
+ * connections and reconnect elsewhere, calls in progress continue.</li>
+ * <li>The server waits up to the {@code shutdownTimeout} for calls in progress to complete. Calls still in progress
+ * afterwards are cancelled and counted by the {@code cancelled} meter. The server then waits a few more seconds for
+ * the cancelled calls to be closed, so that the event loops and executors are not shut down underneath them.</li>
+ * </ol>
+ * <p>
+ * If the server listens on a Unix domain socket, a stale socket file left behind by a process which has not been
+ * stopped cleanly is deleted before the server is started, and the socket file is deleted after it has been stopped.
+ * The server fails to start if something other than a socket exists at the path, or if another server is listening
+ * on the socket.
  */
-// TODO attach name for logging purposes
 public final class ManagedGrpcServer implements Managed {
     private static final Logger log = LoggerFactory.getLogger(ManagedGrpcServer.class);
+    // how long to wait for the cancelled calls to be closed after a forceful shutdown
+    private static final Duration FORCED_SHUTDOWN_TIMEOUT = Duration.seconds(5);
 
+    private final String description;
     private final Server server;
     private final Duration shutdownTimeout;
+    private final Duration preDrainDelay;
+    @Nullable
+    private final GrpcHealthService healthService;
+    @Nullable
+    private final Counter inFlight;
+    @Nullable
+    private final Meter cancelled;
+    @Nullable
+    private final Path socketFile;
+    private volatile boolean started;
+
+    /**
+     * Optional settings of a {@link ManagedGrpcServer} created by {@link DropwizardServerBuilder}.
+     */
+    static final class Options {
+        @Nullable
+        private String name;
+        private Duration preDrainDelay = Duration.seconds(0);
+        @Nullable
+        private GrpcHealthService healthService;
+        @Nullable
+        private Counter inFlight;
+        @Nullable
+        private Meter cancelled;
+        @Nullable
+        private Path socketFile;
+
+        /**
+         * @param name of the server used in logging, or {@code null}
+         * @return this
+         */
+        Options name(@Nullable final String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * @param preDrainDelay how long to keep accepting calls after the health status has been changed to
+         *            {@code NOT_SERVING}
+         * @return this
+         */
+        Options preDrainDelay(final Duration preDrainDelay) {
+            this.preDrainDelay = checkNotNull(preDrainDelay, "preDrainDelay");
+            return this;
+        }
+
+        /**
+         * @param healthService to report the shutdown to, or {@code null}
+         * @return this
+         */
+        Options healthService(@Nullable final GrpcHealthService healthService) {
+            this.healthService = healthService;
+            return this;
+        }
+
+        /**
+         * @param inFlight counter of the calls in progress on the server, or {@code null}
+         * @return this
+         */
+        Options inFlight(@Nullable final Counter inFlight) {
+            this.inFlight = inFlight;
+            return this;
+        }
+
+        /**
+         * @param cancelled meter which is marked with the number of calls in progress when the server is shut down
+         *            forcefully, or {@code null}
+         * @return this
+         */
+        Options cancelled(@Nullable final Meter cancelled) {
+            this.cancelled = cancelled;
+            return this;
+        }
+
+        /**
+         * @param socketFile the Unix domain socket the server listens on, or {@code null}
+         * @return this
+         */
+        Options socketFile(@Nullable final Path socketFile) {
+            this.socketFile = socketFile;
+            return this;
+        }
+    }
 
     public ManagedGrpcServer(final Server server) {
         this(server, Duration.seconds(5));
     }
 
     public ManagedGrpcServer(final Server server, final Duration shutdownTimeout) {
+        this(server, shutdownTimeout, new Options());
+    }
+
+    /**
+     * @param server to manage
+     * @param shutdownTimeout how long to wait for calls in progress after the server has been shut down
+     * @param options the optional settings
+     */
+    ManagedGrpcServer(final Server server, final Duration shutdownTimeout, final Options options) {
         this.server = checkNotNull(server, "server");
         this.shutdownTimeout = checkNotNull(shutdownTimeout, "shutdownTimeout");
+        this.description = options.name == null ? "gRPC server" : "gRPC server " + options.name;
+        this.preDrainDelay = options.preDrainDelay;
+        this.healthService = options.healthService;
+        this.inFlight = options.inFlight;
+        this.cancelled = options.cancelled;
+        this.socketFile = options.socketFile;
     }
 
     @Override
     public void start() throws Exception {
-        log.info("Starting gRPC server");
+        log.info("Starting {}", description);
+        if (socketFile != null) {
+            deleteStaleSocket();
+        }
         server.start();
-        log.info("gRPC server started on port {}", server.getPort());
+        started = true;
+        if (healthService != null) {
+            initStatus("", ServingStatus.SERVING);
+            final ServingStatus serverStatus = healthService.getStatus("");
+            for (final ServerServiceDefinition service : server.getServices()) {
+                initStatus(service.getServiceDescriptor().getName(), serverStatus);
+            }
+        }
+        if (socketFile != null) {
+            log.info("{} started on {}", description, socketFile);
+        } else if (server.getPort() < 0) {
+            log.info("{} started", description);
+        } else {
+            log.info("{} started on port {}", description, server.getPort());
+        }
     }
 
     @Override
     public void stop() throws Exception {
-        log.info("Stopping gRPC server on port {}", server.getPort());
+        log.info("Stopping {} on {}", description, socketFile != null ? socketFile : "port " + server.getPort());
+
+        if (healthService != null) {
+            healthService.enterTerminalState();
+        }
+        if (preDrainDelay.getQuantity() > 0) {
+            log.info("Waiting {} before draining {}", preDrainDelay, description);
+            Thread.sleep(preDrainDelay.toMilliseconds());
+        }
+        if (healthService != null) {
+            healthService.completeWatches();
+        }
 
         final boolean terminatedCleanly =
                 server.shutdown().awaitTermination(shutdownTimeout.getQuantity(), shutdownTimeout.getUnit());
 
         if (terminatedCleanly) {
-            log.info("gRPC server stopped and terminated cleanly.");
+            log.info("{} stopped and terminated cleanly.", description);
         } else {
-            log.info("gRPC server did not terminate cleanly after " + shutdownTimeout);
-            log.info("Shutting down gRPC server forcefully.");
-            server.shutdownNow();
+            final long cancelledCalls = inFlight == null ? 0 : inFlight.getCount();
+            log.info("{} did not terminate cleanly after {}", description, shutdownTimeout);
+            log.info("Shutting down {} forcefully, cancelling {} calls in progress.", description, cancelledCalls);
+            if (cancelled != null && cancelledCalls > 0) {
+                cancelled.mark(cancelledCalls);
+            }
+            if (!server.shutdownNow().awaitTermination(FORCED_SHUTDOWN_TIMEOUT.getQuantity(),
+                    FORCED_SHUTDOWN_TIMEOUT.getUnit())) {
+                log.warn("{} did not terminate after being shut down forcefully", description);
+            }
+        }
+        if (socketFile != null && started) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    private void deleteStaleSocket() throws IOException {
+        if (!Files.exists(socketFile, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        // sockets are neither regular files nor directories nor symbolic links
+        if (!Files.readAttributes(socketFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            throw new IllegalStateException("Cannot listen on " + socketFile + ", which exists and is not a socket");
+        }
+        if (NettyTransports.isListening(socketFile)) {
+            throw new IllegalStateException("Cannot listen on " + socketFile + ", another server is listening on it");
+        }
+        Files.delete(socketFile);
+        log.info("Deleted stale socket file {}", socketFile);
+    }
+
+    private void initStatus(final String service, final ServingStatus status) {
+        if (healthService.getStatus(service) == null) {
+            healthService.setStatus(service, status);
         }
     }
 }
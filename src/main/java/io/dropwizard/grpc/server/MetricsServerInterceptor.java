@@ -0,0 +1,231 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * {@link ServerInterceptor} which collects dropwizard metrics for a single gRPC method.
+ * <p>
+ * All metric handles are resolved from the {@link MetricRegistry} when the interceptor is created, so intercepting a
+ * call neither looks up metrics by name nor concatenates strings. The only exception are the per-status counters,
+ * which are registered the first time a call completes with the respective status code.
+ * <p>
+ * The following metrics are collected, prefixed with {@code grpc.server.<full service name>.<method name>}:
+ * <table summary="Metrics">
+ * <tr>
+ * <td>Name</td>
+ * <td>Type</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code calls}</td>
+ * <td>Timer</td>
+ * <td>Duration of calls, from the start of the call until it is closed or cancelled.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code started}</td>
+ * <td>Meter</td>
+ * <td>Calls started.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code completed.<status code>}</td>
+ * <td>Meter</td>
+ * <td>Calls completed with the given status code, e.g. {@code completed.OK}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code failed}</td>
+ * <td>Meter</td>
+ * <td>Calls completed with a status code other than {@code OK}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code inFlight}</td>
+ * <td>Counter</td>
+ * <td>Calls currently in progress.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code messagesReceived}</td>
+ * <td>Meter</td>
+ * <td>Request messages received, only for client-streaming and bidi-streaming methods.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code messagesSent}</td>
+ * <td>Meter</td>
+ * <td>Response messages sent, only for server-streaming and bidi-streaming methods.</td>
+ * </tr>
+ * </table>
+ */
+public final class MetricsServerInterceptor implements ServerInterceptor {
+    private static final Status.Code[] CODES = Status.Code.values();
+
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final Timer calls;
+    private final Meter started;
+    private final Meter failed;
+    private final Counter inFlight;
+    @Nullable
+    private final Counter serverInFlight;
+    private final AtomicReferenceArray<Meter> completed;
+    @Nullable
+    private final Meter messagesReceived;
+    @Nullable
+    private final Meter messagesSent;
+
+    public MetricsServerInterceptor(final MetricRegistry metrics, final MethodDescriptor<?, ?> method) {
+        this(metrics, "grpc.server", method);
+    }
+
+    public MetricsServerInterceptor(final MetricRegistry metrics, final String prefix,
+            final MethodDescriptor<?, ?> method) {
+        this(metrics, prefix, method, null);
+    }
+
+    /**
+     * @param serverInFlight counter of the calls in progress on the whole server, which is shared by the interceptors
+     *            of all methods
+     */
+    MetricsServerInterceptor(final MetricRegistry metrics, final String prefix, final MethodDescriptor<?, ?> method,
+            @Nullable final Counter serverInFlight) {
+        this.metrics = checkNotNull(metrics, "metrics");
+        checkNotNull(prefix, "prefix");
+        checkNotNull(method, "method");
+        final String fullMethodName = method.getFullMethodName();
+        this.prefix = MetricRegistry.name(prefix, MethodDescriptor.extractFullServiceName(fullMethodName),
+            fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1));
+        this.calls = metrics.timer(MetricRegistry.name(this.prefix, "calls"));
+        this.started = metrics.meter(MetricRegistry.name(this.prefix, "started"));
+        this.failed = metrics.meter(MetricRegistry.name(this.prefix, "failed"));
+        this.inFlight = metrics.counter(MetricRegistry.name(this.prefix, "inFlight"));
+        this.serverInFlight = serverInFlight;
+        this.completed = new AtomicReferenceArray<>(CODES.length);
+        this.messagesReceived = method.getType().clientSendsOneMessage() ? null
+                : metrics.meter(MetricRegistry.name(this.prefix, "messagesReceived"));
+        this.messagesSent = method.getType().serverSendsOneMessage() ? null
+                : metrics.meter(MetricRegistry.name(this.prefix, "messagesSent"));
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call,
+            final Metadata headers, final ServerCallHandler<ReqT, RespT> next) {
+        started.mark();
+        inFlight.inc();
+        if (serverInFlight != null) {
+            serverInFlight.inc();
+        }
+        final MetricsServerCall<ReqT, RespT> metricsCall = new MetricsServerCall<>(this, call, System.nanoTime());
+        final ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(metricsCall, headers);
+        } catch (final RuntimeException e) {
+            metricsCall.finish(Status.fromThrowable(e).getCode());
+            throw e;
+        }
+        return new MetricsServerCallListener<>(this, listener, metricsCall);
+    }
+
+    private void record(final Status.Code code, final long durationNanos) {
+        inFlight.dec();
+        if (serverInFlight != null) {
+            serverInFlight.dec();
+        }
+        calls.update(durationNanos, TimeUnit.NANOSECONDS);
+        completedMeter(code).mark();
+        if (code != Status.Code.OK) {
+            failed.mark();
+        }
+    }
+
+    private Meter completedMeter(final Status.Code code) {
+        final int index = code.ordinal();
+        Meter meter = completed.get(index);
+        if (meter == null) {
+            meter = metrics.meter(MetricRegistry.name(prefix, "completed", code.name()));
+            completed.set(index, meter);
+        }
+        return meter;
+    }
+
+    private static final class MetricsServerCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<MetricsServerCall> FINISHED =
+                AtomicIntegerFieldUpdater.newUpdater(MetricsServerCall.class, "finished");
+
+        private final MetricsServerInterceptor interceptor;
+        private final long startNanos;
+        private volatile int finished;
+
+        MetricsServerCall(final MetricsServerInterceptor interceptor, final ServerCall<ReqT, RespT> delegate,
+                final long startNanos) {
+            super(delegate);
+            this.interceptor = interceptor;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void sendMessage(final RespT message) {
+            super.sendMessage(message);
+            if (interceptor.messagesSent != null) {
+                interceptor.messagesSent.mark();
+            }
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            finish(status.getCode());
+            super.close(status, trailers);
+        }
+
+        void finish(final Status.Code code) {
+            if (FINISHED.compareAndSet(this, 0, 1)) {
+                interceptor.record(code, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    private static final class MetricsServerCallListener<ReqT>
+            extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
+        private final MetricsServerInterceptor interceptor;
+        private final MetricsServerCall<ReqT, ?> call;
+
+        MetricsServerCallListener(final MetricsServerInterceptor interceptor, final ServerCall.Listener<ReqT> delegate,
+                final MetricsServerCall<ReqT, ?> call) {
+            super(delegate);
+            this.interceptor = interceptor;
+            this.call = call;
+        }
+
+        @Override
+        public void onMessage(final ReqT message) {
+            if (interceptor.messagesReceived != null) {
+                interceptor.messagesReceived.mark();
+            }
+            super.onMessage(message);
+        }
+
+        @Override
+        public void onCancel() {
+            call.finish(Status.Code.CANCELLED);
+            super.onCancel();
+        }
+    }
+}
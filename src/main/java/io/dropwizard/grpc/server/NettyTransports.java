@@ -0,0 +1,119 @@
+package io.dropwizard.grpc.server;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.unix.Socket;
+
+/**
+ * Selects between the native epoll transport and the NIO transport of netty.
+ * <p>
+ * The epoll transport is an optional dependency: {@code io.netty:netty-transport-native-epoll} with the
+ * {@code linux-x86_64} classifier must be on the classpath for it to be used. Epoll classes are only touched after
+ * {@link #isEpollAvailable()} returned {@code true}.
+ */
+final class NettyTransports {
+    private static final boolean EPOLL_AVAILABLE = checkEpollAvailable();
+
+    // prevent instantiation
+    private NettyTransports() {
+    }
+
+    /**
+     * @return whether the native epoll transport is on the classpath and can be loaded on this platform
+     */
+    static boolean isEpollAvailable() {
+        return EPOLL_AVAILABLE;
+    }
+
+    /**
+     * @param epoll whether to create an epoll event loop group, must only be true if epoll is available
+     * @param threads number of threads, or 0 to use netty's default
+     * @param threadFactory for the event loop threads
+     * @return a new event loop group for the selected transport
+     */
+    static EventLoopGroup newEventLoopGroup(final boolean epoll, final int threads,
+            final ThreadFactory threadFactory) {
+        return epoll ? new EpollEventLoopGroup(threads, threadFactory)
+                : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * @param epoll whether to use the epoll server channel, must only be true if epoll is available
+     * @return the server channel type matching the event loop groups created by {@link #newEventLoopGroup}
+     */
+    static Class<? extends ServerChannel> serverChannelType(final boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * @param socketFile path of the Unix domain socket the server should listen on
+     * @return a new server builder for the socket, using the epoll domain socket server channel, which requires epoll
+     *         event loop groups
+     * @throws IllegalStateException if the epoll transport is not available
+     */
+    static NettyServerBuilder domainSocketServerBuilder(final Path socketFile) {
+        if (!isEpollAvailable()) {
+            throw new IllegalStateException("Unix domain sockets require the native epoll transport, add "
+                    + "io.netty:netty-transport-native-epoll with the linux-x86_64 classifier to the classpath");
+        }
+        return DomainSockets.serverBuilder(socketFile);
+    }
+
+    /**
+     * @param socketFile path of a Unix domain socket
+     * @return whether a server accepts connections on the socket
+     * @throws IllegalStateException if the epoll transport is not available
+     */
+    static boolean isListening(final Path socketFile) {
+        if (!isEpollAvailable()) {
+            throw new IllegalStateException("Unix domain sockets require the native epoll transport");
+        }
+        return DomainSockets.isListening(socketFile);
+    }
+
+    // loaded only if domain sockets are used, as verifying it requires the classes of the epoll transport
+    private static final class DomainSockets {
+        static NettyServerBuilder serverBuilder(final Path socketFile) {
+            return NettyServerBuilder.forAddress(new DomainSocketAddress(socketFile.toFile()))
+                .channelType(EpollServerDomainSocketChannel.class);
+        }
+
+        static boolean isListening(final Path socketFile) {
+            final Socket socket = Socket.newSocketDomain();
+            try {
+                // the socket is non-blocking, so the connect either succeeds or is in progress if a server listens
+                socket.connect(new DomainSocketAddress(socketFile.toFile()));
+                return true;
+            } catch (final IOException e) {
+                return false;
+            } finally {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // ignored, the socket has not been used
+                }
+            }
+        }
+    }
+
+    private static boolean checkEpollAvailable() {
+        try {
+            Class.forName("io.netty.channel.epoll.Epoll", false, NettyTransports.class.getClassLoader());
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        return Epoll.isAvailable();
+    }
+}
@@ -0,0 +1,58 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ * Assigns calls to the priority classes of a {@link WeightedFairExecutor}.
+ * <p>
+ * A call belongs to the class named by its priority header, if the header is set to the name of a class. Otherwise it
+ * belongs to the class its full method name ({@code <full service name>/<method name>}) or its full service name is
+ * mapped to, or to the default class.
+ */
+final class PriorityClassifier {
+    @Nullable
+    private final Metadata.Key<String> header;
+    private final Map<String, Integer> classesByName;
+    private final Map<String, Integer> classesByMethod;
+    private final int defaultClass;
+
+    /**
+     * @param header name of the header naming the priority class of a call, or {@code null}
+     * @param classesByName index of each class by its name
+     * @param classesByMethod index of the class of a full method name or a full service name
+     * @param defaultClass index of the class of all other calls
+     */
+    PriorityClassifier(@Nullable final String header, final Map<String, Integer> classesByName,
+            final Map<String, Integer> classesByMethod, final int defaultClass) {
+        this.header = header == null ? null : Metadata.Key.of(header, Metadata.ASCII_STRING_MARSHALLER);
+        this.classesByName = ImmutableMap.copyOf(checkNotNull(classesByName, "classesByName"));
+        this.classesByMethod = ImmutableMap.copyOf(checkNotNull(classesByMethod, "classesByMethod"));
+        this.defaultClass = defaultClass;
+    }
+
+    int classify(final MethodDescriptor<?, ?> method, final Metadata headers) {
+        if (header != null) {
+            final String name = headers.get(header);
+            final Integer byName = name == null ? null : classesByName.get(name);
+            if (byName != null) {
+                return byName;
+            }
+        }
+        final String fullMethodName = method.getFullMethodName();
+        final Integer byMethod = classesByMethod.get(fullMethodName);
+        if (byMethod != null) {
+            return byMethod;
+        }
+        final Integer byService = classesByMethod.get(MethodDescriptor.extractFullServiceName(fullMethodName));
+        return byService == null ? defaultClass : byService;
+    }
+}
@@ -0,0 +1,143 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * {@link SslContext} which delegates to a context loaded from certificate files and replaces it when the files change.
+ * <p>
+ * The server asks its {@link SslContext} for a new {@link SslHandler} for every accepted connection. Replacing the
+ * delegate therefore only affects connections accepted afterwards, established connections keep the engine and
+ * certificate they were created with.
+ */
+final class ReloadingSslContext extends SslContext {
+    private static final Logger log = LoggerFactory.getLogger(ReloadingSslContext.class);
+
+    /**
+     * Loads a {@link SslContext} from the watched files.
+     */
+    @FunctionalInterface
+    interface Loader {
+        SslContext load() throws SSLException;
+    }
+
+    private final Loader loader;
+    private final List<Path> files;
+    private volatile SslContext delegate;
+    // only accessed by the thread calling reloadIfModified()
+    private List<String> fileVersions;
+
+    ReloadingSslContext(final Loader loader, final List<Path> files) throws SSLException {
+        this.loader = checkNotNull(loader, "loader");
+        this.files = ImmutableList.copyOf(files);
+        this.fileVersions = fileVersions();
+        this.delegate = loader.load();
+    }
+
+    /**
+     * Replaces the delegate if any of the watched files has been modified since the last successful load. If the new
+     * context cannot be loaded, e.g. because a certificate and its key have not both been replaced yet, the previous
+     * context is kept and the files are checked again on the next call.
+     *
+     * @return {@code true} if the delegate was replaced
+     * @throws SSLException if the files have been modified, but the new context cannot be loaded
+     */
+    boolean reloadIfModified() throws SSLException {
+        final List<String> currentVersions = fileVersions();
+        if (currentVersions.equals(fileVersions)) {
+            return false;
+        }
+        delegate = loader.load();
+        fileVersions = currentVersions;
+        log.info("Reloaded TLS context from {}", files);
+        return true;
+    }
+
+    private List<String> fileVersions() {
+        final List<String> versions = new ArrayList<>(files.size());
+        for (final Path file : files) {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                versions.add(attributes.lastModifiedTime() + "/" + attributes.size());
+            } catch (final IOException e) {
+                // the file is being replaced, treat it as modified until it is readable again
+                versions.add(null);
+            }
+        }
+        return versions;
+    }
+
+    @Override
+    public boolean isClient() {
+        return delegate.isClient();
+    }
+
+    @Override
+    public List<String> cipherSuites() {
+        return delegate.cipherSuites();
+    }
+
+    @Override
+    public long sessionCacheSize() {
+        return delegate.sessionCacheSize();
+    }
+
+    @Override
+    public long sessionTimeout() {
+        return delegate.sessionTimeout();
+    }
+
+    // deprecated by netty, but abstract in SslContext, so it must be delegated
+    @Override
+    @SuppressWarnings("deprecation")
+    public io.netty.handler.ssl.ApplicationProtocolNegotiator applicationProtocolNegotiator() {
+        return delegate.applicationProtocolNegotiator();
+    }
+
+    @Override
+    public SSLEngine newEngine(final ByteBufAllocator alloc) {
+        return delegate.newEngine(alloc);
+    }
+
+    @Override
+    public SSLEngine newEngine(final ByteBufAllocator alloc, final String peerHost, final int peerPort) {
+        return delegate.newEngine(alloc, peerHost, peerPort);
+    }
+
+    @Override
+    public SSLSessionContext sessionContext() {
+        return delegate.sessionContext();
+    }
+
+    // delegate the handlers as well, so that providers creating optimized handlers keep doing so
+
+    @Override
+    protected SslHandler newHandler(final ByteBufAllocator alloc, final boolean startTls) {
+        return delegate.newHandler(alloc);
+    }
+
+    @Override
+    protected SslHandler newHandler(final ByteBufAllocator alloc, final String peerHost, final int peerPort,
+            final boolean startTls) {
+        return delegate.newHandler(alloc, peerHost, peerPort);
+    }
+}
@@ -0,0 +1,133 @@
+package io.dropwizard.grpc.server;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.dropwizard.grpc.server.SerializedMessages.Key;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.util.SizeUnit;
+import io.dropwizard.validation.MaxSize;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.MinSize;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+
+/**
+ * A factory for caches of the responses of idempotent unary methods. The cache is keyed by the serialized request and
+ * holds serialized responses, so a hit neither parses the request nor serializes the response. Only responses of calls
+ * completed with {@code OK} are cached.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxSize}</td>
+ * <td>16 MiB</td>
+ * <td>The maximum total size of the cached requests and responses, the least recently used entries are evicted
+ * beyond it.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code ttl}</td>
+ * <td>1 minute</td>
+ * <td>How long a response is cached after it has been stored.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code bypassHeader}</td>
+ * <td>x-cache-bypass</td>
+ * <td>Calls with this request header are passed to the service regardless of the cache, their responses are stored
+ * nevertheless.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * Each cache registers the following metrics, prefixed with {@code grpc.server.<full service name>.<method name>}:
+ * {@code cache.hits} and {@code cache.misses} (meters of the calls answered from the cache and passed to the service),
+ * {@code cache.evictions} (meter of the entries evicted because of their size or age) and {@code cache.entries}
+ * (gauge of the cached responses).
+ */
+public class ResponseCacheFactory {
+    @NotNull
+    @MinSize(value = 1, unit = SizeUnit.KILOBYTES)
+    @MaxSize(value = 2, unit = SizeUnit.GIGABYTES)
+    private Size maxSize = Size.megabytes(16);
+
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration ttl = Duration.minutes(1);
+
+    @NotEmpty
+    private String bypassHeader = "x-cache-bypass";
+
+    @JsonProperty
+    public Size getMaxSize() {
+        return maxSize;
+    }
+
+    @JsonProperty
+    public void setMaxSize(final Size maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @JsonProperty
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    @JsonProperty
+    public void setTtl(final Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    @JsonProperty
+    public String getBypassHeader() {
+        return bypassHeader;
+    }
+
+    @JsonProperty
+    public void setBypassHeader(final String bypassHeader) {
+        this.bypassHeader = bypassHeader;
+    }
+
+    /**
+     * @param metrics to register the cache metrics in
+     * @param prefix of the metric names, e.g. {@code grpc.server.<full service name>.<method name>}
+     * @param method unary method whose responses are cached
+     * @param handler of the method
+     * @return a definition of the method which transfers requests and responses as byte arrays and answers calls from
+     *         a new cache
+     */
+    <ReqT, RespT> ServerMethodDefinition<byte[], byte[]> build(final MetricRegistry metrics, final String prefix,
+            final MethodDescriptor<ReqT, RespT> method, final ServerCallHandler<ReqT, RespT> handler) {
+        final Meter evictions = metrics.meter(MetricRegistry.name(prefix, "cache", "evictions"));
+        final Cache<Key, byte[]> cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxSize.toBytes())
+            .<Key, byte[]>weigher((key, response) -> key.size() + response.length)
+            .expireAfterWrite(ttl.getQuantity(), ttl.getUnit())
+            .removalListener(notification -> {
+                if (notification.wasEvicted()) {
+                    evictions.mark();
+                }
+            })
+            .build();
+        metrics.register(MetricRegistry.name(prefix, "cache", "entries"), (Gauge<Long>) cache::size);
+        return ServerMethodDefinition.create(SerializedMessages.bytesMethod(method),
+            new ResponseCachingServerCallHandler<>(method, handler, cache, bypassHeader,
+                metrics.meter(MetricRegistry.name(prefix, "cache", "hits")),
+                metrics.meter(MetricRegistry.name(prefix, "cache", "misses"))));
+    }
+}
@@ -0,0 +1,230 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+
+import io.dropwizard.grpc.server.SerializedMessages.Key;
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * {@link ServerCallHandler} which answers calls to a unary method from a cache of serialized responses, keyed by the
+ * serialized request.
+ * <p>
+ * The handler is bound to a copy of the method which transfers requests and responses as byte arrays, see
+ * {@link SerializedMessages#bytesMethod(MethodDescriptor)}, so the request bytes received from the client are the
+ * cache key and a cached response is sent without being serialized again. On a miss, the request is parsed and passed
+ * to the handler of the method, and its response is stored if the call completes with {@code OK}. Calls with the
+ * bypass header are not answered from the cache, but their responses are stored.
+ *
+ * @param <ReqT> type of the requests of the method
+ * @param <RespT> type of the responses of the method
+ */
+final class ResponseCachingServerCallHandler<ReqT, RespT> implements ServerCallHandler<byte[], byte[]> {
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final ServerCallHandler<ReqT, RespT> next;
+    private final Cache<Key, byte[]> cache;
+    private final Metadata.Key<String> bypassHeader;
+    private final Meter hits;
+    private final Meter misses;
+
+    /**
+     * @param method the unary method whose responses are cached
+     * @param next handler of the method
+     * @param cache of the serialized responses
+     * @param bypassHeader name of the header which bypasses the cache
+     * @param hits meter of the calls answered from the cache
+     * @param misses meter of the calls passed to {@code next}
+     */
+    ResponseCachingServerCallHandler(final MethodDescriptor<ReqT, RespT> method,
+            final ServerCallHandler<ReqT, RespT> next, final Cache<Key, byte[]> cache, final String bypassHeader,
+            final Meter hits, final Meter misses) {
+        checkArgument(method.getType() == MethodDescriptor.MethodType.UNARY, "Only unary methods can be cached");
+        this.method = method;
+        this.next = checkNotNull(next, "next");
+        this.cache = checkNotNull(cache, "cache");
+        this.bypassHeader = Metadata.Key.of(bypassHeader, Metadata.ASCII_STRING_MARSHALLER);
+        this.hits = checkNotNull(hits, "hits");
+        this.misses = checkNotNull(misses, "misses");
+    }
+
+    @Override
+    public ServerCall.Listener<byte[]> startCall(final ServerCall<byte[], byte[]> call, final Metadata headers) {
+        // like the unary handlers of gRPC, so that a second request is detected
+        call.request(2);
+        return new CachingListener(call, headers);
+    }
+
+    /**
+     * Waits for the request, then answers the call from the cache or starts the call of the method.
+     */
+    private final class CachingListener extends ServerCall.Listener<byte[]> {
+        private final ServerCall<byte[], byte[]> call;
+        private final Metadata headers;
+        @Nullable
+        private byte[] request;
+        @Nullable
+        private ServerCall.Listener<ReqT> delegate;
+        private boolean closed;
+
+        CachingListener(final ServerCall<byte[], byte[]> call, final Metadata headers) {
+            this.call = call;
+            this.headers = headers;
+        }
+
+        @Override
+        public void onMessage(final byte[] message) {
+            if (request != null) {
+                close(Status.INTERNAL.withDescription("Too many requests"));
+                return;
+            }
+            request = message;
+        }
+
+        @Override
+        public void onHalfClose() {
+            if (closed) {
+                return;
+            }
+            if (request == null) {
+                close(Status.INTERNAL.withDescription("Half-closed without a request"));
+                return;
+            }
+            final Key key = new Key(request);
+            if (!headers.containsKey(bypassHeader)) {
+                final byte[] response = cache.getIfPresent(key);
+                if (response != null) {
+                    hits.mark();
+                    call.sendHeaders(new Metadata());
+                    call.sendMessage(response);
+                    close(Status.OK);
+                    return;
+                }
+            }
+            misses.mark();
+            final ReqT parsed;
+            try {
+                parsed = method.parseRequest(new ByteArrayInputStream(request));
+            } catch (final StatusRuntimeException e) {
+                close(e.getStatus());
+                return;
+            }
+            delegate = next.startCall(new CachingServerCall(call, key), headers);
+            delegate.onMessage(parsed);
+            delegate.onHalfClose();
+        }
+
+        @Override
+        public void onCancel() {
+            if (delegate != null) {
+                delegate.onCancel();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (delegate != null) {
+                delegate.onComplete();
+            }
+        }
+
+        @Override
+        public void onReady() {
+            if (delegate != null) {
+                delegate.onReady();
+            }
+        }
+
+        private void close(final Status status) {
+            closed = true;
+            call.close(status, new Metadata());
+        }
+    }
+
+    /**
+     * Serializes the response of a call and stores it in the cache if the call completes with {@code OK}.
+     */
+    private final class CachingServerCall extends ServerCall<ReqT, RespT> {
+        private final ServerCall<byte[], byte[]> call;
+        private final Key key;
+        @Nullable
+        private byte[] response;
+
+        CachingServerCall(final ServerCall<byte[], byte[]> call, final Key key) {
+            this.call = call;
+            this.key = key;
+        }
+
+        @Override
+        public void request(final int numMessages) {
+            call.request(numMessages);
+        }
+
+        @Override
+        public void sendHeaders(final Metadata headers) {
+            call.sendHeaders(headers);
+        }
+
+        @Override
+        public void sendMessage(final RespT message) {
+            response = SerializedMessages.toByteArray(method.streamResponse(message));
+            call.sendMessage(response);
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            if (status.isOk() && response != null) {
+                cache.put(key, response);
+            }
+            call.close(status, trailers);
+        }
+
+        @Override
+        public boolean isReady() {
+            return call.isReady();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return call.isCancelled();
+        }
+
+        @Override
+        public void setMessageCompression(final boolean enabled) {
+            call.setMessageCompression(enabled);
+        }
+
+        @Override
+        public void setCompression(final String compressor) {
+            call.setCompression(compressor);
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return call.getAttributes();
+        }
+
+        @Nullable
+        @Override
+        public String getAuthority() {
+            return call.getAuthority();
+        }
+
+        @Override
+        public MethodDescriptor<ReqT, RespT> getMethodDescriptor() {
+            return method;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.dropwizard.grpc.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.google.common.io.ByteStreams;
+
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Support for handlers which operate on the serialized requests and responses of a method, see
+ * {@link #bytesMethod(MethodDescriptor)}.
+ */
+final class SerializedMessages {
+    private static final MethodDescriptor.Marshaller<byte[]> BYTES_MARSHALLER =
+            new MethodDescriptor.Marshaller<byte[]>() {
+                @Override
+                public InputStream stream(final byte[] value) {
+                    return new ByteArrayInputStream(value);
+                }
+
+                @Override
+                public byte[] parse(final InputStream stream) {
+                    return toByteArray(stream);
+                }
+            };
+
+    private SerializedMessages() {
+    }
+
+    /**
+     * @param method to copy
+     * @return a copy of the given method which transfers requests and responses as byte arrays, so that a handler
+     *         bound to it receives the request bytes sent by the client and sends response bytes as they are
+     */
+    static MethodDescriptor<byte[], byte[]> bytesMethod(final MethodDescriptor<?, ?> method) {
+        return method.toBuilder(BYTES_MARSHALLER, BYTES_MARSHALLER).build();
+    }
+
+    /**
+     * @param stream of a serialized message
+     * @return the bytes of the message
+     * @throws io.grpc.StatusRuntimeException with {@code INTERNAL} if the stream cannot be read
+     */
+    static byte[] toByteArray(final InputStream stream) {
+        try {
+            if (stream instanceof KnownLength) {
+                // the streams of protobuf messages and of received messages know their length, so they are copied once
+                final byte[] bytes = new byte[stream.available()];
+                ByteStreams.readFully(stream, bytes);
+                return bytes;
+            }
+            return ByteStreams.toByteArray(stream);
+        } catch (final IOException e) {
+            throw Status.INTERNAL.withDescription("Failed to read message").withCause(e).asRuntimeException();
+        }
+    }
+
+    /**
+     * Key with value semantics for the bytes of a serialized request.
+     */
+    static final class Key {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        Key(final byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        int size() {
+            return bytes.length;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
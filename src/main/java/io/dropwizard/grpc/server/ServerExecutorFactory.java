@@ -0,0 +1,448 @@
+package io.dropwizard.grpc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+
+/**
+ * A factory for the executor which runs the calls of a gRPC server created by {@link GrpcServerFactory}.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code type}</td>
+ * <td>default</td>
+ * <td>{@code default} uses gRPC's default unbounded cached thread pool. {@code direct} runs calls on the transport
+ * threads, which is only suitable for services which never block. {@code bounded} runs calls on a bounded thread pool
+ * and rejects calls with {@code RESOURCE_EXHAUSTED} when its queue is full. {@code virtual} runs each call on a new
+ * virtual thread, which suits services blocking on I/O. Virtual threads require Java 21 or later, on older runtimes a
+ * {@code bounded} executor is used instead. {@code prioritized} runs calls on a thread pool which queues them per
+ * priority class and serves the classes in proportion to their weights.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code minThreads}</td>
+ * <td>8</td>
+ * <td>The number of core threads of a {@code bounded} or {@code prioritized} executor.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxThreads}</td>
+ * <td>64</td>
+ * <td>The maximum number of threads of a {@code bounded} or {@code prioritized} executor. Threads beyond
+ * {@code minThreads} of a {@code bounded} executor are only started when the queue is full, those of a
+ * {@code prioritized} executor whenever a call is queued and no thread is idle.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code maxQueueSize}</td>
+ * <td>1024</td>
+ * <td>The maximum number of calls waiting for a thread of a {@code bounded} executor.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code keepAliveTime}</td>
+ * <td>1 minute</td>
+ * <td>How long threads beyond {@code minThreads} of a {@code bounded} or {@code prioritized} executor are kept when
+ * idle.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code priorityClasses}</td>
+ * <td>(empty)</td>
+ * <td>The priority classes of a {@code prioritized} executor by name, see {@link PriorityClass}. At least one class
+ * is required.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code defaultPriorityClass}</td>
+ * <td>(the first class)</td>
+ * <td>The priority class of calls which are neither assigned to a class by their method nor by their header.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code priorityHeader}</td>
+ * <td>x-priority</td>
+ * <td>The request header which assigns a call to the priority class it names, overriding the assignment by method.
+ * Set to {@code null} to ignore headers.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * A {@code bounded} executor registers the following metrics, prefixed with {@code grpc.server.executor}:
+ * {@code queued} (gauge of calls waiting for a thread), {@code active} (gauge of busy threads), {@code poolSize}
+ * (gauge of started threads) and {@code rejected} (meter of calls rejected with {@code RESOURCE_EXHAUSTED}).
+ * <p>
+ * A {@code virtual} executor registers the following gauges, prefixed with {@code grpc.server.executor}:
+ * {@code running} (virtual threads currently running a call), {@code parked} (running virtual threads which are
+ * waiting or blocked and therefore unmounted from their carrier thread) and {@code mounted} (running virtual threads
+ * which are mounted on a carrier thread).
+ * <p>
+ * A {@code prioritized} executor registers the gauges {@code active} and {@code poolSize} and the meter
+ * {@code rejected}, prefixed with {@code grpc.server.executor}, and for each priority class the gauge
+ * {@code <class>.queued} and the meter {@code <class>.shed} (calls shed because their deadline expired or they were
+ * queued longer than {@code maxQueueTime}).
+ * <p>
+ * The executor of a named server registers its metrics with the prefix {@code grpc.server.<server name>.executor}
+ * instead.
+ * <p>
+ * With a {@code bounded} or {@code prioritized} executor, the server delivers calls on the transport threads to
+ * {@link DropwizardServerBuilder}, which hands them to the executor. Server-wide interceptors registered via
+ * {@code intercept()} therefore run on the transport threads and must not block.
+ */
+public class ServerExecutorFactory {
+    private static final Logger log = LoggerFactory.getLogger(ServerExecutorFactory.class);
+
+    /**
+     * Executor types.
+     */
+    public enum Type {
+        DEFAULT, DIRECT, BOUNDED, VIRTUAL, PRIORITIZED
+    }
+
+    /**
+     * A priority class of a {@code prioritized} executor.
+     * <p>
+     * <b>Configuration Parameters:</b>
+     * <table summary="Configuration Parameters">
+     * <tr>
+     * <td>Name</td>
+     * <td>Default</td>
+     * <td>Description</td>
+     * </tr>
+     * <tr>
+     * <td>{@code weight}</td>
+     * <td>1</td>
+     * <td>The share of the threads the class receives while other classes have queued calls, too.</td>
+     * </tr>
+     * <tr>
+     * <td>{@code methods}</td>
+     * <td>(empty)</td>
+     * <td>Full method names ({@code <full service name>/<method name>}) or full service names of the calls which
+     * belong to the class.</td>
+     * </tr>
+     * <tr>
+     * <td>{@code maxQueueSize}</td>
+     * <td>1024</td>
+     * <td>The maximum number of queued calls of the class, further calls are rejected with
+     * {@code RESOURCE_EXHAUSTED}.</td>
+     * </tr>
+     * <tr>
+     * <td>{@code maxQueueTime}</td>
+     * <td>(unlimited)</td>
+     * <td>How long a call of the class may be queued before it is shed with {@code RESOURCE_EXHAUSTED}. Calls whose
+     * deadline expires while they are queued are shed with {@code DEADLINE_EXCEEDED} regardless.</td>
+     * </tr>
+     * </table>
+     */
+    public static class PriorityClass {
+        @Min(1)
+        private int weight = 1;
+
+        @NotNull
+        private Set<String> methods = Collections.emptySet();
+
+        @Min(1)
+        private int maxQueueSize = 1024;
+
+        @Nullable
+        @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+        private Duration maxQueueTime;
+
+        @JsonProperty
+        public int getWeight() {
+            return weight;
+        }
+
+        @JsonProperty
+        public void setWeight(final int weight) {
+            this.weight = weight;
+        }
+
+        @JsonProperty
+        public Set<String> getMethods() {
+            return methods;
+        }
+
+        @JsonProperty
+        public void setMethods(final Set<String> methods) {
+            this.methods = methods;
+        }
+
+        @JsonProperty
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        @JsonProperty
+        public void setMaxQueueSize(final int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        @JsonProperty
+        public Duration getMaxQueueTime() {
+            return maxQueueTime;
+        }
+
+        @JsonProperty
+        public void setMaxQueueTime(final Duration maxQueueTime) {
+            this.maxQueueTime = maxQueueTime;
+        }
+    }
+
+    @NotNull
+    private Type type = Type.DEFAULT;
+
+    @Min(1)
+    private int minThreads = 8;
+
+    @Min(1)
+    private int maxThreads = 64;
+
+    @Min(0)
+    private int maxQueueSize = 1024;
+
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    private Duration keepAliveTime = Duration.minutes(1);
+
+    @Valid
+    @NotNull
+    private Map<String, PriorityClass> priorityClasses = new LinkedHashMap<>();
+
+    @Nullable
+    private String defaultPriorityClass;
+
+    @Nullable
+    private String priorityHeader = "x-priority";
+
+    @JsonProperty
+    public Type getType() {
+        return type;
+    }
+
+    @JsonProperty
+    public void setType(final Type type) {
+        this.type = type;
+    }
+
+    @JsonProperty
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    @JsonProperty
+    public void setMinThreads(final int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    @JsonProperty
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    @JsonProperty
+    public void setMaxThreads(final int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    @JsonProperty
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    @JsonProperty
+    public void setMaxQueueSize(final int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    @JsonProperty
+    public Duration getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    @JsonProperty
+    public void setKeepAliveTime(final Duration keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    @JsonProperty
+    public Map<String, PriorityClass> getPriorityClasses() {
+        return priorityClasses;
+    }
+
+    @JsonProperty
+    public void setPriorityClasses(final Map<String, PriorityClass> priorityClasses) {
+        this.priorityClasses = priorityClasses;
+    }
+
+    @JsonProperty
+    public String getDefaultPriorityClass() {
+        return defaultPriorityClass;
+    }
+
+    @JsonProperty
+    public void setDefaultPriorityClass(final String defaultPriorityClass) {
+        this.defaultPriorityClass = defaultPriorityClass;
+    }
+
+    @JsonProperty
+    public String getPriorityHeader() {
+        return priorityHeader;
+    }
+
+    @JsonProperty
+    public void setPriorityHeader(final String priorityHeader) {
+        this.priorityHeader = priorityHeader;
+    }
+
+    @ValidationMethod(message = "maxThreads must be greater than or equal to minThreads")
+    public boolean isValidThreadCount() {
+        return maxThreads >= minThreads;
+    }
+
+    @ValidationMethod(message = "a prioritized executor requires priorityClasses including the defaultPriorityClass")
+    public boolean isValidPriorityClasses() {
+        return type != Type.PRIORITIZED || (!priorityClasses.isEmpty()
+                && (defaultPriorityClass == null || priorityClasses.containsKey(defaultPriorityClass)));
+    }
+
+    /**
+     * Configures the executor of the given builder. {@code bounded} and {@code virtual} executors are
+     * lifecycle-managed in the given {@link Environment}.
+     *
+     * @param environment to use
+     * @param builder to configure
+     * @param shutdownPeriod how long to wait for running calls when the executor is shutdown
+     */
+    void configure(final Environment environment, final DropwizardServerBuilder builder,
+            final Duration shutdownPeriod) {
+        switch (type) {
+            case DIRECT:
+                builder.directExecutor();
+                break;
+            case BOUNDED:
+                configureBounded(environment, builder, shutdownPeriod);
+                break;
+            case VIRTUAL:
+                configureVirtual(environment, builder, shutdownPeriod);
+                break;
+            case PRIORITIZED:
+                configurePrioritized(environment, builder, shutdownPeriod);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void configureBounded(final Environment environment, final DropwizardServerBuilder builder,
+            final Duration shutdownPeriod) {
+        final String prefix = MetricRegistry.name(builder.getMetricPrefix(), "executor");
+        final MetricRegistry metrics = environment.metrics();
+        final BlockingQueue<Runnable> queue =
+                maxQueueSize == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(maxQueueSize);
+        final ExecutorService executor = environment.lifecycle()
+            .executorService(builder.getThreadNamePrefix() + "-executor-%d")
+            .minThreads(minThreads)
+            .maxThreads(maxThreads)
+            .keepAliveTime(keepAliveTime)
+            .workQueue(queue)
+            .shutdownTime(shutdownPeriod)
+            .build();
+        metrics.register(MetricRegistry.name(prefix, "queued"), (Gauge<Integer>) queue::size);
+        if (executor instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor threadPool = (ThreadPoolExecutor) executor;
+            metrics.register(MetricRegistry.name(prefix, "active"),
+                (Gauge<Integer>) threadPool::getActiveCount);
+            metrics.register(MetricRegistry.name(prefix, "poolSize"),
+                (Gauge<Integer>) threadPool::getPoolSize);
+        }
+        builder.dispatchingExecutor(new DispatchingServerInterceptor(executor,
+            metrics.meter(MetricRegistry.name(prefix, "rejected"))));
+    }
+
+    private void configureVirtual(final Environment environment, final DropwizardServerBuilder builder,
+            final Duration shutdownPeriod) {
+        final String prefix = MetricRegistry.name(builder.getMetricPrefix(), "executor");
+        final Optional<VirtualThreadExecutor> virtualThreadExecutor = VirtualThreadExecutor.create();
+        if (!virtualThreadExecutor.isPresent()) {
+            log.warn("Virtual threads are not supported by this runtime, using a bounded executor instead");
+            configureBounded(environment, builder, shutdownPeriod);
+            return;
+        }
+        final VirtualThreadExecutor executor = virtualThreadExecutor.get();
+        environment.lifecycle().manage(new ExecutorServiceManager(executor.getExecutorService(), shutdownPeriod,
+            builder.getThreadNamePrefix() + "-virtual"));
+        final MetricRegistry metrics = environment.metrics();
+        metrics.register(MetricRegistry.name(prefix, "running"),
+            (Gauge<Integer>) executor::getRunning);
+        metrics.register(MetricRegistry.name(prefix, "parked"), (Gauge<Integer>) executor::getParked);
+        metrics.register(MetricRegistry.name(prefix, "mounted"),
+            (Gauge<Integer>) () -> Math.max(0, executor.getRunning() - executor.getParked()));
+        // a virtual thread per task is unbounded, so the executor is used by the server directly
+        builder.executor(executor);
+    }
+
+    private void configurePrioritized(final Environment environment, final DropwizardServerBuilder builder,
+            final Duration shutdownPeriod) {
+        final String prefix = MetricRegistry.name(builder.getMetricPrefix(), "executor");
+        final MetricRegistry metrics = environment.metrics();
+        final List<WeightedFairExecutor.Lane> lanes = new ArrayList<>();
+        final Map<String, Integer> classesByName = new HashMap<>();
+        final Map<String, Integer> classesByMethod = new HashMap<>();
+        for (final Map.Entry<String, PriorityClass> entry : priorityClasses.entrySet()) {
+            final String name = entry.getKey();
+            final PriorityClass priorityClass = entry.getValue();
+            final WeightedFairExecutor.Lane lane = new WeightedFairExecutor.Lane(name, priorityClass.getWeight(),
+                priorityClass.getMaxQueueSize(), priorityClass.getMaxQueueTime() == null ? Long.MAX_VALUE
+                        : priorityClass.getMaxQueueTime().toNanoseconds(),
+                metrics.meter(MetricRegistry.name(prefix, name, "shed")));
+            metrics.register(MetricRegistry.name(prefix, name, "queued"),
+                (Gauge<Integer>) lane::getQueued);
+            classesByName.put(name, lanes.size());
+            for (final String method : priorityClass.getMethods()) {
+                classesByMethod.put(method, lanes.size());
+            }
+            lanes.add(lane);
+        }
+        final WeightedFairExecutor executor = new WeightedFairExecutor(lanes, minThreads, maxThreads,
+            keepAliveTime.toNanoseconds(),
+            new ThreadFactoryBuilder().setNameFormat(builder.getThreadNamePrefix() + "-executor-%d").build());
+        environment.lifecycle().manage(new ExecutorServiceManager(executor, shutdownPeriod,
+            builder.getThreadNamePrefix() + "-executor"));
+        metrics.register(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) executor::getActive);
+        metrics.register(MetricRegistry.name(prefix, "poolSize"),
+            (Gauge<Integer>) executor::getPoolSize);
+        final PriorityClassifier classifier = new PriorityClassifier(priorityHeader, classesByName, classesByMethod,
+            defaultPriorityClass == null ? 0 : classesByName.get(defaultPriorityClass));
+        builder.dispatchingExecutor(new DispatchingServerInterceptor(executor,
+            metrics.meter(MetricRegistry.name(prefix, "rejected")), classifier));
+    }
+}
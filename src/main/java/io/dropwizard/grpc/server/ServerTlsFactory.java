@@ -0,0 +1,327 @@
+package io.dropwizard.grpc.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.grpc.SslProviders;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import io.grpc.netty.GrpcSslContexts;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+
+/**
+ * A factory for the transport security of a gRPC server created by {@link GrpcServerFactory}.
+ * <p>
+ * <b>Configuration Parameters:</b>
+ * <table summary="Configuration Parameters">
+ * <tr>
+ * <td>Name</td>
+ * <td>Default</td>
+ * <td>Description</td>
+ * </tr>
+ * <tr>
+ * <td>{@code certChainFile}</td>
+ * <td>(none)</td>
+ * <td>The server certificate chain file.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code privateKeyFile}</td>
+ * <td>(none)</td>
+ * <td>The server private key file (PKCS#8).</td>
+ * </tr>
+ * <tr>
+ * <td>{@code trustCertCollectionFile}</td>
+ * <td>(none)</td>
+ * <td>The trusted certificates to verify client certificates with. If not set, the trust store of the JVM is
+ * used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code clientAuth}</td>
+ * <td>none</td>
+ * <td>Whether clients must authenticate with a certificate: {@code none}, {@code optional} or {@code require}.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code provider}</td>
+ * <td>openssl</td>
+ * <td>The TLS implementation, {@code openssl} uses netty-tcnative (OpenSSL or BoringSSL) and {@code jdk} uses the
+ * JDK. If {@code openssl} is not available on the classpath, {@code jdk} is used instead.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code ciphers}</td>
+ * <td>(none)</td>
+ * <td>The enabled cipher suites. If not set, the HTTP/2 compliant cipher suites recommended by gRPC are used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code protocols}</td>
+ * <td>(none)</td>
+ * <td>The enabled protocol versions, e.g. {@code TLSv1.2}. If not set, the provider's defaults are used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code sessionCacheSize}</td>
+ * <td>0</td>
+ * <td>The maximum number of cached TLS sessions, 0 uses the provider's default.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code sessionTimeout}</td>
+ * <td>(none)</td>
+ * <td>How long cached TLS sessions can be resumed. If not set, the provider's default is used.</td>
+ * </tr>
+ * <tr>
+ * <td>{@code reloadInterval}</td>
+ * <td>(none)</td>
+ * <td>How often the certificate, key and trust files are checked for modifications. If a file was modified, the TLS
+ * context is reloaded and used for new connections, established connections are not affected. If not set, the files
+ * are only loaded on startup.</td>
+ * </tr>
+ * </table>
+ * <p>
+ * If {@code reloadInterval} is set, the meters {@code grpc.server.tls.reloaded} and
+ * {@code grpc.server.tls.reloadFailed} count successful and failed reloads. The meters of a named server or listener
+ * are prefixed with {@code grpc.server.<server name>.tls} instead.
+ */
+public class ServerTlsFactory {
+    private static final Logger log = LoggerFactory.getLogger(ServerTlsFactory.class);
+
+    /**
+     * TLS implementations.
+     */
+    public enum Provider {
+        OPENSSL, JDK
+    }
+
+    /**
+     * Client authentication modes.
+     */
+    public enum ClientAuthMode {
+        NONE, OPTIONAL, REQUIRE
+    }
+
+    @NotNull
+    private Path certChainFile;
+
+    @NotNull
+    private Path privateKeyFile;
+
+    @Nullable
+    private Path trustCertCollectionFile;
+
+    @NotNull
+    private ClientAuthMode clientAuth = ClientAuthMode.NONE;
+
+    @NotNull
+    private Provider provider = Provider.OPENSSL;
+
+    @Nullable
+    private List<String> ciphers;
+
+    @Nullable
+    private List<String> protocols;
+
+    @Min(0)
+    private long sessionCacheSize;
+
+    @Nullable
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    private Duration sessionTimeout;
+
+    @Nullable
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    private Duration reloadInterval;
+
+    @JsonProperty
+    public Path getCertChainFile() {
+        return certChainFile;
+    }
+
+    @JsonProperty
+    public void setCertChainFile(final Path certChainFile) {
+        this.certChainFile = certChainFile;
+    }
+
+    @JsonProperty
+    public Path getPrivateKeyFile() {
+        return privateKeyFile;
+    }
+
+    @JsonProperty
+    public void setPrivateKeyFile(final Path privateKeyFile) {
+        this.privateKeyFile = privateKeyFile;
+    }
+
+    @JsonProperty
+    public Path getTrustCertCollectionFile() {
+        return trustCertCollectionFile;
+    }
+
+    @JsonProperty
+    public void setTrustCertCollectionFile(final Path trustCertCollectionFile) {
+        this.trustCertCollectionFile = trustCertCollectionFile;
+    }
+
+    @JsonProperty
+    public ClientAuthMode getClientAuth() {
+        return clientAuth;
+    }
+
+    @JsonProperty
+    public void setClientAuth(final ClientAuthMode clientAuth) {
+        this.clientAuth = clientAuth;
+    }
+
+    @JsonProperty
+    public Provider getProvider() {
+        return provider;
+    }
+
+    @JsonProperty
+    public void setProvider(final Provider provider) {
+        this.provider = provider;
+    }
+
+    @JsonProperty
+    public List<String> getCiphers() {
+        return ciphers;
+    }
+
+    @JsonProperty
+    public void setCiphers(final List<String> ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    @JsonProperty
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    @JsonProperty
+    public void setProtocols(final List<String> protocols) {
+        this.protocols = protocols;
+    }
+
+    @JsonProperty
+    public long getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    @JsonProperty
+    public void setSessionCacheSize(final long sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    @JsonProperty
+    public Duration getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    @JsonProperty
+    public void setSessionTimeout(final Duration sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    @JsonProperty
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    @JsonProperty
+    public void setReloadInterval(final Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    @ValidationMethod(message = "cert chain file does not exist")
+    public boolean isValidCertChainFile() {
+        return certChainFile == null || Files.exists(certChainFile);
+    }
+
+    @ValidationMethod(message = "private key file does not exist")
+    public boolean isValidPrivateKeyFile() {
+        return privateKeyFile == null || Files.exists(privateKeyFile);
+    }
+
+    @ValidationMethod(message = "trust cert collection file does not exist")
+    public boolean isValidTrustCertCollectionFile() {
+        return trustCertCollectionFile == null || Files.exists(trustCertCollectionFile);
+    }
+
+    /**
+     * @param environment to use
+     * @param builder of the server, whose metric and thread names are used
+     * @return the {@link SslContext} for the configured settings. If {@code reloadInterval} is set, the context reloads
+     *         itself when the files are modified, using an executor which is lifecycle-managed in the given
+     *         {@link Environment}.
+     * @throws SSLException if the certificates or the private key cannot be loaded
+     */
+    SslContext build(final Environment environment, final DropwizardServerBuilder builder) throws SSLException {
+        if (reloadInterval == null) {
+            return buildSslContext();
+        }
+        final List<Path> files = new ArrayList<>();
+        files.add(certChainFile);
+        files.add(privateKeyFile);
+        if (trustCertCollectionFile != null) {
+            files.add(trustCertCollectionFile);
+        }
+        final ReloadingSslContext sslContext = new ReloadingSslContext(this::buildSslContext, files);
+        final MetricRegistry metrics = environment.metrics();
+        final String prefix = MetricRegistry.name(builder.getMetricPrefix(), "tls");
+        final Meter reloaded = metrics.meter(MetricRegistry.name(prefix, "reloaded"));
+        final Meter reloadFailed = metrics.meter(MetricRegistry.name(prefix, "reloadFailed"));
+        final ScheduledExecutorService executor = environment.lifecycle()
+            .scheduledExecutorService(builder.getThreadNamePrefix() + "-tls-reload-%d", true).build();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                if (sslContext.reloadIfModified()) {
+                    reloaded.mark();
+                }
+            } catch (final SSLException | RuntimeException e) {
+                reloadFailed.mark();
+                log.error("Could not reload TLS context, keeping the previous one", e);
+            }
+        }, reloadInterval.toMilliseconds(), reloadInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+        return sslContext;
+    }
+
+    private SslContext buildSslContext() throws SSLException {
+        final SslContextBuilder builder = GrpcSslContexts.configure(
+            SslContextBuilder.forServer(certChainFile.toFile(), privateKeyFile.toFile()),
+            SslProviders.select(provider == Provider.OPENSSL));
+        if (trustCertCollectionFile != null) {
+            builder.trustManager(trustCertCollectionFile.toFile());
+        }
+        builder.clientAuth(ClientAuth.valueOf(clientAuth.name()));
+        if (ciphers != null) {
+            builder.ciphers(ciphers, SupportedCipherSuiteFilter.INSTANCE);
+        }
+        if (protocols != null) {
+            builder.protocols(protocols.toArray(new String[0]));
+        }
+        if (sessionCacheSize > 0) {
+            builder.sessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout != null) {
+            builder.sessionTimeout(sessionTimeout.toSeconds());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,88 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link Executor} which runs each task on a new virtual thread and keeps track of the threads currently running a
+ * task.
+ * <p>
+ * Virtual threads are only available on Java 21 and later. As this library targets Java 8, the virtual thread
+ * executor is created reflectively via {@link #create()}, which returns an empty result on older runtimes.
+ */
+final class VirtualThreadExecutor implements Executor {
+    private final ExecutorService delegate;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+    private VirtualThreadExecutor(final ExecutorService delegate) {
+        this.delegate = checkNotNull(delegate, "delegate");
+    }
+
+    /**
+     * @return a virtual thread executor, or an empty result if the runtime does not support virtual threads
+     */
+    static Optional<VirtualThreadExecutor> create() {
+        try {
+            final Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return Optional.of(new VirtualThreadExecutor((ExecutorService) executor));
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // older runtime, or virtual threads are a preview feature which has not been enabled
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the underlying executor service, which must be shutdown when the server is stopped
+     */
+    ExecutorService getExecutorService() {
+        return delegate;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        delegate.execute(() -> {
+            final Thread thread = Thread.currentThread();
+            running.add(thread);
+            try {
+                command.run();
+            } finally {
+                running.remove(thread);
+            }
+        });
+    }
+
+    /**
+     * @return the number of threads currently running a task
+     */
+    int getRunning() {
+        return running.size();
+    }
+
+    /**
+     * @return the number of threads currently running a task which are parked, i.e. waiting or blocked, and therefore
+     *         not mounted on a carrier thread. This is a snapshot of the thread states and may be slightly off while
+     *         threads change their state.
+     */
+    int getParked() {
+        int parked = 0;
+        for (final Thread thread : running) {
+            switch (thread.getState()) {
+                case WAITING:
+                case TIMED_WAITING:
+                case BLOCKED:
+                    parked++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return parked;
+    }
+}
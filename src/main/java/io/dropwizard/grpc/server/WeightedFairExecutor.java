@@ -0,0 +1,395 @@
+package io.dropwizard.grpc.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+
+import io.grpc.Deadline;
+import io.grpc.Status;
+
+/**
+ * Executor which queues tasks per priority class and serves the classes in proportion to their weights.
+ * <p>
+ * Each class has a bounded queue of its own. Whenever a thread becomes available, the next task is taken from the
+ * non-empty class which has received the least service relative to its weight (stride scheduling), so a class with
+ * weight 4 runs four tasks for every task of a class with weight 1 while both have queued tasks, and an idle class
+ * does not accumulate credit. Tasks which do not implement {@link PrioritizedTask} belong to the first class.
+ * <p>
+ * Before a {@link PrioritizedTask} is run, it is shed if its deadline has expired ({@code DEADLINE_EXCEEDED}) or if
+ * it has been queued longer than the {@code maxQueueTime} of its class ({@code RESOURCE_EXHAUSTED}), provided that
+ * the task accepts to be shed.
+ */
+final class WeightedFairExecutor extends AbstractExecutorService {
+    private static final Logger log = LoggerFactory.getLogger(WeightedFairExecutor.class);
+
+    /**
+     * A task which carries its priority class and can be shed instead of being run.
+     */
+    interface PrioritizedTask extends Runnable {
+        /**
+         * @return the index of the priority class of the task
+         */
+        int getPriorityClass();
+
+        /**
+         * @return the deadline of the work done by the task, or {@code null}
+         */
+        @Nullable
+        Deadline getDeadline();
+
+        /**
+         * Discards the task instead of running it.
+         *
+         * @param status describing why the task is shed
+         * @return whether the task has been discarded, otherwise it is run
+         */
+        boolean shed(Status status);
+    }
+
+    /**
+     * A priority class with its own queue.
+     */
+    static final class Lane {
+        private final String name;
+        private final double stride;
+        private final int maxQueueSize;
+        private final long maxQueueTimeNanos;
+        private final Meter shed;
+        // guarded by lock
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+        // guarded by lock
+        private double pass;
+        private volatile int size;
+
+        /**
+         * @param name of the class
+         * @param weight share of the threads the class receives while other classes have queued tasks, too
+         * @param maxQueueSize maximum number of queued tasks, further tasks are rejected
+         * @param maxQueueTimeNanos how long a task may be queued before it is shed, or {@link Long#MAX_VALUE}
+         * @param shed meter of the shed tasks
+         */
+        Lane(final String name, final int weight, final int maxQueueSize, final long maxQueueTimeNanos,
+                final Meter shed) {
+            checkArgument(weight > 0, "weight must be positive");
+            checkArgument(maxQueueSize > 0, "maxQueueSize must be positive");
+            this.name = checkNotNull(name, "name");
+            this.stride = 1.0 / weight;
+            this.maxQueueSize = maxQueueSize;
+            this.maxQueueTimeNanos = maxQueueTimeNanos;
+            this.shed = checkNotNull(shed, "shed");
+        }
+
+        /**
+         * @return the number of queued tasks
+         */
+        int getQueued() {
+            return size;
+        }
+    }
+
+    private static final class Entry {
+        private final Lane lane;
+        private final Runnable task;
+        private final long enqueuedNanos;
+
+        Entry(final Lane lane, final Runnable task, final long enqueuedNanos) {
+            this.lane = lane;
+            this.task = task;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final Lane[] lanes;
+    private final int minThreads;
+    private final int maxThreads;
+    private final long keepAliveNanos;
+    private final ThreadFactory threadFactory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+    // guarded by lock
+    private final Set<Thread> workers = new HashSet<>();
+    // guarded by lock
+    private int idleWorkers;
+    // guarded by lock
+    private int queued;
+    // guarded by lock
+    private double virtualTime;
+    // guarded by lock
+    private boolean shutdown;
+
+    /**
+     * @param lanes priority classes, indexed by {@link PrioritizedTask#getPriorityClass()}
+     * @param minThreads number of threads which are kept when idle
+     * @param maxThreads maximum number of threads
+     * @param keepAliveNanos how long threads beyond {@code minThreads} are kept when idle
+     * @param threadFactory to create threads with
+     */
+    WeightedFairExecutor(final List<Lane> lanes, final int minThreads, final int maxThreads,
+            final long keepAliveNanos, final ThreadFactory threadFactory) {
+        checkArgument(!lanes.isEmpty(), "lanes must not be empty");
+        checkArgument(maxThreads > 0 && minThreads <= maxThreads, "0 < maxThreads and minThreads <= maxThreads");
+        this.lanes = lanes.toArray(new Lane[0]);
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.keepAliveNanos = keepAliveNanos;
+        this.threadFactory = checkNotNull(threadFactory, "threadFactory");
+    }
+
+    /**
+     * @return the number of threads which are running a task
+     */
+    int getActive() {
+        lock.lock();
+        try {
+            return workers.size() - idleWorkers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of started threads
+     */
+    int getPoolSize() {
+        lock.lock();
+        try {
+            return workers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        checkNotNull(command, "command");
+        final int index = command instanceof PrioritizedTask ? ((PrioritizedTask) command).getPriorityClass() : 0;
+        final Lane lane = lanes[index >= 0 && index < lanes.length ? index : 0];
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            if (lane.queue.size() >= lane.maxQueueSize) {
+                throw new RejectedExecutionException("Queue of priority class " + lane.name + " is full");
+            }
+            if (lane.queue.isEmpty()) {
+                // an idle class does not accumulate credit
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.queue.add(new Entry(lane, command, System.nanoTime()));
+            lane.size = lane.queue.size();
+            queued++;
+            if (queued > idleWorkers && workers.size() < maxThreads) {
+                startWorker();
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // called with lock held
+    private void startWorker() {
+        final Thread thread = threadFactory.newThread(this::work);
+        if (thread == null) {
+            throw new RejectedExecutionException("Could not create a thread");
+        }
+        workers.add(thread);
+        thread.start();
+    }
+
+    private void work() {
+        try {
+            Entry entry;
+            while ((entry = take()) != null) {
+                if (shed(entry)) {
+                    continue;
+                }
+                try {
+                    entry.task.run();
+                } catch (final RuntimeException e) {
+                    log.error("Exception while executing task", e);
+                }
+            }
+        } catch (final InterruptedException e) {
+            // shut down
+        } finally {
+            lock.lock();
+            try {
+                workers.remove(Thread.currentThread());
+                if (shutdown && workers.isEmpty()) {
+                    terminated.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the next task, or {@code null} if the thread should terminate
+     */
+    @Nullable
+    private Entry take() throws InterruptedException {
+        lock.lock();
+        try {
+            boolean timedOut = false;
+            while (true) {
+                final Entry entry = poll();
+                if (entry != null) {
+                    return entry;
+                }
+                if (shutdown || (timedOut && workers.size() > minThreads)) {
+                    return null;
+                }
+                idleWorkers++;
+                try {
+                    if (workers.size() > minThreads) {
+                        timedOut = available.awaitNanos(keepAliveNanos) <= 0;
+                    } else {
+                        available.await();
+                    }
+                } finally {
+                    idleWorkers--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // called with lock held
+    @Nullable
+    private Entry poll() {
+        Lane next = null;
+        for (final Lane lane : lanes) {
+            if (!lane.queue.isEmpty() && (next == null || lane.pass < next.pass)) {
+                next = lane;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        final Entry entry = next.queue.poll();
+        next.size = next.queue.size();
+        queued--;
+        virtualTime = next.pass;
+        next.pass += next.stride;
+        return entry;
+    }
+
+    private static boolean shed(final Entry entry) {
+        if (!(entry.task instanceof PrioritizedTask)) {
+            return false;
+        }
+        final PrioritizedTask task = (PrioritizedTask) entry.task;
+        final Deadline deadline = task.getDeadline();
+        final Status status;
+        if (deadline != null && deadline.isExpired()) {
+            status = Status.DEADLINE_EXCEEDED.withDescription("Deadline expired while the call was queued");
+        } else if (System.nanoTime() - entry.enqueuedNanos > entry.lane.maxQueueTimeNanos) {
+            status = Status.RESOURCE_EXHAUSTED
+                .withDescription("Call was queued longer than allowed for priority class " + entry.lane.name);
+        } else {
+            return false;
+        }
+        if (!task.shed(status)) {
+            return false;
+        }
+        entry.lane.shed.mark();
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            available.signalAll();
+            if (workers.isEmpty()) {
+                terminated.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        lock.lock();
+        try {
+            shutdown();
+            final List<Runnable> tasks = new ArrayList<>(queued);
+            for (final Lane lane : lanes) {
+                for (final Entry entry : lane.queue) {
+                    tasks.add(entry.task);
+                }
+                lane.queue.clear();
+                lane.size = 0;
+            }
+            queued = 0;
+            for (final Thread worker : workers) {
+                worker.interrupt();
+            }
+            return tasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && workers.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && workers.isEmpty())) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = terminated.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package io.dropwizard.grpc.client;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import io.dropwizard.grpc.server.testing.app.PersonServiceGrpcImpl;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchResult;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.Person;
+import io.dropwizard.grpc.testing.PersonServiceGrpc;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.BaseValidator;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+
+public final class BatchingClientTest {
+    private static final BatchCodec<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse> CODEC =
+            new BatchCodec<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse>() {
+                @Override
+                public GetPersonBatchRequest batchRequest(final List<GetPersonRequest> requests) {
+                    return GetPersonBatchRequest.newBuilder().addAllRequest(requests).build();
+                }
+
+                @Override
+                public Person itemResponse(final GetPersonBatchResponse response, final int index)
+                        throws StatusException {
+                    final GetPersonBatchResult result = response.getResult(index);
+                    if (result.getErrorCode() != 0) {
+                        throw Status.fromCodeValue(result.getErrorCode()).withDescription(result.getErrorMessage())
+                            .asException();
+                    }
+                    return result.getPerson();
+                }
+            };
+
+    @Test
+    public void sendsCallsInBatches() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+        channelFactory.setHostname("localhost");
+        channelFactory.setPort(server.getPort());
+        final BatchingClientFactory batchingFactory = new BatchingClientFactory();
+        batchingFactory.setMaxBatchSize(4);
+        batchingFactory.setMaxLinger(Duration.milliseconds(50));
+
+        final ManagedChannel channel = channelFactory.build(environment, "person-service");
+        try {
+            final BatchingClient<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse> client =
+                    batchingFactory.build(environment, "person-service", channel,
+                        PersonServiceGrpc.getGetPersonBatchMethod(), CODEC);
+            final List<ListenableFuture<Person>> responses = new ArrayList<>();
+            // one full batch and one batch sent after maxLinger
+            for (int i = 0; i < 6; i++) {
+                responses.add(client.call(GetPersonRequest.newBuilder().setName(i == 2 ? "" : "p" + i).build()));
+            }
+
+            for (int i = 0; i < 6; i++) {
+                if (i == 2) {
+                    try {
+                        responses.get(i).get(5, TimeUnit.SECONDS);
+                        fail("Request should have failed");
+                    } catch (final ExecutionException e) {
+                        assertEquals(Status.Code.INVALID_ARGUMENT,
+                            ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+                    }
+                } else {
+                    assertEquals("p" + i, responses.get(i).get(5, TimeUnit.SECONDS).getName());
+                }
+            }
+
+            final MetricRegistry metrics = environment.metrics();
+            final String prefix = "grpc.client.person-service.io.dropwizard.grpc.testing.PersonService.GetPersonBatch";
+            assertEquals(2, metrics.timer(prefix + ".calls").getCount());
+            assertEquals(2, metrics.histogram(prefix + ".batch.size").getCount());
+            assertEquals(4, metrics.histogram(prefix + ".batch.size").getSnapshot().getMax());
+            assertEquals(2, metrics.histogram(prefix + ".batch.size").getSnapshot().getMin());
+            assertTrue(metrics.histogram(prefix + ".batch.linger").getSnapshot().getMax()
+                    >= TimeUnit.MILLISECONDS.toMicros(50));
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledCallerDoesNotFailTheBatch() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+        channelFactory.setHostname("localhost");
+        channelFactory.setPort(server.getPort());
+        final BatchingClientFactory batchingFactory = new BatchingClientFactory();
+        batchingFactory.setMaxBatchSize(2);
+        batchingFactory.setMaxLinger(Duration.seconds(10));
+
+        final ManagedChannel channel = channelFactory.build(environment, "person-service");
+        try {
+            final BatchingClient<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse> client =
+                    batchingFactory.build(environment, "person-service", channel,
+                        PersonServiceGrpc.getGetPersonBatchMethod(), CODEC);
+            final ListenableFuture<Person> first = client.call(GetPersonRequest.newBuilder().setName("p0").build());
+
+            // the call which fills the batch is made by a caller whose own call has been cancelled
+            final Context.CancellableContext cancelled = Context.current().withCancellation();
+            cancelled.cancel(null);
+            final ListenableFuture<Person> second =
+                    cancelled.call(() -> client.call(GetPersonRequest.newBuilder().setName("p1").build()));
+
+            assertEquals("p0", first.get(5, TimeUnit.SECONDS).getName());
+            assertEquals("p1", second.get(5, TimeUnit.SECONDS).getName());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchCallsHaveADeadline() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+        channelFactory.setHostname("localhost");
+        channelFactory.setPort(server.getPort());
+        final BatchingClientFactory batchingFactory = new BatchingClientFactory();
+        batchingFactory.setMaxBatchSize(1);
+        batchingFactory.setBatchTimeout(Duration.milliseconds(100));
+
+        final ManagedChannel channel = channelFactory.build(environment, "person-service");
+        try {
+            final BatchingClient<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse> client =
+                    batchingFactory.build(environment, "person-service", channel,
+                        PersonServiceGrpc.getGetPersonBatchMethod(), CODEC);
+            // the server takes longer than the batch timeout, the caller itself has no deadline
+            final ListenableFuture<Person> response =
+                    client.call(GetPersonRequest.newBuilder().setName("2000").build());
+            try {
+                response.get(1, TimeUnit.SECONDS);
+                fail("Request should have failed");
+            } catch (final ExecutionException e) {
+                assertEquals(Status.Code.DEADLINE_EXCEEDED,
+                    ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+            }
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void callsFailWhenStopped() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+        channelFactory.setHostname("localhost");
+        channelFactory.setPort(server.getPort());
+        final BatchingClientFactory batchingFactory = new BatchingClientFactory();
+        batchingFactory.setMaxLinger(Duration.seconds(10));
+
+        final ManagedChannel channel = channelFactory.build(environment, "person-service");
+        try {
+            final BatchingClient<GetPersonRequest, Person, GetPersonBatchRequest, GetPersonBatchResponse> client =
+                    batchingFactory.build(environment, "person-service", channel,
+                        PersonServiceGrpc.getGetPersonBatchMethod(), CODEC);
+            final ListenableFuture<Person> pending = client.call(GetPersonRequest.newBuilder().setName("p0").build());
+
+            client.stop();
+            assertEquals("p0", pending.get(5, TimeUnit.SECONDS).getName());
+            try {
+                client.call(GetPersonRequest.newBuilder().setName("p1").build()).get(5, TimeUnit.SECONDS);
+                fail("Request should have failed");
+            } catch (final ExecutionException e) {
+                assertEquals(Status.Code.UNAVAILABLE, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+            }
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+}
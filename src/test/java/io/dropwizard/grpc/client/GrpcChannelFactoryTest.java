@@ -1,9 +1,45 @@
 package io.dropwizard.grpc.client;
 
+import static io.dropwizard.testing.ResourceHelpers.resourceFilePath;
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import io.dropwizard.grpc.server.testing.app.PersonServiceGrpcImpl;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonResponse;
+import io.dropwizard.grpc.testing.PersonServiceGrpc;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.BaseValidator;
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.util.RoundRobinLoadBalancerFactory;
+
 public final class GrpcChannelFactoryTest {
     @Test
     public void validationFailsWhenHostnameIsEmpty() {
@@ -25,4 +61,362 @@ public final class GrpcChannelFactoryTest {
     public void acceptsShutdownPeriod() {
         // TODO test if custom shutdown period is honored
     }
+
+    @Test
+    public void collectsMetricsPerChannel() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            PersonServiceGrpc.newBlockingStub(channel).getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+
+            final MetricRegistry metrics = environment.metrics();
+            final String prefix = "grpc.client.person-service.io.dropwizard.grpc.testing.PersonService.GetPerson";
+            assertEquals(1, metrics.timer(prefix + ".calls").getCount());
+            assertEquals(1, metrics.meter(prefix + ".completed.OK").getCount());
+            assertEquals(1, metrics.meter(prefix + ".messagesSent").getCount());
+            assertEquals(1, metrics.meter(prefix + ".messagesReceived").getCount());
+            assertEquals(0, metrics.meter(prefix + ".failed").getCount());
+            assertEquals(0, metrics.counter("grpc.client.person-service.inFlight").getCount());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void spreadsCallsAcrossPool() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+        factory.setPoolSize(3);
+        factory.setPoolStrategy(GrpcChannelFactory.PoolStrategy.ROUND_ROBIN);
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            assertTrue(channel instanceof PooledManagedChannel);
+            assertEquals(3, ((PooledManagedChannel) channel).size());
+            for (int i = 0; i < 6; i++) {
+                PersonServiceGrpc.newBlockingStub(channel)
+                    .getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+            }
+
+            final MetricRegistry metrics = environment.metrics();
+            final String prefix = "grpc.client.person-service.io.dropwizard.grpc.testing.PersonService.GetPerson";
+            assertEquals(6, metrics.meter(prefix + ".completed.OK").getCount());
+            for (int i = 0; i < 3; i++) {
+                final String gauge = "grpc.client.person-service.pool." + i + ".inFlight";
+                assertEquals(0, metrics.getGauges().get(gauge).getValue());
+            }
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+        assertTrue(channel.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void appliesDefaultDeadline() throws Exception {
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+        factory.setDefaultDeadline(Duration.milliseconds(100));
+        factory.setMethodDeadlines(
+            ImmutableMap.of("io.dropwizard.grpc.testing.PersonService/GetPersonList", Duration.seconds(5)));
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            try {
+                client.getPerson(GetPersonRequest.newBuilder().setName("1000").build());
+                fail("Request should have exceeded its deadline");
+            } catch (final StatusRuntimeException e) {
+                assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+            }
+            // an explicit deadline takes precedence
+            client.withDeadlineAfter(5, TimeUnit.SECONDS)
+                .getPerson(GetPersonRequest.newBuilder().setName("200").build());
+            assertEquals(1, client.getPersonList(GetPersonListRequest.newBuilder().build()).getPersonCount());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void channelConnectsToServerWithTls() throws Exception {
+        final Server server = ServerBuilder.forPort(0)
+            .useTransportSecurity(new File(resourceFilePath("cert/server.crt")),
+                new File(resourceFilePath("cert/server.key")))
+            .addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final ClientTlsFactory tls = new ClientTlsFactory();
+        tls.setTrustCertCollectionFile(Paths.get(resourceFilePath("cert/server.crt")));
+        tls.setAuthorityOverride("grpc-dropwizard.example.com");
+        tls.setSessionCacheSize(128);
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+        factory.setPoolSize(2);
+        factory.setTls(tls);
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            for (int i = 0; i < 2; i++) {
+                PersonServiceGrpc.newBlockingStub(channel)
+                    .getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+            }
+            assertSame(tls.getSslContext(), tls.getSslContext());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void balancesCallsAcrossTargets() throws Exception {
+        final Server first = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Server second = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setTargets(ImmutableList.of("127.0.0.1:" + first.getPort(), "127.0.0.1:" + second.getPort()));
+        factory.setLoadBalancingPolicy(GrpcChannelFactory.LoadBalancingPolicy.LEAST_REQUEST);
+        factory.setDnsRefreshInterval(Duration.seconds(1));
+        assertTrue(BaseValidator.newValidator().validate(factory).isEmpty());
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            final MetricRegistry metrics = environment.metrics();
+            final String prefix = "grpc.client.person-service.subchannels.";
+            final Gauge<?> ready = metrics.getGauges().get(prefix + "ready");
+            for (int i = 0; i < 50 && !Long.valueOf(2).equals(ready.getValue()); i++) {
+                PersonServiceGrpc.newBlockingStub(channel)
+                    .getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+                Thread.sleep(100);
+            }
+            assertEquals(2L, ready.getValue());
+            // registered once the addresses are resolved
+            final Map<String, Gauge> gauges = metrics.getGauges();
+            final Gauge<?> firstState = gauges.get(prefix + "127.0.0.1:" + first.getPort() + ".state");
+            final Gauge<?> secondState = gauges.get(prefix + "127.0.0.1:" + second.getPort() + ".state");
+            assertEquals("READY", firstState.getValue());
+            assertEquals("READY", secondState.getValue());
+
+            // calls go to the remaining server once the other one is gone
+            second.shutdownNow().awaitTermination();
+            for (int i = 0; i < 50 && "READY".equals(secondState.getValue()); i++) {
+                Thread.sleep(100);
+            }
+            assertNotEquals("READY", secondState.getValue());
+            for (int i = 0; i < 10; i++) {
+                PersonServiceGrpc.newBlockingStub(channel)
+                    .getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+            }
+            assertEquals("READY", firstState.getValue());
+        } finally {
+            channel.shutdownNow();
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removesStateGaugesOfAddressesNoLongerResolved() throws Exception {
+        final Server first = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final Server second = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl()).build().start();
+        final MetricRegistry metrics = new MetricRegistry();
+        final CompletableFuture<NameResolver.Listener> resolved = new CompletableFuture<>();
+        final NameResolver.Factory resolverFactory = new NameResolver.Factory() {
+            @Override
+            public NameResolver newNameResolver(final URI targetUri, final Attributes params) {
+                return new NameResolver() {
+                    @Override
+                    public String getServiceAuthority() {
+                        return "localhost";
+                    }
+
+                    @Override
+                    public void start(final Listener listener) {
+                        resolved.complete(listener);
+                    }
+
+                    @Override
+                    public void shutdown() {
+                    }
+                };
+            }
+
+            @Override
+            public String getDefaultScheme() {
+                return "test";
+            }
+        };
+        final ManagedChannel channel = NettyChannelBuilder.forTarget("test:///person-service")
+            .nameResolverFactory(resolverFactory)
+            .loadBalancerFactory(new InstrumentedLoadBalancerFactory(RoundRobinLoadBalancerFactory.getInstance(),
+                metrics, "person-service"))
+            .usePlaintext()
+            .build();
+        try {
+            final String firstState = "grpc.client.person-service.subchannels.127.0.0.1:" + first.getPort() + ".state";
+            final String secondState =
+                "grpc.client.person-service.subchannels.127.0.0.1:" + second.getPort() + ".state";
+            channel.getState(true);
+            final NameResolver.Listener listener = resolved.get(5, TimeUnit.SECONDS);
+            listener.onAddresses(ImmutableList.of(new EquivalentAddressGroup(
+                new InetSocketAddress("127.0.0.1", first.getPort()))), Attributes.EMPTY);
+            PersonServiceGrpc.newBlockingStub(channel).getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+            assertEquals("READY", metrics.getGauges().get(firstState).getValue());
+
+            // re-resolved to a different address
+            listener.onAddresses(ImmutableList.of(new EquivalentAddressGroup(
+                new InetSocketAddress("127.0.0.1", second.getPort()))), Attributes.EMPTY);
+            // the channel shuts down subchannels of removed addresses after a delay of 5 seconds
+            for (int i = 0; i < 150 && metrics.getGauges().containsKey(firstState); i++) {
+                Thread.sleep(100);
+            }
+            assertFalse(metrics.getGauges().containsKey(firstState));
+            assertTrue(metrics.getGauges().containsKey(secondState));
+        } finally {
+            channel.shutdownNow();
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+    }
+
+    @Test
+    public void validationFailsWhenTargetsAreCombinedWithTarget() {
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setTargets(ImmutableList.of("localhost:8000"));
+        assertTrue(factory.isValidTargets());
+        factory.setTarget("dns:///localhost:8000");
+        assertFalse(factory.isValidTargets());
+        factory.setTarget(null);
+        factory.setTargets(ImmutableList.of("localhost"));
+        assertFalse(factory.isValidTargets());
+    }
+
+    @Test
+    public void retriesCallsWithRetryPolicy() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl() {
+            @Override
+            public void getPerson(final GetPersonRequest request,
+                    final StreamObserver<GetPersonResponse> responseObserver) {
+                if (calls.incrementAndGet() <= 2) {
+                    responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                } else {
+                    super.getPerson(request, responseObserver);
+                }
+            }
+        }).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final RetryPolicyFactory retryPolicy = new RetryPolicyFactory();
+        retryPolicy.setInitialBackoff(Duration.milliseconds(1));
+        retryPolicy.setMaxBackoff(Duration.milliseconds(10));
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+        factory.setRetryPolicies(ImmutableMap.of("io.dropwizard.grpc.testing.PersonService/GetPerson", retryPolicy));
+        factory.setRetryThrottling(new RetryThrottlingFactory());
+        assertTrue(BaseValidator.newValidator().validate(factory).isEmpty());
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            PersonServiceGrpc.newBlockingStub(channel).getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+
+            assertEquals(3, calls.get());
+            final MetricRegistry metrics = environment.metrics();
+            assertEquals(2, metrics.meter("grpc.client.person-service.retries.attempts").getCount());
+            assertEquals(1, metrics.meter("grpc.client.person-service.retries.won").getCount());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hedgesSlowCalls() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Server server = ServerBuilder.forPort(0).addService(new PersonServiceGrpcImpl() {
+            @Override
+            public void getPerson(final GetPersonRequest request,
+                    final StreamObserver<GetPersonResponse> responseObserver) {
+                // the first attempt is slow
+                super.getPerson(calls.incrementAndGet() == 1 ? request.toBuilder().setName("2000").build() : request,
+                    responseObserver);
+            }
+        }).build().start();
+        final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+            BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+        final HedgingPolicyFactory hedgingPolicy = new HedgingPolicyFactory();
+        hedgingPolicy.setHedgingDelay(Duration.milliseconds(50));
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setHostname("localhost");
+        factory.setPort(server.getPort());
+        factory.setHedgingPolicies(ImmutableMap.of("io.dropwizard.grpc.testing.PersonService", hedgingPolicy));
+
+        final ManagedChannel channel = factory.build(environment, "person-service");
+        try {
+            final long start = System.nanoTime();
+            final GetPersonResponse response = PersonServiceGrpc.newBlockingStub(channel)
+                .getPerson(GetPersonRequest.newBuilder().setName("blah").build());
+
+            assertEquals("blah", response.getPerson().getName());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(2, calls.get());
+            final MetricRegistry metrics = environment.metrics();
+            assertEquals(1, metrics.meter("grpc.client.person-service.hedging.attempts").getCount());
+            assertEquals(1, metrics.meter("grpc.client.person-service.hedging.won").getCount());
+            // the hedged call is counted once
+            final String prefix = "grpc.client.person-service.io.dropwizard.grpc.testing.PersonService.GetPerson";
+            assertEquals(1, metrics.meter(prefix + ".completed.OK").getCount());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void validationFailsWhenMethodHasRetryAndHedgingPolicy() {
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setRetryPolicies(ImmutableMap.of("io.dropwizard.grpc.testing.PersonService", new RetryPolicyFactory()));
+        assertTrue(factory.isValidHedgingPolicies());
+        factory.setHedgingPolicies(
+            ImmutableMap.of("io.dropwizard.grpc.testing.PersonService", new HedgingPolicyFactory()));
+        assertFalse(factory.isValidHedgingPolicies());
+    }
+
+    @Test
+    public void validationFailsWhenServiceRetryPolicyCoversHedgedMethod() {
+        final GrpcChannelFactory factory = new GrpcChannelFactory();
+        factory.setRetryPolicies(ImmutableMap.of("io.dropwizard.grpc.testing.PersonService", new RetryPolicyFactory()));
+        factory.setHedgingPolicies(
+            ImmutableMap.of("io.dropwizard.grpc.testing.OtherService/GetPerson", new HedgingPolicyFactory()));
+        assertTrue(factory.isValidHedgingPolicies());
+        factory.setHedgingPolicies(
+            ImmutableMap.of("io.dropwizard.grpc.testing.PersonService/GetPerson", new HedgingPolicyFactory()));
+        assertFalse(factory.isValidHedgingPolicies());
+
+        // and the other way round
+        factory.setRetryPolicies(
+            ImmutableMap.of("io.dropwizard.grpc.testing.PersonService/GetPerson", new RetryPolicyFactory()));
+        factory.setHedgingPolicies(
+            ImmutableMap.of("io.dropwizard.grpc.testing.PersonService", new HedgingPolicyFactory()));
+        assertFalse(factory.isValidHedgingPolicies());
+    }
 }
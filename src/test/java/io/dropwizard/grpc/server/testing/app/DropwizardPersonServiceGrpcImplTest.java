@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.AfterClass;
@@ -12,6 +13,8 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
+
 import io.dropwizard.grpc.server.testing.junit.TestApplication;
 import io.dropwizard.grpc.server.testing.junit.TestConfiguration;
 import io.dropwizard.grpc.testing.PersonServiceApi.ExceptionalRequest;
@@ -21,6 +24,7 @@ import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonResponse;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonWithIndexRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonWithIndexResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.StreamPersonsRequest;
 import io.dropwizard.grpc.testing.PersonServiceGrpc;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import io.grpc.ManagedChannel;
@@ -87,6 +91,18 @@ public class DropwizardPersonServiceGrpcImplTest {
         assertEquals(TEST_PERSON_NAME, response.getPerson().getName());
     }
 
+    @Test
+    public void testStreamPersons() {
+        final Iterator<GetPersonResponse> responses =
+                client.streamPersons(StreamPersonsRequest.newBuilder().setName(TEST_PERSON_NAME).setCount(3).build());
+        int count = 0;
+        while (responses.hasNext()) {
+            assertEquals(TEST_PERSON_NAME, responses.next().getPerson().getName());
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
     @Test
     public void testExceptional() {
         try {
@@ -96,4 +112,25 @@ public class DropwizardPersonServiceGrpcImplTest {
             assertEquals(Code.INTERNAL, sre.getStatus().getCode());
         }
     }
+
+    @Test
+    public void collectsMetricsPerMethod() {
+        final MetricRegistry metrics = DROPWIZARD.getEnvironment().metrics();
+        final String prefix = "grpc.server.io.dropwizard.grpc.testing.PersonService.Exceptional";
+        final long calls = metrics.timer(prefix + ".calls").getCount();
+        final long failed = metrics.meter(prefix + ".failed").getCount();
+        final long internal = metrics.meter(prefix + ".completed.INTERNAL").getCount();
+
+        try {
+            client.exceptional(ExceptionalRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            fail("Should have thrown an exception");
+        } catch (final StatusRuntimeException sre) {
+            assertEquals(Code.INTERNAL, sre.getStatus().getCode());
+        }
+
+        assertEquals(calls + 1, metrics.timer(prefix + ".calls").getCount());
+        assertEquals(failed + 1, metrics.meter(prefix + ".failed").getCount());
+        assertEquals(internal + 1, metrics.meter(prefix + ".completed.INTERNAL").getCount());
+        assertEquals(0, metrics.counter(prefix + ".inFlight").getCount());
+    }
 }
@@ -9,30 +9,85 @@ import static io.dropwizard.grpc.server.testing.junit.Utils.runCheckCommandUsing
 import static io.dropwizard.grpc.server.testing.junit.Utils.shutdownChannel;
 import static io.dropwizard.testing.ResourceHelpers.resourceFilePath;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.junit.Test;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.protobuf.UnsafeByteOperations;
 
+import io.dropwizard.grpc.ByteBufAllocatorFactory;
+import io.dropwizard.grpc.ZeroCopyProtoMarshaller;
+import io.dropwizard.grpc.client.GrpcChannelFactory;
+import io.dropwizard.grpc.health.v1.HealthCheckRequest;
+import io.dropwizard.grpc.health.v1.HealthCheckResponse;
+import io.dropwizard.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.dropwizard.grpc.health.v1.HealthGrpc;
+import io.dropwizard.grpc.server.GrpcServerFactory;
 import io.dropwizard.grpc.server.testing.junit.TestApplication;
 import io.dropwizard.grpc.server.testing.junit.TestConfiguration;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.Payload;
+import io.dropwizard.grpc.testing.PersonServiceApi.StreamPersonsRequest;
 import io.dropwizard.grpc.testing.PersonServiceGrpc;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
 import io.dropwizard.testing.ConfigOverride;
 import io.dropwizard.testing.DropwizardTestSupport;
 import io.dropwizard.util.Duration;
+import io.dropwizard.validation.BaseValidator;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
 import io.grpc.Status.Code;
 import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.unix.Socket;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.ResourceLeakDetector;
 
 /**
  * Unit tests for the <code>io.dropwizard.grpc.server</code> package.
@@ -67,6 +122,34 @@ public final class GrpcServerTests {
         runCheckCommandUsingConfig(invalidPortYamlConfig);
     }
 
+    @Test(expected = io.dropwizard.configuration.ConfigurationValidationException.class)
+    public void validationFailsWhenListenersShareUnixSocketPath() throws Exception {
+        // @formatter:off
+        final String invalidListenersYamlConfig = "grpcServer:\n" +
+                "  unixSocketPath: /tmp/grpc.sock\n" +
+                "  listeners:\n" +
+                "    - name: internal\n" +
+                "      unixSocketPath: /tmp/../tmp/grpc.sock\n";
+        // @formatter:on
+
+        runCheckCommandUsingConfig(invalidListenersYamlConfig);
+    }
+
+    @Test(expected = io.dropwizard.configuration.ConfigurationValidationException.class)
+    public void validationFailsWhenListenersShareInProcessName() throws Exception {
+        // @formatter:off
+        final String invalidListenersYamlConfig = "grpcServer:\n" +
+                "  port: 0\n" +
+                "  inProcessName: person-service\n" +
+                "  listeners:\n" +
+                "    - name: internal\n" +
+                "      port: 0\n" +
+                "      inProcessName: person-service\n";
+        // @formatter:on
+
+        runCheckCommandUsingConfig(invalidListenersYamlConfig);
+    }
+
     @Test
     public void createsPlainTextServer() throws Exception {
         final DropwizardTestSupport<TestConfiguration> testSupport =
@@ -109,6 +192,712 @@ public final class GrpcServerTests {
         }
     }
 
+    @Test
+    public void createsServerWithTlsAndReloadsCertificates() throws Exception {
+        final Path certDir = Files.createTempDirectory("grpc-tls");
+        final Path certChainFile = Files.copy(Paths.get(resourceFilePath("cert/server.crt")),
+            certDir.resolve("server.crt"));
+        final Path privateKeyFile = Files.copy(Paths.get(resourceFilePath("cert/server.key")),
+            certDir.resolve("server.key"));
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.tls.certChainFile", certChainFile.toUri().toString()),
+            ConfigOverride.config("grpcServer.tls.privateKeyFile", privateKeyFile.toUri().toString()),
+            ConfigOverride.config("grpcServer.tls.provider", "openssl"),
+            ConfigOverride.config("grpcServer.tls.sessionCacheSize", "1024"),
+            ConfigOverride.config("grpcServer.tls.reloadInterval", "1 second"));
+
+        ManagedChannel channel = null;
+        ManagedChannel newChannel = null;
+        try {
+            testSupport.before();
+            final TestApplication application = testSupport.getApplication();
+            final SslContext sslContext =
+                    GrpcSslContexts.forClient().trustManager(certChainFile.toFile()).build();
+            channel = NettyChannelBuilder.forAddress("localhost", application.getServer().getPort())
+                .sslContext(sslContext).overrideAuthority("grpc-dropwizard.example.com").build();
+            final GetPersonRequest request = GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build();
+            assertEquals(TEST_PERSON_NAME, PersonServiceGrpc.newBlockingStub(channel).getPerson(request)
+                .getPerson().getName());
+
+            // simulate a certificate rotation
+            final FileTime modified = FileTime.fromMillis(System.currentTimeMillis() + 10_000L);
+            Files.setLastModifiedTime(certChainFile, modified);
+            Files.setLastModifiedTime(privateKeyFile, modified);
+            final Meter reloaded = testSupport.getEnvironment().metrics().meter("grpc.server.tls.reloaded");
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            while (reloaded.getCount() == 0 && stopwatch.elapsed(TimeUnit.SECONDS) < 5) {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, reloaded.getCount());
+
+            // established connections are kept, new connections use the reloaded context
+            assertEquals(TEST_PERSON_NAME, PersonServiceGrpc.newBlockingStub(channel).getPerson(request)
+                .getPerson().getName());
+            newChannel = NettyChannelBuilder.forAddress("localhost", application.getServer().getPort())
+                .sslContext(sslContext).overrideAuthority("grpc-dropwizard.example.com").build();
+            assertEquals(TEST_PERSON_NAME, PersonServiceGrpc.newBlockingStub(newChannel).getPerson(request)
+                .getPerson().getName());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+            shutdownChannel(newChannel);
+        }
+    }
+
+    @Test
+    public void createsServerWithNettyTransportSettings() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.bossEventLoopThreads", "1"),
+            ConfigOverride.config("grpcServer.workerEventLoopThreads", "2"),
+            ConfigOverride.config("grpcServer.flowControlWindow", "4 MiB"),
+            ConfigOverride.config("grpcServer.maxInboundMessageSize", "1 MiB"),
+            ConfigOverride.config("grpcServer.maxConcurrentCallsPerConnection", "100"),
+            ConfigOverride.config("grpcServer.keepAliveTime", "30 seconds"),
+            ConfigOverride.config("grpcServer.maxConnectionAge", "5 minutes"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+
+            final GetPersonResponse resp =
+                    client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void boundedExecutorRejectsCallsWhenSaturated() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.executor.type", "bounded"),
+            ConfigOverride.config("grpcServer.executor.minThreads", "1"),
+            ConfigOverride.config("grpcServer.executor.maxThreads", "1"),
+            ConfigOverride.config("grpcServer.executor.maxQueueSize", "0"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+
+            // occupy the only executor thread
+            final CompletableFuture<GetPersonResponse> slowResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName("1000").build()));
+            latch.await();
+
+            try {
+                client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                fail("Request should have been rejected");
+            } catch (final StatusRuntimeException e) {
+                assertEquals(Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            }
+            assertEquals("1000", slowResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            assertEquals(1, testSupport.getEnvironment().metrics().meter("grpc.server.executor.rejected").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void concurrencyLimiterRejectsCallsOverTheLimit() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.concurrencyLimiter.initialLimit", "1"),
+            ConfigOverride.config("grpcServer.concurrencyLimiter.maxLimit", "1"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+
+            // occupy the only slot of the limiter
+            final CompletableFuture<GetPersonResponse> slowResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName("1000").build()));
+            latch.await();
+
+            try {
+                client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                fail("Request should have been rejected");
+            } catch (final StatusRuntimeException e) {
+                assertEquals(Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            }
+            // other methods have limiters of their own
+            assertEquals(1, client.getPersonList(GetPersonListRequest.newBuilder().build()).getPersonCount());
+            assertEquals("1000", slowResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            final GetPersonResponse resp =
+                    client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final String prefix = "grpc.server.io.dropwizard.grpc.testing.PersonService.GetPerson.limiter";
+            assertEquals(1, metrics.meter(prefix + ".rejected").getCount());
+            assertEquals(1, metrics.getGauges().get(prefix + ".limit").getValue());
+            assertEquals(0, metrics.getGauges().get(prefix + ".inFlight").getValue());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void concurrencyLimiterDoesNotLimitHealthChecksAndStreams() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.healthServiceEnabled", "true"),
+            ConfigOverride.config("grpcServer.concurrencyLimiter.scope", "service"),
+            ConfigOverride.config("grpcServer.concurrencyLimiter.initialLimit", "1"),
+            ConfigOverride.config("grpcServer.concurrencyLimiter.maxLimit", "1"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            final HealthGrpc.HealthBlockingStub health = HealthGrpc.newBlockingStub(channel);
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+
+            // occupy the only slot of the limiter of the person service
+            final CompletableFuture<GetPersonResponse> slowResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName("1000").build()));
+            latch.await();
+
+            // long-lived watches would otherwise occupy the slot of the health service
+            final BlockingQueue<ServingStatus> watchedStatuses = new LinkedBlockingQueue<>();
+            for (int i = 0; i < 2; i++) {
+                HealthGrpc.newStub(channel).watch(HealthCheckRequest.getDefaultInstance(),
+                    new StreamObserver<HealthCheckResponse>() {
+                        @Override
+                        public void onNext(final HealthCheckResponse value) {
+                            watchedStatuses.add(value.getStatus());
+                        }
+
+                        @Override
+                        public void onError(final Throwable t) {
+                            // ignored
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            // ignored
+                        }
+                    });
+            }
+            assertEquals(ServingStatus.SERVING, watchedStatuses.poll(1, TimeUnit.SECONDS));
+            assertEquals(ServingStatus.SERVING, watchedStatuses.poll(1, TimeUnit.SECONDS));
+            assertEquals(ServingStatus.SERVING, health.check(HealthCheckRequest.getDefaultInstance()).getStatus());
+
+            // server-streaming calls are not limited either
+            assertEquals(2,
+                Iterators.size(client.streamPersons(StreamPersonsRequest.newBuilder().setCount(2).build())));
+            try {
+                client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                fail("Request should have been rejected");
+            } catch (final StatusRuntimeException e) {
+                assertEquals(Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            }
+            assertEquals("1000", slowResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            assertNull(metrics.getGauges().get("grpc.server.grpc.health.v1.Health.limiter.limit"));
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void prioritizedExecutorShedsCallsQueuedTooLong() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.executor.type", "prioritized"),
+            ConfigOverride.config("grpcServer.executor.minThreads", "1"),
+            ConfigOverride.config("grpcServer.executor.maxThreads", "1"),
+            ConfigOverride.config("grpcServer.executor.priorityClasses.batch.maxQueueTime", "100ms"),
+            ConfigOverride.config("grpcServer.executor.priorityClasses.interactive.weight", "4"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            final Metadata interactive = new Metadata();
+            interactive.put(Metadata.Key.of("x-priority", Metadata.ASCII_STRING_MARSHALLER), "interactive");
+            final PersonServiceGrpc.PersonServiceBlockingStub interactiveClient =
+                    MetadataUtils.attachHeaders(client, interactive);
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+
+            // occupy the only executor thread, so that the following calls are queued
+            final CompletableFuture<GetPersonResponse> slowResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName("1000").build()));
+            latch.await();
+            final CompletableFuture<GetPersonResponse> batchResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build()));
+            final CompletableFuture<GetPersonResponse> interactiveResponseFut = CompletableFuture.supplyAsync(
+                () -> interactiveClient.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build()));
+
+            assertEquals("1000", slowResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            assertEquals(TEST_PERSON_NAME, interactiveResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            try {
+                batchResponseFut.get(5, TimeUnit.SECONDS);
+                fail("Request should have been shed");
+            } catch (final ExecutionException e) {
+                assertEquals(Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+            }
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            assertEquals(1, metrics.meter("grpc.server.executor.batch.shed").getCount());
+            assertEquals(0, metrics.meter("grpc.server.executor.interactive.shed").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void rejectsCallsWithDeadlineShorterThanMinDeadline() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.minDeadline", "500ms"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+
+            try {
+                client.withDeadlineAfter(100, TimeUnit.MILLISECONDS)
+                    .getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                fail("Request should have been rejected");
+            } catch (final StatusRuntimeException e) {
+                assertEquals(Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+            }
+            // calls without a deadline are never rejected
+            final GetPersonResponse resp =
+                    client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            assertEquals(1, metrics
+                .meter("grpc.server.io.dropwizard.grpc.testing.PersonService.GetPerson.deadline.rejected").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void answersCallsFromResponseCache() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config-response-cache.yaml"), Optional.empty());
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            final Metadata bypass = new Metadata();
+            bypass.put(Metadata.Key.of("x-cache-bypass", Metadata.ASCII_STRING_MARSHALLER), "true");
+
+            for (int i = 0; i < 3; i++) {
+                final GetPersonResponse resp =
+                        client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+                assertEquals(TEST_PERSON_NAME + "@example.com", resp.getPerson().getEmail());
+            }
+            assertEquals("other",
+                client.getPerson(GetPersonRequest.newBuilder().setName("other").build()).getPerson().getName());
+            assertEquals(TEST_PERSON_NAME, MetadataUtils.attachHeaders(client, bypass)
+                .getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build()).getPerson().getName());
+            assertEquals(1, client.getPersonList(GetPersonListRequest.newBuilder().build()).getPersonCount());
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final String prefix = "grpc.server.io.dropwizard.grpc.testing.PersonService.GetPerson";
+            assertEquals(2, metrics.meter(prefix + ".cache.hits").getCount());
+            assertEquals(3, metrics.meter(prefix + ".cache.misses").getCount());
+            assertEquals(2L, metrics.getGauges().get(prefix + ".cache.entries").getValue());
+            assertEquals(5, metrics.meter(prefix + ".completed.OK").getCount());
+            assertTrue(!metrics.getMeters()
+                .containsKey("grpc.server.io.dropwizard.grpc.testing.PersonService.GetPersonList.cache.hits"));
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void coalescesConcurrentIdenticalCalls() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config-coalescing.yaml"), Optional.empty());
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final String prefix = "grpc.server.io.dropwizard.grpc.testing.PersonService.GetPerson.coalescing";
+
+            final CountDownLatch latch = new CountDownLatch(2);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+            final GetPersonRequest request = GetPersonRequest.newBuilder().setName("1000").build();
+
+            // the first call gives up before the shared call completes
+            final CompletableFuture<GetPersonResponse> firstResponseFut = CompletableFuture
+                .supplyAsync(() -> client.withDeadlineAfter(200, TimeUnit.MILLISECONDS).getPerson(request));
+            while (latch.getCount() == 2) {
+                Thread.sleep(10);
+            }
+            final CompletableFuture<GetPersonResponse> secondResponseFut =
+                    CompletableFuture.supplyAsync(() -> client.getPerson(request));
+            final CompletableFuture<GetPersonResponse> thirdResponseFut =
+                    CompletableFuture.supplyAsync(() -> client.getPerson(request));
+            while (metrics.meter(prefix + ".coalesced").getCount() < 2) {
+                Thread.sleep(10);
+            }
+
+            try {
+                firstResponseFut.get(5, TimeUnit.SECONDS);
+                fail("Request should have exceeded its deadline");
+            } catch (final ExecutionException e) {
+                assertEquals(Code.DEADLINE_EXCEEDED, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+            }
+            assertEquals("1000", secondResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            assertEquals("1000", thirdResponseFut.get(5, TimeUnit.SECONDS).getPerson().getName());
+            // the service has been called once
+            assertEquals(1, latch.getCount());
+            assertEquals(3, metrics.meter(prefix + ".calls").getCount());
+
+            // calls after the shared call has completed are not coalesced
+            final GetPersonResponse resp =
+                    client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+            assertEquals(0, latch.getCount());
+            assertEquals(2, metrics.meter(prefix + ".coalesced").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void zeroCopyMethodsEchoLargePayloads() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config-zero-copy.yaml"), Optional.empty());
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+            channelFactory.setHostname("localhost");
+            channelFactory.setPort(testSupport.<TestApplication>getApplication().getServer().getPort());
+            channelFactory.setZeroCopyMethods(ImmutableSet.of("io.dropwizard.grpc.testing.PersonService"));
+            channel = channelFactory.build(testSupport.getEnvironment(), "zero-copy");
+
+            final byte[] data = new byte[1024 * 1024];
+            new Random(42).nextBytes(data);
+            final Payload resp = PersonServiceGrpc.newBlockingStub(channel)
+                .echoPayload(Payload.newBuilder().setData(UnsafeByteOperations.unsafeWrap(data)).build());
+            assertTrue(Arrays.equals(data, resp.getData().toByteArray()));
+
+            final MethodDescriptor<?, ?> echo = testSupport.<TestApplication>getApplication().getServer()
+                .getServices().stream().flatMap(service -> service.getMethods().stream())
+                .map(ServerMethodDefinition::getMethodDescriptor)
+                .filter(method -> method.getFullMethodName().endsWith("/EchoPayload")).findFirst().get();
+            assertTrue(echo.getRequestMarshaller() instanceof ZeroCopyProtoMarshaller);
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void servesOnUnixDomainSocket() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+        final Path socketFile = Files.createTempDirectory("grpc-uds").resolve("grpc.sock");
+        // left behind by a server which has not been stopped cleanly
+        final Socket staleSocket = Socket.newSocketDomain();
+        staleSocket.bind(new DomainSocketAddress(socketFile.toFile()));
+        staleSocket.close();
+        assertTrue(Files.exists(socketFile));
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.unixSocketPath", socketFile.toString()));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+            channelFactory.setTarget("unix://" + socketFile);
+            channel = channelFactory.build(testSupport.getEnvironment(), "uds");
+            final GetPersonResponse resp = PersonServiceGrpc.newBlockingStub(channel)
+                .getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+        } finally {
+            shutdownChannel(channel);
+            testSupport.after();
+        }
+        assertFalse(Files.exists(socketFile));
+    }
+
+    @Test
+    public void doesNotDeleteFilesAndLiveSocketsAtUnixSocketPath() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+        final Path directory = Files.createTempDirectory("grpc-uds");
+        final Path regularFile = Files.createFile(directory.resolve("grpc.sock"));
+        final Path liveSocketFile = directory.resolve("live.sock");
+        final Socket liveSocket = Socket.newSocketDomain();
+        try {
+            liveSocket.bind(new DomainSocketAddress(liveSocketFile.toFile()));
+            liveSocket.listen(1);
+            for (final Path socketFile : Arrays.asList(regularFile, liveSocketFile)) {
+                // started without Jetty, which stalls stopping its connectors after a failed start
+                final Environment environment = new Environment("test", Jackson.newObjectMapper(),
+                    BaseValidator.newValidator(), new MetricRegistry(), getClass().getClassLoader());
+                final GrpcServerFactory factory = new GrpcServerFactory();
+                factory.setUnixSocketPath(socketFile);
+                factory.builder(environment).addService(new PersonServiceGrpcImpl()).build();
+                final List<LifeCycle> managedObjects = environment.lifecycle().getManagedObjects();
+                try {
+                    for (final LifeCycle managed : managedObjects) {
+                        managed.start();
+                    }
+                    fail("Server should not have started on " + socketFile);
+                } catch (final IllegalStateException e) {
+                    assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot listen on " + socketFile));
+                } finally {
+                    for (final LifeCycle managed : Lists.reverse(managedObjects)) {
+                        managed.stop();
+                    }
+                }
+                assertTrue(Files.exists(socketFile));
+            }
+        } finally {
+            liveSocket.close();
+        }
+    }
+
+    @Test
+    public void servesCallsInProcess() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.inProcessName", "person-service"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+            channelFactory.setInProcessName("person-service");
+            channel = channelFactory.build(testSupport.getEnvironment());
+            final GetPersonResponse resp = PersonServiceGrpc.newBlockingStub(channel)
+                .getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final String method = "io.dropwizard.grpc.testing.PersonService.GetPerson.calls";
+            assertEquals(1, metrics.timer("grpc.server." + method).getCount());
+            assertEquals(1, metrics.timer("grpc.client.person-service." + method).getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void countsCancelledCallsOfEachServerOnce() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.inProcessName", "person-service"));
+
+        ManagedChannel channel = null;
+        ManagedChannel inProcessChannel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            inProcessChannel = InProcessChannelBuilder.forName("person-service").build();
+
+            // one call on each server which outlasts the shutdown period
+            final CountDownLatch latch = new CountDownLatch(2);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+            final List<CompletableFuture<GetPersonResponse>> slowResponseFuts = new ArrayList<>();
+            for (final ManagedChannel slowChannel : Arrays.asList(channel, inProcessChannel)) {
+                slowResponseFuts.add(CompletableFuture.supplyAsync(() -> PersonServiceGrpc.newBlockingStub(slowChannel)
+                    .getPerson(GetPersonRequest.newBuilder().setName("5000").build())));
+            }
+            latch.await();
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            testSupport.after();
+            for (final CompletableFuture<GetPersonResponse> slowResponseFut : slowResponseFuts) {
+                try {
+                    slowResponseFut.get(1, TimeUnit.SECONDS);
+                    fail("Request should have been cancelled");
+                } catch (final ExecutionException e) {
+                    // the client of the network server may see its connection closed before the call is cancelled
+                    assertTrue(ImmutableSet.of(Code.CANCELLED, Code.UNAVAILABLE)
+                        .contains(((StatusRuntimeException) e.getCause()).getStatus().getCode()));
+                }
+            }
+            assertEquals(2, metrics.meter("grpc.server.shutdown.cancelled").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+            shutdownChannel(inProcessChannel);
+        }
+    }
+
+    @Test
+    public void servesOnAllListeners() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config-listeners.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.listeners[1].certChainFile", getURIForResource("cert/server.crt")),
+            ConfigOverride.config("grpcServer.listeners[1].privateKeyFile", getURIForResource("cert/server.key")));
+
+        final List<ManagedChannel> channels = new ArrayList<>();
+        try {
+            testSupport.before();
+            final TestApplication application = testSupport.getApplication();
+            assertEquals(2, application.getListenerServers().size());
+            channels.add(createPlaintextChannel(testSupport));
+            channels.add(NettyChannelBuilder.forAddress("localhost", application.getListenerServers().get(0).getPort())
+                .usePlaintext().build());
+            channels.add(NettyChannelBuilder.forAddress("localhost", application.getListenerServers().get(1).getPort())
+                .sslContext(GrpcSslContexts.forClient().trustManager(new File(resourceFilePath("cert/server.crt")))
+                    .build())
+                .overrideAuthority("grpc-dropwizard.example.com").build());
+            for (final ManagedChannel channel : channels) {
+                final GetPersonResponse resp = PersonServiceGrpc.newBlockingStub(channel)
+                    .getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+                assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+            }
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final String method = "io.dropwizard.grpc.testing.PersonService.GetPerson.calls";
+            assertEquals(1, metrics.timer("grpc.server." + method).getCount());
+            assertEquals(1, metrics.timer("grpc.server.internal." + method).getCount());
+            assertEquals(1, metrics.timer("grpc.server.external." + method).getCount());
+        } finally {
+            testSupport.after();
+            for (final ManagedChannel channel : channels) {
+                shutdownChannel(channel);
+            }
+        }
+    }
+
+    @Test
+    public void exposesAllocatorMetrics() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.allocator.type", "pooled"),
+            ConfigOverride.config("grpcServer.allocator.heapArenas", "1"),
+            ConfigOverride.config("grpcServer.allocator.directArenas", "1"),
+            ConfigOverride.config("grpcServer.allocator.leakDetection", "paranoid"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            final ByteBufAllocatorFactory clientAllocator = new ByteBufAllocatorFactory();
+            clientAllocator.setType(ByteBufAllocatorFactory.Type.UNPOOLED);
+            final GrpcChannelFactory channelFactory = new GrpcChannelFactory();
+            channelFactory.setHostname("localhost");
+            channelFactory.setPort(testSupport.<TestApplication>getApplication().getServer().getPort());
+            channelFactory.setAllocator(clientAllocator);
+            channel = channelFactory.build(testSupport.getEnvironment(), "allocator");
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            for (int i = 0; i < 10; i++) {
+                client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            }
+
+            assertEquals(ResourceLeakDetector.Level.PARANOID, ResourceLeakDetector.getLevel());
+            final Map<String, Gauge> gauges = testSupport.getEnvironment().metrics().getGauges();
+            final long used = (Long) gauges.get("grpc.server.allocator.usedHeapMemory").getValue()
+                    + (Long) gauges.get("grpc.server.allocator.usedDirectMemory").getValue();
+            assertTrue(used > 0);
+            assertTrue((Long) gauges.get("grpc.server.allocator.activeDirectBytes").getValue() >= 0);
+            assertTrue((Integer) gauges.get("grpc.server.allocator.threadLocalCaches").getValue() > 0);
+            // the first buffers of each thread are allocated by the arenas
+            final double arenaRatio = (Double) gauges.get("grpc.server.allocator.arenaAllocationRatio").getValue();
+            assertTrue(arenaRatio > 0 && !Double.isInfinite(arenaRatio));
+            assertNotNull(gauges.get("grpc.client.allocator.allocator.usedDirectMemory"));
+            assertNull(gauges.get("grpc.client.allocator.allocator.arenaAllocationRatio"));
+
+            // the arenas of netty's shared allocator count the allocations of the whole JVM
+            final MetricRegistry defaultMetrics = new MetricRegistry();
+            final ByteBufAllocatorFactory defaultAllocator = new ByteBufAllocatorFactory();
+            assertSame(ByteBufAllocator.DEFAULT, defaultAllocator.getAllocator());
+            defaultAllocator.registerMetrics(defaultMetrics, "default");
+            assertNotNull(defaultMetrics.getGauges().get("default.usedDirectMemory"));
+            assertNull(defaultMetrics.getGauges().get("default.arenaAllocationRatio"));
+            assertNull(defaultMetrics.getGauges().get("default.threadLocalCaches"));
+        } finally {
+            ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void virtualExecutorServesCalls() throws Exception {
+        // falls back to a bounded executor on runtimes without virtual threads
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.executor.type", "virtual"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+
+            final GetPersonResponse resp =
+                    client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build());
+            assertEquals(TEST_PERSON_NAME, resp.getPerson().getName());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test(expected = io.dropwizard.configuration.ConfigurationValidationException.class)
+    public void validationFailsWhenKeepAliveTimeTooShort() throws Exception {
+        // @formatter:off
+        final String invalidKeepAliveYamlConfig = "grpcServer:\n" +
+                "  port: 8080\n" +
+                "  keepAliveTime: 1 second\n";
+        // @formatter:on
+
+        runCheckCommandUsingConfig(invalidKeepAliveYamlConfig);
+    }
+
+    @Test(expected = io.dropwizard.configuration.ConfigurationValidationException.class)
+    public void validationFailsWhenFlowControlWindowDoesNotFitAnInt() throws Exception {
+        // @formatter:off
+        final String invalidFlowControlWindowYamlConfig = "grpcServer:\n" +
+                "  port: 8080\n" +
+                "  flowControlWindow: 2 GiB\n";
+        // @formatter:on
+
+        runCheckCommandUsingConfig(invalidFlowControlWindowYamlConfig);
+    }
+
     @Test
     public void shouldCompleteRequestIfShutdownPeriodLongerThanLongRunningRequest() throws Exception {
         final Duration shutdownPeriod = Duration.milliseconds(3000L);
@@ -161,6 +950,127 @@ public final class GrpcServerTests {
         });
     }
 
+    @Test
+    public void drainsServerAfterHealthFlip() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.healthServiceEnabled", "true"),
+            ConfigOverride.config("grpcServer.preDrainDelay", "1 second"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final PersonServiceGrpc.PersonServiceBlockingStub client = PersonServiceGrpc.newBlockingStub(channel);
+            final HealthCheckRequest healthRequest =
+                    HealthCheckRequest.newBuilder().setService(PersonServiceGrpc.SERVICE_NAME).build();
+            assertEquals(ServingStatus.SERVING,
+                HealthGrpc.newBlockingStub(channel).check(healthRequest).getStatus());
+
+            final BlockingQueue<ServingStatus> watchedStatuses = new LinkedBlockingQueue<>();
+            final CountDownLatch watchCompleted = new CountDownLatch(1);
+            HealthGrpc.newStub(channel).watch(healthRequest, new StreamObserver<HealthCheckResponse>() {
+                @Override
+                public void onNext(final HealthCheckResponse value) {
+                    watchedStatuses.add(value.getStatus());
+                }
+
+                @Override
+                public void onError(final Throwable t) {
+                    watchCompleted.countDown();
+                }
+
+                @Override
+                public void onCompleted() {
+                    watchCompleted.countDown();
+                }
+            });
+            assertEquals(ServingStatus.SERVING, watchedStatuses.poll(1, TimeUnit.SECONDS));
+
+            // a call which outlasts the shutdown period
+            final CountDownLatch latch = new CountDownLatch(1);
+            testSupport.<TestApplication>getApplication().getPersonService().setGetPersonCallLatch(latch);
+            final CompletableFuture<GetPersonResponse> slowResponseFut = CompletableFuture.supplyAsync(
+                () -> client.getPerson(GetPersonRequest.newBuilder().setName("5000").build()));
+            latch.await();
+
+            final MetricRegistry metrics = testSupport.getEnvironment().metrics();
+            final CompletableFuture<Void> stopFut = CompletableFuture.runAsync(testSupport::after);
+
+            // the health status flips first, while new calls are still accepted
+            assertEquals(ServingStatus.NOT_SERVING, watchedStatuses.poll(500, TimeUnit.MILLISECONDS));
+            assertEquals(TEST_PERSON_NAME,
+                client.getPerson(GetPersonRequest.newBuilder().setName(TEST_PERSON_NAME).build()).getPerson()
+                    .getName());
+            assertTrue(watchCompleted.await(2, TimeUnit.SECONDS));
+
+            stopFut.get(5, TimeUnit.SECONDS);
+            try {
+                slowResponseFut.get(1, TimeUnit.SECONDS);
+                fail("Request should have been cancelled");
+            } catch (final ExecutionException e) {
+                assertEquals(Code.CANCELLED, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+            }
+            assertEquals(1, metrics.meter("grpc.server.shutdown.cancelled").getCount());
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
+    @Test
+    public void healthServiceReportsHealthChecks() throws Exception {
+        final DropwizardTestSupport<TestConfiguration> testSupport = new DropwizardTestSupport<>(TestApplication.class,
+            resourceFilePath("grpc-test-config.yaml"), Optional.empty(),
+            ConfigOverride.config("grpcServer.healthServiceEnabled", "true"),
+            ConfigOverride.config("grpcServer.healthCheckInterval", "100 milliseconds"));
+
+        ManagedChannel channel = null;
+        try {
+            testSupport.before();
+            channel = createPlaintextChannel(testSupport);
+            final HealthGrpc.HealthBlockingStub health = HealthGrpc.newBlockingStub(channel);
+            final HealthCheckRequest serverRequest = HealthCheckRequest.getDefaultInstance();
+            assertEquals(ServingStatus.SERVING, health.check(serverRequest).getStatus());
+
+            final BlockingQueue<ServingStatus> watchedStatuses = new LinkedBlockingQueue<>();
+            HealthGrpc.newStub(channel).watch(
+                HealthCheckRequest.newBuilder().setService(PersonServiceGrpc.SERVICE_NAME).build(),
+                new StreamObserver<HealthCheckResponse>() {
+                    @Override
+                    public void onNext(final HealthCheckResponse value) {
+                        watchedStatuses.add(value.getStatus());
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                        // ignored
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        // ignored
+                    }
+                });
+            assertEquals(ServingStatus.SERVING, watchedStatuses.poll(1, TimeUnit.SECONDS));
+
+            testSupport.getEnvironment().healthChecks().register("failing", new HealthCheck() {
+                @Override
+                protected Result check() {
+                    return Result.unhealthy("failing");
+                }
+            });
+            assertEquals(ServingStatus.NOT_SERVING, watchedStatuses.poll(2, TimeUnit.SECONDS));
+            assertEquals(ServingStatus.NOT_SERVING, health.check(serverRequest).getStatus());
+
+            testSupport.getEnvironment().healthChecks().unregister("failing");
+            assertEquals(ServingStatus.SERVING, watchedStatuses.poll(2, TimeUnit.SECONDS));
+        } finally {
+            testSupport.after();
+            shutdownChannel(channel);
+        }
+    }
+
     @Test
     public void grpcServerGetsStopped() {
         final DropwizardTestSupport<TestConfiguration> testSupport =
@@ -6,13 +6,18 @@ import com.google.common.collect.ImmutableList;
 
 import io.dropwizard.grpc.testing.PersonServiceApi.ExceptionalRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.ExceptionalResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchRequest;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonBatchResult;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonListResponse;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonResponse;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonWithIndexRequest;
 import io.dropwizard.grpc.testing.PersonServiceApi.GetPersonWithIndexResponse;
+import io.dropwizard.grpc.testing.PersonServiceApi.Payload;
 import io.dropwizard.grpc.testing.PersonServiceApi.Person;
+import io.dropwizard.grpc.testing.PersonServiceApi.StreamPersonsRequest;
 import io.dropwizard.grpc.testing.PersonServiceGrpc.PersonServiceImplBase;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
@@ -89,6 +94,54 @@ public class PersonServiceGrpcImpl extends PersonServiceImplBase {
         responseObserver.onError(Status.INTERNAL.withDescription("I'm an exception!").asRuntimeException());
     }
 
+    /**
+     * Behaviour: streams {@code StreamPersonsRequest.count} persons, each with the name set to
+     * {@code StreamPersonsRequest.name}.
+     */
+    @Override
+    public void streamPersons(final StreamPersonsRequest request,
+            final StreamObserver<GetPersonResponse> responseObserver) {
+        final GetPersonResponse response = GetPersonResponse.newBuilder()
+            .setPerson(Person.newBuilder().setName(request.getName()).setEmail(request.getName() + "@example.com"))
+            .build();
+        for (int i = 0; i < request.getCount(); i++) {
+            responseObserver.onNext(response);
+        }
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Behaviour: returns one result per request, with the person as returned by
+     * {@link #getPerson(GetPersonRequest, StreamObserver)}, or {@code INVALID_ARGUMENT} if the name is empty. Waits
+     * like {@link #getPerson(GetPersonRequest, StreamObserver)} for requests whose name is a number.
+     */
+    @Override
+    public void getPersonBatch(final GetPersonBatchRequest request,
+            final StreamObserver<GetPersonBatchResponse> responseObserver) {
+        final GetPersonBatchResponse.Builder response = GetPersonBatchResponse.newBuilder();
+        for (final GetPersonRequest personRequest : request.getRequestList()) {
+            waitIfNeeded(personRequest);
+            if (personRequest.getName().isEmpty()) {
+                response.addResult(GetPersonBatchResult.newBuilder()
+                    .setErrorCode(Status.Code.INVALID_ARGUMENT.value()).setErrorMessage("name is empty"));
+            } else {
+                response.addResult(GetPersonBatchResult.newBuilder().setPerson(Person.newBuilder()
+                    .setName(personRequest.getName()).setEmail(personRequest.getName() + "@example.com")));
+            }
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Behaviour: returns the request.
+     */
+    @Override
+    public void echoPayload(final Payload request, final StreamObserver<Payload> responseObserver) {
+        responseObserver.onNext(request);
+        responseObserver.onCompleted();
+    }
+
     private void waitIfNeeded(final GetPersonRequest request) {
         try {
             final long millisToWait = Long.parseLong(request.getName());
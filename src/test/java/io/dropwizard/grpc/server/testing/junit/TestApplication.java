@@ -1,11 +1,15 @@
 package io.dropwizard.grpc.server.testing.junit;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.google.common.annotations.VisibleForTesting;
 
 import io.dropwizard.Application;
 import io.dropwizard.grpc.server.testing.app.PersonServiceGrpcImpl;
 import io.dropwizard.setup.Environment;
 import io.grpc.Server;
+import io.grpc.ServerBuilder;
 
 /**
  * Application used in unit tests.
@@ -15,12 +19,18 @@ public class TestApplication extends Application<TestConfiguration> {
     // don't do this for production systems
     private Server server;
 
+    private final List<Server> listenerServers = new ArrayList<>();
+
     private PersonServiceGrpcImpl personService;
 
     @Override
     public void run(final TestConfiguration configuration, final Environment environment) throws Exception {
         personService = new PersonServiceGrpcImpl();
-        server = configuration.getGrpcServerFactory().builder(environment).addService(personService).build();
+        final List<ServerBuilder<?>> builders = configuration.getGrpcServerFactory().builders(environment);
+        server = builders.get(0).addService(personService).build();
+        for (final ServerBuilder<?> builder : builders.subList(1, builders.size())) {
+            listenerServers.add(builder.addService(personService).build());
+        }
     }
 
     @VisibleForTesting
@@ -28,6 +38,11 @@ public class TestApplication extends Application<TestConfiguration> {
         return server;
     }
 
+    @VisibleForTesting
+    public List<Server> getListenerServers() {
+        return listenerServers;
+    }
+
     @VisibleForTesting
     public PersonServiceGrpcImpl getPersonService() {
         return personService;